@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.benchmarks;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.api.TouchListener;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Touch listener consuming the events it receives, so that the JIT compiler cannot eliminate their creation.
+ *
+ * @param <E> Type of touch events to be consumed.
+ */
+public class BlackholeListener<E extends TouchEvent> implements TouchListener<E> {
+
+    /**
+     * Blackhole provided by JMH.
+     */
+    private final Blackhole blackhole;
+
+    /**
+     * Constructor specifying the blackhole provided by JMH.
+     *
+     * @param blackhole Blackhole consuming the events.
+     */
+    public BlackholeListener(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    /**
+     * @see TouchListener#processTouchEvent(TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(E event) {
+        blackhole.consume(event);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.benchmarks;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.base.ChainBuilder;
+import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.processing.filter.AbstractCursorToTouchTargetDispatcher;
+import com.github.multitouchframework.base.processing.filter.BoundingBoxCursorFilter;
+import com.github.multitouchframework.base.processing.filter.IncludeTouchTargetFilter;
+import com.github.multitouchframework.base.processing.filter.NoChangeCursorFilter;
+import com.github.multitouchframework.base.processing.gesture.drag.DragRecognizer;
+import com.github.multitouchframework.base.processing.gesture.pinchspread.PinchSpreadRecognizer;
+import com.github.multitouchframework.base.processing.gesture.tap.TapRecognizer;
+import com.github.multitouchframework.base.processing.source.AbstractInputSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a whole chain of blocks, measuring the number of cursor update events processed per second.
+ * <p/>
+ * The chain has the shape and size of the one of the demo application (13 blocks).
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChainBenchmark {
+
+    /**
+     * Input source firing the pre-computed events through the chain.
+     */
+    private static class BenchmarkSource extends AbstractInputSource {
+
+        /**
+         * Default constructor.
+         */
+        public BenchmarkSource() {
+            super(new RectangleTouchTarget(0, 0, CursorFrames.SURFACE_WIDTH, CursorFrames.SURFACE_HEIGHT));
+        }
+
+        /**
+         * Processes the specified event with the chain.
+         *
+         * @param event Event to be processed.
+         */
+        public void fire(CursorUpdateEvent event) {
+            processWithNextBlocks(event);
+        }
+    }
+
+    /**
+     * Dispatcher finding the touched target among a fixed list of touch targets.
+     */
+    private static class ListCursorToTouchTargetDispatcher extends AbstractCursorToTouchTargetDispatcher {
+
+        /**
+         * Touch targets, from top to bottom.
+         */
+        private final TouchTarget[] targets;
+
+        /**
+         * Constructor specifying the touch targets.
+         *
+         * @param targets Touch targets, from top to bottom.
+         */
+        public ListCursorToTouchTargetDispatcher(TouchTarget[] targets) {
+            this.targets = targets;
+        }
+
+        /**
+         * @see AbstractCursorToTouchTargetDispatcher#findTouchedTarget(Cursor)
+         */
+        @Override
+        protected TouchTarget findTouchedTarget(Cursor cursor) {
+            TouchTarget touchedTarget = null;
+            for (TouchTarget target : targets) {
+                if (target.isTouched(cursor.getX(), cursor.getY())) {
+                    touchedTarget = target;
+                    break;
+                }
+            }
+            return touchedTarget;
+        }
+    }
+
+    /**
+     * Number of cursors in each cursor update event.
+     */
+    @Param({"1", "10", "100"})
+    public int cursorCount;
+
+    /**
+     * Events to be processed by the chain.
+     */
+    private CursorFrames frames;
+
+    /**
+     * Input source at the beginning of the chain.
+     */
+    private BenchmarkSource source;
+
+    /**
+     * Creates the chain and the events to be processed.
+     *
+     * @param blackhole Blackhole consuming the events at the end of all branches.
+     */
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        frames = new CursorFrames(null, cursorCount);
+        source = new BenchmarkSource();
+
+        // Left and right halves of the surface
+        TouchTarget[] targets = new TouchTarget[]{ //
+                new RectangleTouchTarget(0, 0, CursorFrames.SURFACE_WIDTH / 2, CursorFrames.SURFACE_HEIGHT), //
+                new RectangleTouchTarget(CursorFrames.SURFACE_WIDTH / 2, 0, CursorFrames.SURFACE_WIDTH / 2,
+                        CursorFrames.SURFACE_HEIGHT) //
+        };
+        NoChangeCursorFilter noChangeFilter = new NoChangeCursorFilter();
+        IncludeTouchTargetFilter<CursorUpdateEvent> touchTargetFilter = new
+                IncludeTouchTargetFilter<CursorUpdateEvent>(targets);
+
+        ChainBuilder.queue(source).queue(new BlackholeListener<CursorUpdateEvent>(blackhole));
+        ChainBuilder.queue(source).queue(new BoundingBoxCursorFilter()).queue(noChangeFilter) //
+                .queue(new BlackholeListener<CursorUpdateEvent>(blackhole));
+        ChainBuilder.queue(noChangeFilter).queue(new ListCursorToTouchTargetDispatcher(targets)) //
+                .queue(touchTargetFilter);
+        ChainBuilder.queue(touchTargetFilter).queue(new DragRecognizer()) //
+                .queue(new BlackholeListener<TouchEvent>(blackhole));
+        ChainBuilder.queue(touchTargetFilter).queue(new PinchSpreadRecognizer()) //
+                .queue(new BlackholeListener<TouchEvent>(blackhole));
+        ChainBuilder.queue(touchTargetFilter).queue(new TapRecognizer()) //
+                .queue(new BlackholeListener<TouchEvent>(blackhole));
+    }
+
+    /**
+     * Processes the next event with the whole chain.
+     */
+    @Benchmark
+    public void chain() {
+        source.fire(frames.next());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.benchmarks;
+
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.processing.filter.BoundingBoxCursorFilter;
+import com.github.multitouchframework.base.processing.filter.IncludeUserFilter;
+import com.github.multitouchframework.base.processing.filter.NoChangeCursorFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the cursor filters, measuring the number of cursor update events processed per second.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CursorFilterBenchmark {
+
+    /**
+     * Number of cursors in each cursor update event.
+     */
+    @Param({"1", "10", "100"})
+    public int cursorCount;
+
+    /**
+     * Events to be processed by the bounding box filter.
+     */
+    private CursorFrames boundingBoxFrames;
+
+    /**
+     * Events to be processed by the no-change filter.
+     */
+    private CursorFrames noChangeFrames;
+
+    /**
+     * Events to be processed by the user filter.
+     */
+    private CursorFrames userFrames;
+
+    /**
+     * Bounding box filter to be benchmarked.
+     */
+    private BoundingBoxCursorFilter boundingBoxFilter;
+
+    /**
+     * No-change filter to be benchmarked.
+     */
+    private NoChangeCursorFilter noChangeFilter;
+
+    /**
+     * User filter to be benchmarked.
+     */
+    private IncludeUserFilter<CursorUpdateEvent> userFilter;
+
+    /**
+     * Creates the filters and the events to be processed.
+     *
+     * @param blackhole Blackhole consuming the events forwarded by the filters.
+     */
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        RectangleTouchTarget target = new RectangleTouchTarget(0, 0, CursorFrames.SURFACE_WIDTH,
+                CursorFrames.SURFACE_HEIGHT);
+        boundingBoxFrames = new CursorFrames(target, cursorCount);
+        noChangeFrames = new CursorFrames(target, cursorCount);
+        userFrames = new CursorFrames(target, cursorCount);
+
+        boundingBoxFilter = new BoundingBoxCursorFilter();
+        boundingBoxFilter.queue(new BlackholeListener<CursorUpdateEvent>(blackhole));
+
+        noChangeFilter = new NoChangeCursorFilter();
+        noChangeFilter.queue(new BlackholeListener<CursorUpdateEvent>(blackhole));
+
+        userFilter = new IncludeUserFilter<CursorUpdateEvent>(CursorFrames.USER_ID);
+        userFilter.queue(new BlackholeListener<CursorUpdateEvent>(blackhole));
+    }
+
+    /**
+     * Processes the next event with the bounding box filter.
+     */
+    @Benchmark
+    public void boundingBoxCursorFilter() {
+        boundingBoxFilter.processTouchEvent(boundingBoxFrames.next());
+    }
+
+    /**
+     * Processes the next event with the no-change filter.
+     */
+    @Benchmark
+    public void noChangeCursorFilter() {
+        noChangeFilter.processTouchEvent(noChangeFrames.next());
+    }
+
+    /**
+     * Processes the next event with the user filter.
+     */
+    @Benchmark
+    public void includeUserFilter() {
+        userFilter.processTouchEvent(userFrames.next());
+    }
+}
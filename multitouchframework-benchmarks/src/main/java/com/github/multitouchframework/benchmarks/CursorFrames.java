@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.benchmarks;
+
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TracedEvent;
+import com.github.multitouchframework.base.cursor.CursorDeltaTracker;
+import com.github.multitouchframework.base.cursor.CursorFrame;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+
+import java.util.Random;
+
+/**
+ * Pre-computed sequence of cursor update events replayed in loop by the benchmarks.
+ * <p/>
+ * The sequence simulates a gesture: all cursors are put down at pseudo-random locations, then they all move away from
+ * the center of the surface while being translated, and finally they are all released. This way, the filters and
+ * recognizers go through all their states, and the recognizers fire armed, performed and unarmed events.
+ * <p/>
+ * The events are created once, so that the benchmarks only measure the allocations made by the processing blocks.
+ * They carry the changes of their cursors, like the events produced by the input sources.
+ */
+public class CursorFrames {
+
+    /**
+     * Default number of frames during which the cursors move.
+     */
+    public static final int DEFAULT_MOVE_FRAME_COUNT = 62;
+
+    /**
+     * Width of the simulated touch surface.
+     */
+    public static final int SURFACE_WIDTH = 1920;
+
+    /**
+     * Height of the simulated touch surface.
+     */
+    public static final int SURFACE_HEIGHT = 1080;
+
+    /**
+     * ID of the user set in all events.
+     * <p/>
+     * It is outside the range of the cached boxed longs, like the IDs given by most input devices, so that any boxing
+     * of the user ID shows in the allocation rate.
+     */
+    public static final long USER_ID = 1000;
+
+    /**
+     * Seed of the pseudo-random generator, so that all runs use the same cursors.
+     */
+    private static final long SEED = 0x5EEDL;
+
+    /**
+     * Events of the sequence.
+     */
+    private final CursorUpdateEvent[] events;
+
+    /**
+     * Index of the next event to be returned.
+     */
+    private int nextIndex = 0;
+
+    /**
+     * Constructor specifying the touch target of the events and the number of cursors, and using the default number of
+     * frames.
+     *
+     * @param target      Touch target to be set in all events.
+     * @param cursorCount Number of cursors.
+     */
+    public CursorFrames(TouchTarget target, int cursorCount) {
+        this(target, cursorCount, DEFAULT_MOVE_FRAME_COUNT);
+    }
+
+    /**
+     * Constructor specifying the touch target of the events, the number of cursors and the number of frames during
+     * which the cursors move.
+     *
+     * @param target         Touch target to be set in all events.
+     * @param cursorCount    Number of cursors.
+     * @param moveFrameCount Number of frames during which the cursors move.
+     */
+    public CursorFrames(TouchTarget target, int cursorCount, int moveFrameCount) {
+        Random random = new Random(SEED);
+        int centerX = SURFACE_WIDTH / 2;
+        int centerY = SURFACE_HEIGHT / 2;
+
+        // Initial location of the cursors, leaving room for the movement
+        int[] initialX = new int[cursorCount];
+        int[] initialY = new int[cursorCount];
+        for (int i = 0; i < cursorCount; i++) {
+            initialX[i] = centerX + (random.nextInt(SURFACE_WIDTH / 2) - SURFACE_WIDTH / 4);
+            initialY[i] = centerY + (random.nextInt(SURFACE_HEIGHT / 2) - SURFACE_HEIGHT / 4);
+        }
+
+        CursorDeltaTracker deltaTracker = new CursorDeltaTracker();
+        events = new CursorUpdateEvent[moveFrameCount + 2];
+        for (int frame = 0; frame <= moveFrameCount; frame++) {
+            CursorFrame cursors = new CursorFrame(cursorCount);
+            for (int i = 0; i < cursorCount; i++) {
+                // Spread by 1% and translate by 1 pixel per frame
+                int x = centerX + (initialX[i] - centerX) * (100 + frame) / 100 + frame;
+                int y = centerY + (initialY[i] - centerY) * (100 + frame) / 100 + frame;
+                cursors.add(i, x, y);
+            }
+            events[frame] = createEvent(target, cursors, deltaTracker);
+        }
+        events[moveFrameCount + 1] = createEvent(target, new CursorFrame(0), deltaTracker);
+    }
+
+    /**
+     * Creates an event holding the specified cursors and their changes since the previous event.
+     *
+     * @param target       Touch target to be set in the event.
+     * @param cursors      Cursors of the event.
+     * @param deltaTracker Tracker computing the changes of the cursors.
+     *
+     * @return Cursor update event.
+     */
+    private static CursorUpdateEvent createEvent(TouchTarget target, CursorFrame cursors,
+                                                 CursorDeltaTracker deltaTracker) {
+        // The event copies the delta, which is reused by the tracker
+        return new CursorUpdateEvent(USER_ID, target, cursors, deltaTracker.update(cursors),
+                TracedEvent.NO_RECEIVE_TIME, TracedEvent.NO_SEQUENCE_NUMBER);
+    }
+
+    /**
+     * Gets the number of events in the sequence.
+     *
+     * @return Event count.
+     */
+    public int size() {
+        return events.length;
+    }
+
+    /**
+     * Gets the next event of the sequence, starting again from the first event after the last one.
+     *
+     * @return Next cursor update event.
+     */
+    public CursorUpdateEvent next() {
+        CursorUpdateEvent event = events[nextIndex];
+        nextIndex = (nextIndex + 1) % events.length;
+        return event;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.benchmarks;
+
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.experimental.dispatch.SimpleCursorToTouchTargetDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the dispatching of cursors to touch targets, measuring the number of cursor update events processed
+ * per second.
+ * <p/>
+ * The touch targets are laid out as a grid covering the whole simulated surface, so that every cursor touches one of
+ * them. They are indexed spatially by the dispatcher, so the throughput should hardly depend on their number.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatcherBenchmark {
+
+    /**
+     * Number of touch targets registered in the dispatcher.
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int targetCount;
+
+    /**
+     * Number of cursors in each cursor update event.
+     */
+    @Param({"1", "10", "100"})
+    public int cursorCount;
+
+    /**
+     * Events to be processed by the dispatcher.
+     */
+    private CursorFrames frames;
+
+    /**
+     * Dispatcher to be benchmarked.
+     */
+    private SimpleCursorToTouchTargetDispatcher dispatcher;
+
+    /**
+     * Creates the dispatcher with its touch targets and the events to be processed.
+     *
+     * @param blackhole Blackhole consuming the events forwarded by the dispatcher.
+     */
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        frames = new CursorFrames(null, cursorCount);
+
+        dispatcher = new SimpleCursorToTouchTargetDispatcher(new RectangleTouchTarget(0, 0, CursorFrames.SURFACE_WIDTH,
+                CursorFrames.SURFACE_HEIGHT));
+        dispatcher.queue(new BlackholeListener<CursorUpdateEvent>(blackhole));
+
+        // Lay out the touch targets as a grid
+        int columnCount = (int) Math.ceil(Math.sqrt(targetCount));
+        int rowCount = (targetCount + columnCount - 1) / columnCount;
+        int cellWidth = (CursorFrames.SURFACE_WIDTH + columnCount - 1) / columnCount;
+        int cellHeight = (CursorFrames.SURFACE_HEIGHT + rowCount - 1) / rowCount;
+        for (int i = 0; i < targetCount; i++) {
+            dispatcher.addTouchTargetOnTop(new RectangleTouchTarget((i % columnCount) * cellWidth,
+                    (i / columnCount) * cellHeight, cellWidth, cellHeight));
+        }
+    }
+
+    /**
+     * Processes the next event with the dispatcher.
+     */
+    @Benchmark
+    public void simpleCursorToTouchTargetDispatcher() {
+        dispatcher.processTouchEvent(frames.next());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.benchmarks;
+
+import com.github.multitouchframework.base.processing.gesture.drag.DragEvent;
+import com.github.multitouchframework.base.processing.gesture.drag.DragRecognizer;
+import com.github.multitouchframework.base.processing.gesture.pinchspread.PinchSpreadEvent;
+import com.github.multitouchframework.base.processing.gesture.pinchspread.PinchSpreadRecognizer;
+import com.github.multitouchframework.base.processing.gesture.tap.TapEvent;
+import com.github.multitouchframework.base.processing.gesture.tap.TapRecognizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the gesture recognizers, measuring the number of cursor update events processed per second.
+ * <p/>
+ * The recognizers accept any number of cursors, so that they recognize the gestures whatever the number of cursors.
+ *
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GestureRecognizerBenchmark {
+
+    /**
+     * Number of cursors in each cursor update event.
+     */
+    @Param({"1", "10", "100"})
+    public int cursorCount;
+
+    /**
+     * Events to be processed by the drag recognizer.
+     */
+    private CursorFrames dragFrames;
+
+    /**
+     * Events to be processed by the pinch/spread recognizer.
+     */
+    private CursorFrames pinchSpreadFrames;
+
+    /**
+     * Events to be processed by the tap recognizer.
+     */
+    private CursorFrames tapFrames;
+
+    /**
+     * Drag recognizer to be benchmarked.
+     */
+    private DragRecognizer dragRecognizer;
+
+    /**
+     * Pinch/spread recognizer to be benchmarked.
+     */
+    private PinchSpreadRecognizer pinchSpreadRecognizer;
+
+    /**
+     * Tap recognizer to be benchmarked.
+     */
+    private TapRecognizer tapRecognizer;
+
+    /**
+     * Creates the recognizers and the events to be processed.
+     *
+     * @param blackhole Blackhole consuming the gesture events fired by the recognizers.
+     */
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        // The tap recognizer needs a touch target to check whether the cursors are still on it
+        RectangleTouchTarget target = new RectangleTouchTarget(0, 0, CursorFrames.SURFACE_WIDTH,
+                CursorFrames.SURFACE_HEIGHT);
+        dragFrames = new CursorFrames(target, cursorCount);
+        pinchSpreadFrames = new CursorFrames(target, cursorCount);
+        tapFrames = new CursorFrames(target, cursorCount);
+
+        dragRecognizer = new DragRecognizer(1, Integer.MAX_VALUE);
+        dragRecognizer.queue(new BlackholeListener<DragEvent>(blackhole));
+
+        pinchSpreadRecognizer = new PinchSpreadRecognizer(1, Integer.MAX_VALUE);
+        pinchSpreadRecognizer.queue(new BlackholeListener<PinchSpreadEvent>(blackhole));
+
+        tapRecognizer = new TapRecognizer(1, Integer.MAX_VALUE);
+        tapRecognizer.queue(new BlackholeListener<TapEvent>(blackhole));
+    }
+
+    /**
+     * Processes the next event with the drag recognizer.
+     */
+    @Benchmark
+    public void dragRecognizer() {
+        dragRecognizer.processTouchEvent(dragFrames.next());
+    }
+
+    /**
+     * Processes the next event with the pinch/spread recognizer.
+     */
+    @Benchmark
+    public void pinchSpreadRecognizer() {
+        pinchSpreadRecognizer.processTouchEvent(pinchSpreadFrames.next());
+    }
+
+    /**
+     * Processes the next event with the tap recognizer.
+     */
+    @Benchmark
+    public void tapRecognizer() {
+        tapRecognizer.processTouchEvent(tapFrames.next());
+    }
+}
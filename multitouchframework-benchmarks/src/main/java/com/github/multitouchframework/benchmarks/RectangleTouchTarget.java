@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.benchmarks;
+
+import com.github.multitouchframework.api.BoundedTouchTarget;
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TouchTargetBoundsListener;
+import com.github.multitouchframework.base.cursor.Cursor;
+
+import java.awt.Rectangle;
+
+/**
+ * Rectangular touch target not requiring any display, used to run the benchmarks on headless machines.
+ * <p/>
+ * Its bounds never change, so no bounds listener is ever notified.
+ */
+public class RectangleTouchTarget implements BoundedTouchTarget {
+
+    /**
+     * Location of the left side of the rectangle.
+     */
+    private final int x;
+
+    /**
+     * Location of the top side of the rectangle.
+     */
+    private final int y;
+
+    /**
+     * Width of the rectangle.
+     */
+    private final int width;
+
+    /**
+     * Height of the rectangle.
+     */
+    private final int height;
+
+    /**
+     * Constructor specifying the bounds of the rectangle.
+     *
+     * @param x      Location of the left side of the rectangle.
+     * @param y      Location of the top side of the rectangle.
+     * @param width  Width of the rectangle.
+     * @param height Height of the rectangle.
+     */
+    public RectangleTouchTarget(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @see TouchTarget#getBaseObject()
+     */
+    @Override
+    public Object getBaseObject() {
+        return this;
+    }
+
+    /**
+     * @see TouchTarget#getMaximumWidth()
+     */
+    @Override
+    public int getMaximumWidth() {
+        return width;
+    }
+
+    /**
+     * @see TouchTarget#getMaximumHeight()
+     */
+    @Override
+    public int getMaximumHeight() {
+        return height;
+    }
+
+    /**
+     * @see BoundedTouchTarget#getBounds()
+     */
+    @Override
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, width, height);
+    }
+
+    /**
+     * @see BoundedTouchTarget#addBoundsListener(TouchTargetBoundsListener)
+     */
+    @Override
+    public void addBoundsListener(TouchTargetBoundsListener listener) {
+        // Nothing to be done because the bounds never change
+    }
+
+    /**
+     * @see BoundedTouchTarget#removeBoundsListener(TouchTargetBoundsListener)
+     */
+    @Override
+    public void removeBoundsListener(TouchTargetBoundsListener listener) {
+        // Nothing to be done because the bounds never change
+    }
+
+    /**
+     * @see TouchTarget#isTouched(Cursor)
+     */
+    @Override
+    public boolean isTouched(Cursor cursor) {
+        return isTouched(cursor.getX(), cursor.getY());
+    }
+
+    /**
+     * @see TouchTarget#isTouched(int, int)
+     */
+    @Override
+    public boolean isTouched(int cursorX, int cursorY) {
+        return (x <= cursorX) && (cursorX < x + width) && (y <= cursorY) && (cursorY < y + height);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.api;
+
+import java.awt.Rectangle;
+
+/**
+ * Interface to be implemented by touch targets whose area is known to lie within a bounding box, and that notify when
+ * this bounding box changes.
+ * <p/>
+ * This allows dispatchers to index the touch targets spatially, so that only the few touch targets whose bounds contain
+ * a cursor are checked with {@link #isTouched(int, int)}.
+ *
+ * @see TouchTargetBoundsListener
+ */
+public interface BoundedTouchTarget extends TouchTarget {
+
+    /**
+     * Gets the bounding box of the touch target, in the same coordinate system as the cursors.
+     * <p/>
+     * The touch target must never be touched by a cursor lying outside of this bounding box.
+     *
+     * @return Bounds of the touch target, that can be modified by the caller.
+     */
+    Rectangle getBounds();
+
+    /**
+     * Adds the specified listener to be notified whenever the bounds of the touch target change.
+     *
+     * @param listener Listener to be added.
+     */
+    void addBoundsListener(TouchTargetBoundsListener listener);
+
+    /**
+     * Removes the specified listener.
+     *
+     * @param listener Listener to be removed.
+     */
+    void removeBoundsListener(TouchTargetBoundsListener listener);
+}
@@ -63,6 +63,21 @@ public interface TouchTarget {
      * @param cursor Cursor to be checked.
      *
      * @return True if the touch target is touched by the cursor, false otherwise.
+     *
+     * @see #isTouched(int, int)
      */
     boolean isTouched(Cursor cursor);
+
+    /**
+     * States whether the touch target is touched by a cursor at the specified location.
+     * <p/>
+     * This method is meant to be used on the processing path, where cursors are held in frames, so that no cursor
+     * object needs to be created. It must give the same result as {@link #isTouched(Cursor)}.
+     *
+     * @param x X coordinate of the cursor.
+     * @param y Y coordinate of the cursor.
+     *
+     * @return True if the touch target is touched by a cursor at this location, false otherwise.
+     */
+    boolean isTouched(int x, int y);
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.api;
+
+/**
+ * Interface to be implemented by touch events that can be traced back to the input data from which they originate.
+ * <p/>
+ * The receive time and the sequence number are set by the input source, and carried along by the processing blocks into
+ * the events they produce, so that the end-to-end latency can be measured at the end of the chain. Tracing is optional:
+ * events that are not traced have no receive time and no sequence number.
+ *
+ * @see TouchEvent
+ */
+public interface TracedEvent extends TouchEvent {
+
+    /**
+     * Receive time of the events that are not traced.
+     * <p/>
+     * Any other value is a valid receive time, including 0 and negative values, because {@link System#nanoTime()} has
+     * an arbitrary origin.
+     */
+    long NO_RECEIVE_TIME = Long.MIN_VALUE;
+
+    /**
+     * Sequence number of the events that are not traced.
+     */
+    long NO_SEQUENCE_NUMBER = -1;
+
+    /**
+     * Gets the time at which the input data was received by the input source, as given by {@link System#nanoTime()}.
+     *
+     * @return Receive time in nanoseconds, or {@link #NO_RECEIVE_TIME} if the event is not traced.
+     */
+    long getReceiveTime();
+
+    /**
+     * Gets the sequence number given by the input source to the input data.
+     *
+     * @return Sequence number, or {@link #NO_SEQUENCE_NUMBER} if the event is not traced.
+     */
+    long getSequenceNumber();
+}
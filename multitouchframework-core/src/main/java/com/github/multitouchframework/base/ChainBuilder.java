@@ -27,12 +27,24 @@ package com.github.multitouchframework.base;
 
 import com.github.multitouchframework.api.Chainable;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Helper class to build chains of blocks more easily.
  * <p/>
  * Starting a new chain or branch of a chain is done using the {@link #queue(Chainable)} method.
+ * <p/>
+ * Alternatively, an instance of this class can be used to record the whole graph of blocks, using the
+ * {@link #chain(Chainable)} method. The blocks are not connected to each other while the graph is recorded. Calling
+ * {@link #build()} validates the graph, connects the blocks and produces the corresponding {@link ChainPlan}. Once
+ * built, the chain can no longer be modified through this builder. The built chain processes the events exactly like a
+ * chain wired directly.
  *
  * @see Chainable
+ * @see ChainPlan
  */
 public final class ChainBuilder {
 
@@ -43,6 +55,11 @@ public final class ChainBuilder {
      */
     public static class Chain<T> {
 
+        /**
+         * Builder recording the graph of blocks, or null if the graph is not recorded.
+         */
+        private final ChainBuilder builder;
+
         /**
          * Current block to which additional blocks can be queued.
          */
@@ -54,6 +71,18 @@ public final class ChainBuilder {
          * @param block Current block to which additional blocks can be queued.
          */
         public Chain(Chainable<T> block) {
+            this(null, block);
+        }
+
+        /**
+         * Constructor specifying the builder recording the graph of blocks and the current block to which additional
+         * blocks can be queued.
+         *
+         * @param builder Builder recording the graph of blocks, or null.
+         * @param block   Current block to which additional blocks can be queued.
+         */
+        private Chain(ChainBuilder builder, Chainable<T> block) {
+            this.builder = builder;
             this.block = block;
         }
 
@@ -64,35 +93,87 @@ public final class ChainBuilder {
          * @param <N>       Type of block following the specified next chainable block.
          *
          * @return Entity allowing to queue more blocks.
+         *
+         * @throws IllegalStateException If the chain has already been built.
          */
-        @SuppressWarnings("unchecked")
         public <N> Chain<N> queue(Chainable<N> nextBlock) {
-            block.queue((T) nextBlock);
-            return new Chain<N>(nextBlock);
+            connect(nextBlock);
+            return new Chain<N>(builder, nextBlock);
         }
 
         /**
          * Ends the chain or branch with the specified block(s).
          *
          * @param nextBlocks Next block(s) to be added to the current block.
+         *
+         * @throws IllegalStateException If the chain has already been built.
          */
-        @SuppressWarnings("unchecked")
         public void queue(Object... nextBlocks) {
             for (Object next : nextBlocks) {
-                block.queue((T) next);
+                connect(next);
+            }
+        }
+
+        /**
+         * Disconnects the specified block from the current block.
+         *
+         * @param nextBlock Block to be disconnected.
+         *
+         * @throws IllegalStateException If the chain has already been built.
+         */
+        @SuppressWarnings("unchecked")
+        public void dequeue(Object nextBlock) {
+            if (builder == null) {
+                block.dequeue((T) nextBlock);
+            } else {
+                builder.disconnect(block, nextBlock);
+            }
+        }
+
+        /**
+         * Connects the specified block to the current block.
+         *
+         * @param nextBlock Block to be connected.
+         */
+        @SuppressWarnings("unchecked")
+        private void connect(Object nextBlock) {
+            if (builder == null) {
+                block.queue((T) nextBlock);
+            } else {
+                builder.connect(block, nextBlock);
             }
         }
     }
 
     /**
-     * Private constructor for utility class.
+     * All blocks recorded by this builder, in order of appearance.
+     */
+    private final List<Object> blocks = new ArrayList<Object>();
+
+    /**
+     * Next blocks recorded for each block, in order of queuing.
+     */
+    private final Map<Object, List<Object>> edges = new IdentityHashMap<Object, List<Object>>();
+
+    /**
+     * Plan produced by {@link #build()}, or null if the chain has not been built yet.
      */
-    private ChainBuilder() {
+    private ChainPlan plan = null;
+
+    /**
+     * Default constructor creating a builder recording the graph of blocks.
+     *
+     * @see #chain(Chainable)
+     * @see #build()
+     */
+    public ChainBuilder() {
         // Nothing to be done
     }
 
     /**
      * Starts a new chain or branch with the specified block.
+     * <p/>
+     * The blocks are directly connected to each other and the graph is not recorded.
      *
      * @param block First block of the chain or branch.<br>
      *              It can be the input source at the beginning of the whole chain or a block at the beginning of a new
@@ -104,4 +185,119 @@ public final class ChainBuilder {
     public static <N> Chain<N> queue(Chainable<N> block) {
         return new Chain<N>(block);
     }
+
+    /**
+     * Starts a new chain or branch with the specified block, recording the graph of blocks in this builder.
+     *
+     * @param block First block of the chain or branch.<br>
+     *              It can be the input source at the beginning of the whole chain or a block at the beginning of a new
+     *              branch.
+     * @param <N>   Type of the next block after the specified block.
+     *
+     * @return Entity allowing to queue more blocks.
+     *
+     * @throws IllegalStateException If the chain has already been built.
+     */
+    public synchronized <N> Chain<N> chain(Chainable<N> block) {
+        checkNotBuilt();
+        addBlock(block);
+        return new Chain<N>(this, block);
+    }
+
+    /**
+     * Validates the recorded graph of blocks, connects the blocks and produces the corresponding plan.
+     * <p/>
+     * The blocks are connected only if the graph is valid, so that an invalid graph never gets to process any event.
+     * <p/>
+     * After this call, the chain can no longer be modified through this builder. Calling this method several times
+     * returns the same plan.
+     *
+     * @return Plan of the chain.
+     *
+     * @throws IllegalStateException If the graph contains a cycle or a block queued twice to a same block.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized ChainPlan build() {
+        if (plan == null) {
+            ChainPlan validatedPlan = new ChainPlan(blocks, edges);
+
+            // Only blocks that are chainable can have next blocks
+            for (Object block : blocks) {
+                for (Object nextBlock : edges.get(block)) {
+                    ((Chainable<Object>) block).queue(nextBlock);
+                }
+            }
+
+            plan = validatedPlan;
+        }
+        return plan;
+    }
+
+    /**
+     * States whether the chain has already been built.
+     *
+     * @return True if {@link #build()} has been successfully called, false otherwise.
+     */
+    public synchronized boolean isBuilt() {
+        return plan != null;
+    }
+
+    /**
+     * Records the specified next block to the specified block, to be connected when the chain is built.
+     *
+     * @param block     Block to which the next block is to be connected.
+     * @param nextBlock Block to be connected.
+     * @param <T>       Type of next block.
+     */
+    private synchronized <T> void connect(Chainable<T> block, Object nextBlock) {
+        checkNotBuilt();
+        if (nextBlock == null) {
+            throw new IllegalArgumentException("Cannot queue a null block to block " + block);
+        }
+
+        addBlock(nextBlock);
+        edges.get(block).add(nextBlock);
+    }
+
+    /**
+     * Forgets the specified next block recorded for the specified block.
+     *
+     * @param block     Block from which the next block is to be disconnected.
+     * @param nextBlock Block to be disconnected.
+     * @param <T>       Type of next block.
+     */
+    private synchronized <T> void disconnect(Chainable<T> block, Object nextBlock) {
+        checkNotBuilt();
+
+        List<Object> nextBlocks = edges.get(block);
+        for (int i = 0; i < nextBlocks.size(); i++) {
+            if (nextBlocks.get(i) == nextBlock) {
+                nextBlocks.remove(i);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records the specified block if it is not known yet.
+     *
+     * @param block Block to be recorded.
+     */
+    private void addBlock(Object block) {
+        if (!edges.containsKey(block)) {
+            blocks.add(block);
+            edges.put(block, new ArrayList<Object>());
+        }
+    }
+
+    /**
+     * Makes sure that the chain has not been built yet.
+     *
+     * @throws IllegalStateException If the chain has already been built.
+     */
+    private void checkNotBuilt() {
+        if (plan != null) {
+            throw new IllegalStateException("Chain has already been built and can no longer be modified");
+        }
+    }
 }
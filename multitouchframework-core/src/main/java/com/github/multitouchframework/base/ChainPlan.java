@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validated description of a chain of blocks, as produced by {@link ChainBuilder#build()}.
+ * <p/>
+ * The plan lists all the stages of the chain in topological order: a block always appears before all the blocks that
+ * are queued to it. The graph of blocks is guaranteed to contain no cycle and no block queued twice to the same block.
+ * <p/>
+ * The plan only describes the chain and does not take part in the processing of the events: each block still forwards
+ * its output to its own next blocks.
+ * <p/>
+ * The plan is a snapshot of the graph at the time it was built. It does not prevent the blocks from being connected or
+ * disconnected afterwards through their own {@link com.github.multitouchframework.api.Chainable} methods, in which
+ * case it no longer reflects the actual chain.
+ *
+ * @see ChainBuilder
+ */
+public final class ChainPlan {
+
+    /**
+     * Single stage of the chain, that is a block with the blocks that are queued to it.
+     */
+    public static final class Stage {
+
+        /**
+         * Block of this stage.
+         */
+        private final Object block;
+
+        /**
+         * Blocks queued to the block of this stage, in the order in which they will be processed.
+         */
+        private final List<Object> nextBlocks;
+
+        /**
+         * Constructor specifying the block of the stage and the blocks queued to it.
+         *
+         * @param block      Block of the stage.
+         * @param nextBlocks Blocks queued to the block of the stage.
+         */
+        private Stage(Object block, List<Object> nextBlocks) {
+            this.block = block;
+            this.nextBlocks = Collections.unmodifiableList(new ArrayList<Object>(nextBlocks));
+        }
+
+        /**
+         * Gets the block of this stage.
+         *
+         * @return Block of this stage.
+         */
+        public Object getBlock() {
+            return block;
+        }
+
+        /**
+         * Gets the blocks queued to the block of this stage.
+         *
+         * @return Read-only list of next blocks.
+         */
+        public List<Object> getNextBlocks() {
+            return nextBlocks;
+        }
+
+        /**
+         * @see Object#toString()
+         */
+        @Override
+        public String toString() {
+            String blockName = block.getClass().getSimpleName();
+            if (blockName.length() == 0) {
+                // Anonymous class
+                blockName = block.getClass().getName();
+            }
+            return blockName + " -> " + nextBlocks.size() + " block(s)";
+        }
+    }
+
+    /**
+     * Blocks that are not queued to any other block, typically the input sources.
+     */
+    private final List<Object> roots;
+
+    /**
+     * All stages of the chain, in topological order.
+     */
+    private final List<Stage> stages;
+
+    /**
+     * Constructor specifying the edges of the graph of blocks.
+     * <p/>
+     * The graph is validated in the process.
+     *
+     * @param blocks All blocks of the graph, in order of appearance.
+     * @param edges  Next blocks for each block of the graph.
+     *
+     * @throws IllegalStateException If the graph contains a cycle or a block queued twice to a same block.
+     */
+    ChainPlan(List<Object> blocks, Map<Object, List<Object>> edges) {
+        // Find root blocks
+        Map<Object, Boolean> queuedBlocks = new IdentityHashMap<Object, Boolean>();
+        for (List<Object> nextBlocks : edges.values()) {
+            for (Object nextBlock : nextBlocks) {
+                queuedBlocks.put(nextBlock, Boolean.TRUE);
+            }
+        }
+        List<Object> rootList = new ArrayList<Object>();
+        for (Object block : blocks) {
+            if (!queuedBlocks.containsKey(block)) {
+                rootList.add(block);
+            }
+        }
+
+        // Sort stages so that a block always comes before its next blocks
+        List<Stage> stageList = new ArrayList<Stage>();
+        Map<Object, Boolean> visiting = new IdentityHashMap<Object, Boolean>();
+        Map<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+        for (Object root : rootList) {
+            visit(root, edges, visiting, visited, stageList);
+        }
+        if (visited.size() < blocks.size()) {
+            // Some blocks cannot be reached from any starting block
+            throw new IllegalStateException("Chain contains a cycle that cannot be reached from any starting block");
+        }
+        Collections.reverse(stageList);
+
+        roots = Collections.unmodifiableList(rootList);
+        stages = Collections.unmodifiableList(stageList);
+    }
+
+    /**
+     * Visits the specified block and all the blocks following it (depth-first), to validate the graph and to add the
+     * corresponding stages in reverse topological order.
+     *
+     * @param block    Block to be visited.
+     * @param edges    Next blocks for each block of the graph.
+     * @param visiting Blocks currently on the visiting path.
+     * @param visited  Blocks already visited.
+     * @param stages   Stages in reverse topological order.
+     */
+    private static void visit(Object block, Map<Object, List<Object>> edges, Map<Object, Boolean> visiting,
+                              Map<Object, Boolean> visited, List<Stage> stages) {
+        if (visiting.containsKey(block)) {
+            throw new IllegalStateException("Chain contains a cycle involving block: " + block);
+        }
+
+        if (!visited.containsKey(block)) {
+            visiting.put(block, Boolean.TRUE);
+
+            List<Object> nextBlocks = edges.get(block);
+            if (nextBlocks == null) {
+                nextBlocks = Collections.emptyList();
+            }
+            Map<Object, Boolean> distinctNextBlocks = new IdentityHashMap<Object, Boolean>();
+            for (Object nextBlock : nextBlocks) {
+                if (distinctNextBlocks.put(nextBlock, Boolean.TRUE) != null) {
+                    throw new IllegalStateException("Block " + nextBlock + " is queued twice to block " + block);
+                }
+                visit(nextBlock, edges, visiting, visited, stages);
+            }
+
+            visiting.remove(block);
+            visited.put(block, Boolean.TRUE);
+            stages.add(new Stage(block, nextBlocks));
+        }
+    }
+
+    /**
+     * Gets the blocks that are not queued to any other block, typically the input sources.
+     *
+     * @return Read-only list of starting blocks.
+     */
+    public List<Object> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Gets all the stages of the chain, in topological order.
+     *
+     * @return Read-only list of stages.
+     */
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ChainPlan{roots=" + roots.size() + "; stages=" + stages + "}";
+    }
+}
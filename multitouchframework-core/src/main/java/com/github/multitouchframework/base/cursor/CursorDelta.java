@@ -0,0 +1,470 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.cursor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Changes of the cursors of a user on a touch target between two consecutive cursor update events.
+ * <p/>
+ * The cursors of the new event are split into added, updated (moved) and stationary cursors, given by their indexes in
+ * the {@link CursorFrame} of the new event. The removed cursors are given with their last known positions.
+ * <p/>
+ * This allows the blocks to do work proportional to the number of changes instead of the number of cursors. For
+ * instance:
+ * <pre>
+ * int[] addedIndexes = delta.getAddedIndexes();
+ * for (int i = 0; i &lt; delta.getAddedCount(); i++) {
+ *     Cursor cursor = frame.getCursor(addedIndexes[i]);
+ *     ...
+ * }
+ * </pre>
+ * Each state of the cursors is identified by a version, so that the blocks can check that a delta applies to the last
+ * state they know. This is not the case, for instance, when some events were dropped or coalesced by the blocks in
+ * between. In that case, the blocks are expected to process the whole frame instead, as if the delta was unknown.
+ * <p/>
+ * Deltas are mutable so that they can be reused by the blocks producing them. Regular (non-pooled) events hold a frozen
+ * copy of the delta given at creation, like for their frame (see {@link CursorFrame#isFrozen()}). The delta of a pooled
+ * event, however, is not frozen and must no longer be modified once the event has been forwarded.
+ * <p/>
+ * This class is not thread-safe, except for reading a frozen delta.
+ *
+ * @see CursorUpdateEvent#getCursorDelta()
+ * @see CursorDeltaTracker
+ */
+public final class CursorDelta {
+
+    /**
+     * Version used when the state of the cursors is unknown.
+     */
+    public static final long UNKNOWN_VERSION = 0;
+
+    /**
+     * Generator of unique versions for all the states of cursors.
+     */
+    private static final AtomicLong VERSION_GENERATOR = new AtomicLong(UNKNOWN_VERSION);
+
+    /**
+     * Default initial capacity of the index sets.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Indexes of the added cursors in the frame of the event.
+     */
+    private int[] addedIndexes = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Number of added cursors.
+     */
+    private int addedCount = 0;
+
+    /**
+     * Indexes of the updated cursors in the frame of the event.
+     */
+    private int[] updatedIndexes = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Number of updated cursors.
+     */
+    private int updatedCount = 0;
+
+    /**
+     * Indexes of the stationary cursors in the frame of the event.
+     */
+    private int[] stationaryIndexes = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Number of stationary cursors.
+     */
+    private int stationaryCount = 0;
+
+    /**
+     * Removed cursors, with their last known positions.
+     */
+    private final CursorFrame removedCursors = new CursorFrame(0);
+
+    /**
+     * Version of the state of the cursors to which the delta applies.
+     */
+    private long previousVersion = UNKNOWN_VERSION;
+
+    /**
+     * Version of the state of the cursors resulting from the delta.
+     */
+    private long version = UNKNOWN_VERSION;
+
+    /**
+     * True if the delta can no longer be modified.
+     */
+    private boolean frozen = false;
+
+    /**
+     * Default constructor.
+     */
+    public CursorDelta() {
+        // Nothing to be done
+    }
+
+    /**
+     * Constructor creating a copy of the specified delta.
+     *
+     * @param delta Delta to be copied.
+     */
+    public CursorDelta(CursorDelta delta) {
+        copyFrom(delta);
+    }
+
+    /**
+     * Creates a new version for a state of cursors.
+     *
+     * @return Version that was never given before.
+     */
+    public static long newVersion() {
+        return VERSION_GENERATOR.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of added cursors.
+     *
+     * @return Added cursor count.
+     */
+    public int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * Gets the indexes of the added cursors in the frame of the event.
+     * <p/>
+     * Only the first {@link #getAddedCount()} elements are meaningful. The array must not be modified.
+     *
+     * @return Indexes of the added cursors.
+     */
+    public int[] getAddedIndexes() {
+        return addedIndexes;
+    }
+
+    /**
+     * Gets the number of updated cursors.
+     *
+     * @return Updated cursor count.
+     */
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    /**
+     * Gets the indexes of the updated cursors in the frame of the event.
+     * <p/>
+     * Only the first {@link #getUpdatedCount()} elements are meaningful. The array must not be modified.
+     *
+     * @return Indexes of the updated cursors.
+     */
+    public int[] getUpdatedIndexes() {
+        return updatedIndexes;
+    }
+
+    /**
+     * Gets the number of stationary cursors.
+     *
+     * @return Stationary cursor count.
+     */
+    public int getStationaryCount() {
+        return stationaryCount;
+    }
+
+    /**
+     * Gets the indexes of the stationary cursors in the frame of the event.
+     * <p/>
+     * Only the first {@link #getStationaryCount()} elements are meaningful. The array must not be modified.
+     *
+     * @return Indexes of the stationary cursors.
+     */
+    public int[] getStationaryIndexes() {
+        return stationaryIndexes;
+    }
+
+    /**
+     * Gets the removed cursors, with their last known positions.
+     * <p/>
+     * The frame must not be modified.
+     *
+     * @return Removed cursors.
+     */
+    public CursorFrame getRemovedCursors() {
+        return removedCursors;
+    }
+
+    /**
+     * States whether at least one cursor was added, updated or removed.
+     *
+     * @return True if the cursors changed, false otherwise.
+     */
+    public boolean hasChanges() {
+        return (addedCount > 0) || (updatedCount > 0) || !removedCursors.isEmpty();
+    }
+
+    /**
+     * Gets the version of the state of the cursors to which the delta applies.
+     *
+     * @return Previous version, or {@link #UNKNOWN_VERSION}.
+     */
+    public long getPreviousVersion() {
+        return previousVersion;
+    }
+
+    /**
+     * Gets the version of the state of the cursors resulting from the delta.
+     * <p/>
+     * The version is the same as the previous version if the cursors did not change.
+     *
+     * @return Version, or {@link #UNKNOWN_VERSION}.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * States whether the delta applies to the specified state of cursors.
+     *
+     * @param knownVersion Version of the state of cursors known by the caller.
+     *
+     * @return True if the delta can be applied to the known state, false if the whole frame is to be processed.
+     */
+    public boolean appliesTo(long knownVersion) {
+        return (knownVersion != UNKNOWN_VERSION) && (knownVersion == previousVersion);
+    }
+
+    /**
+     * Removes all changes from the delta, and resets its versions.
+     */
+    public void clear() {
+        checkNotFrozen();
+        addedCount = 0;
+        updatedCount = 0;
+        stationaryCount = 0;
+        removedCursors.clear();
+        previousVersion = UNKNOWN_VERSION;
+        version = UNKNOWN_VERSION;
+    }
+
+    /**
+     * Adds the specified index to the added cursors.
+     *
+     * @param index Index of the cursor in the frame of the event.
+     */
+    public void addAdded(int index) {
+        checkNotFrozen();
+        if (addedCount == addedIndexes.length) {
+            addedIndexes = Arrays.copyOf(addedIndexes, addedCount * 2);
+        }
+        addedIndexes[addedCount++] = index;
+    }
+
+    /**
+     * Adds the specified index to the updated cursors.
+     *
+     * @param index Index of the cursor in the frame of the event.
+     */
+    public void addUpdated(int index) {
+        checkNotFrozen();
+        if (updatedCount == updatedIndexes.length) {
+            updatedIndexes = Arrays.copyOf(updatedIndexes, updatedCount * 2);
+        }
+        updatedIndexes[updatedCount++] = index;
+    }
+
+    /**
+     * Adds the specified index to the stationary cursors.
+     *
+     * @param index Index of the cursor in the frame of the event.
+     */
+    public void addStationary(int index) {
+        checkNotFrozen();
+        if (stationaryCount == stationaryIndexes.length) {
+            stationaryIndexes = Arrays.copyOf(stationaryIndexes, stationaryCount * 2);
+        }
+        stationaryIndexes[stationaryCount++] = index;
+    }
+
+    /**
+     * Adds a cursor to the removed cursors.
+     *
+     * @param id Cursor ID.
+     * @param x  Last known X coordinate of the cursor.
+     * @param y  Last known Y coordinate of the cursor.
+     */
+    public void addRemoved(long id, int x, int y) {
+        checkNotFrozen();
+        removedCursors.add(id, x, y);
+    }
+
+    /**
+     * Replaces the changes of this delta by the changes between the specified frames.
+     * <p/>
+     * The versions are reset, see {@link #advanceVersion(long)}.
+     *
+     * @param previousCursors Cursors of the previous event.
+     * @param cursors         Cursors of the new event.
+     */
+    public void compute(CursorFrame previousCursors, CursorFrame cursors) {
+        checkNotFrozen();
+        clear();
+
+        long[] ids = cursors.getIds();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
+        long[] previousIds = previousCursors.getIds();
+        int[] previousXs = previousCursors.getXs();
+        int[] previousYs = previousCursors.getYs();
+        int previousSize = previousCursors.size();
+        int matchedCount = 0;
+        for (int i = 0; i < cursors.size(); i++) {
+            // Cursors are most likely in the same order as last time
+            int previousIndex = i;
+            if ((i >= previousSize) || (ids[i] != previousIds[i])) {
+                previousIndex = previousCursors.indexOf(ids[i]);
+            }
+
+            if (previousIndex < 0) {
+                addAdded(i);
+            } else {
+                matchedCount++;
+                if ((xs[i] != previousXs[previousIndex]) || (ys[i] != previousYs[previousIndex])) {
+                    addUpdated(i);
+                } else {
+                    addStationary(i);
+                }
+            }
+        }
+
+        // Look for the removed cursors only if there are some
+        for (int i = 0; (matchedCount + removedCursors.size()) < previousSize; i++) {
+            if (((i >= cursors.size()) || (previousIds[i] != ids[i])) && (cursors.indexOf(previousIds[i]) < 0)) {
+                addRemoved(previousIds[i], previousXs[i], previousYs[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets the versions of the delta, creating a new version only if the cursors changed.
+     * <p/>
+     * This method is meant to be called by the producer of the delta, once all changes have been added.
+     *
+     * @param knownVersion Version of the previous state of the cursors, as returned by the previous call.
+     *
+     * @return Version of the resulting state of the cursors.
+     */
+    public long advanceVersion(long knownVersion) {
+        checkNotFrozen();
+        previousVersion = knownVersion;
+        if (hasChanges()) {
+            version = newVersion();
+        } else {
+            version = knownVersion;
+        }
+        return version;
+    }
+
+    /**
+     * Replaces the content of this delta by the content of the specified delta.
+     *
+     * @param delta Delta to be copied.
+     */
+    public void copyFrom(CursorDelta delta) {
+        checkNotFrozen();
+        if (addedIndexes.length < delta.addedCount) {
+            addedIndexes = new int[delta.addedIndexes.length];
+        }
+        System.arraycopy(delta.addedIndexes, 0, addedIndexes, 0, delta.addedCount);
+        addedCount = delta.addedCount;
+
+        if (updatedIndexes.length < delta.updatedCount) {
+            updatedIndexes = new int[delta.updatedIndexes.length];
+        }
+        System.arraycopy(delta.updatedIndexes, 0, updatedIndexes, 0, delta.updatedCount);
+        updatedCount = delta.updatedCount;
+
+        if (stationaryIndexes.length < delta.stationaryCount) {
+            stationaryIndexes = new int[delta.stationaryIndexes.length];
+        }
+        System.arraycopy(delta.stationaryIndexes, 0, stationaryIndexes, 0, delta.stationaryCount);
+        stationaryCount = delta.stationaryCount;
+
+        removedCursors.copyFrom(delta.removedCursors);
+        previousVersion = delta.previousVersion;
+        version = delta.version;
+    }
+
+    /**
+     * States whether the delta is frozen, that is whether it can no longer be modified.
+     *
+     * @return True if the delta is frozen, false otherwise.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Freezes the delta, including its removed cursors, so that any further modification fails.
+     */
+    void freeze() {
+        frozen = true;
+        removedCursors.freeze();
+    }
+
+    /**
+     * Makes sure that the delta can still be modified.
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Delta is frozen because it is shared by an event: " + this);
+        }
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "CursorDelta[version=" + previousVersion + "->" + version + ", added=" + toString(addedIndexes,
+                addedCount) + ", updated=" + toString(updatedIndexes, updatedCount) + ", stationary=" +
+                toString(stationaryIndexes, stationaryCount) + ", removed=" + removedCursors + "]";
+    }
+
+    /**
+     * Formats the specified index set.
+     *
+     * @param indexes Indexes.
+     * @param count   Number of meaningful indexes.
+     *
+     * @return Formatted index set.
+     */
+    private static String toString(int[] indexes, int count) {
+        return Arrays.toString(Arrays.copyOf(indexes, count));
+    }
+}
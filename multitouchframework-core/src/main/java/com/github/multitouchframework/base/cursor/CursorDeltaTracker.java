@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.cursor;
+
+/**
+ * Helper computing the deltas between the consecutive frames of cursors of a user on a touch target.
+ * <p/>
+ * It is meant to be used by the blocks producing cursor update events, so that the delta is computed once, and then
+ * used by all the next blocks.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @see CursorDelta
+ */
+public final class CursorDeltaTracker {
+
+    /**
+     * Cursors of the previous frame.
+     */
+    private final CursorFrame previousCursors = new CursorFrame();
+
+    /**
+     * Delta reused for each frame.
+     */
+    private final CursorDelta delta = new CursorDelta();
+
+    /**
+     * Version of the state of the cursors of the previous frame.
+     */
+    private long version = CursorDelta.newVersion();
+
+    /**
+     * Computes the delta between the previous frame and the specified frame, which becomes the previous frame.
+     * <p/>
+     * The returned delta is reused for the next frame, so it must be copied if the event holding it does not copy it.
+     *
+     * @param cursors New frame of cursors.
+     *
+     * @return Delta between the previous frame and the new frame.
+     */
+    public CursorDelta update(CursorFrame cursors) {
+        delta.compute(previousCursors, cursors);
+        version = delta.advanceVersion(version);
+        previousCursors.copyFrom(cursors);
+        return delta;
+    }
+
+    /**
+     * Gets the cursors of the previous frame.
+     * <p/>
+     * The frame must not be modified.
+     *
+     * @return Cursors of the previous frame.
+     */
+    public CursorFrame getPreviousCursors() {
+        return previousCursors;
+    }
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.cursor;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Container of cursors stored as parallel arrays of IDs and coordinates.
+ * <p/>
+ * Compared to a collection of {@link Cursor}s, this allows the blocks to process the cursors with simple indexed loops
+ * over primitive arrays, without any iterator and without any object per cursor. For instance:
+ * <pre>
+ * int[] xs = frame.getXs();
+ * int sumX = 0;
+ * for (int i = 0; i &lt; frame.size(); i++) {
+ *     sumX += xs[i];
+ * }
+ * </pre>
+ * A read-only {@link Collection} view is also provided for compatibility (see {@link #asCollection()}). The cursor
+ * objects of this view are created lazily, only for the blocks using it.
+ * <p/>
+ * Frames are mutable so that they can be reused by the blocks producing them. Regular (non-pooled) events hold a frozen
+ * copy of the frame given at creation, which is an immutable snapshot that can be shared by any number of blocks and
+ * threads, and which is not copied again when given to another event. The frame of a pooled event, however, is not
+ * frozen and must no longer be modified once the event has been forwarded.
+ * <p/>
+ * This class is not thread-safe, except for reading a frozen frame.
+ *
+ * @see CursorUpdateEvent#getCursorFrame()
+ */
+public final class CursorFrame {
+
+    /**
+     * Read-only view of the cursors of the frame.
+     */
+    private class CursorView extends AbstractCollection<Cursor> {
+
+        /**
+         * @see AbstractCollection#iterator()
+         */
+        @Override
+        public Iterator<Cursor> iterator() {
+            return new Iterator<Cursor>() {
+
+                /**
+                 * Index of the next cursor to be returned.
+                 */
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Cursor next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return getCursor(next++);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("Cursor frame view is read-only");
+                }
+            };
+        }
+
+        /**
+         * @see AbstractCollection#size()
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Default initial capacity of the frame.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * IDs of the cursors.
+     */
+    private long[] ids;
+
+    /**
+     * X coordinates of the cursors.
+     */
+    private int[] xs;
+
+    /**
+     * Y coordinates of the cursors.
+     */
+    private int[] ys;
+
+    /**
+     * Cursor objects already created for the collection view, or null if none has been created yet.
+     */
+    private Cursor[] cursors = null;
+
+    /**
+     * Number of cursors in the frame.
+     */
+    private int size = 0;
+
+    /**
+     * Read-only view of the cursors, lazily created.
+     */
+    private Collection<Cursor> cursorView = null;
+
+    /**
+     * True if the frame can no longer be modified.
+     */
+    private boolean frozen = false;
+
+    /**
+     * Default constructor.
+     */
+    public CursorFrame() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor specifying the initial capacity of the frame.
+     *
+     * @param capacity Initial number of cursors that can be held without growing the arrays.
+     */
+    public CursorFrame(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        ids = new long[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+    }
+
+    /**
+     * Constructor creating a copy of the specified frame.
+     *
+     * @param frame Frame to be copied.
+     */
+    public CursorFrame(CursorFrame frame) {
+        this(frame.size);
+        copyFrom(frame);
+    }
+
+    /**
+     * Constructor creating a frame holding the specified cursors.
+     *
+     * @param cursors Cursors to be copied to the frame.
+     */
+    public CursorFrame(Collection<Cursor> cursors) {
+        this(cursors.size());
+        for (Cursor cursor : cursors) {
+            add(cursor);
+        }
+    }
+
+    /**
+     * Gets the number of cursors in the frame.
+     *
+     * @return Cursor count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * States whether the frame holds no cursor.
+     *
+     * @return True if the frame is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the ID of the specified cursor.
+     *
+     * @param index Index of the cursor, between 0 and {@link #size()} excluded.
+     *
+     * @return Cursor ID.
+     */
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Gets the X coordinate of the specified cursor.
+     *
+     * @param index Index of the cursor, between 0 and {@link #size()} excluded.
+     *
+     * @return X coordinate of the cursor.
+     */
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Gets the Y coordinate of the specified cursor.
+     *
+     * @param index Index of the cursor, between 0 and {@link #size()} excluded.
+     *
+     * @return Y coordinate of the cursor.
+     */
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Gets the array of cursor IDs backing the frame, for tight loops.
+     * <p/>
+     * Only the first {@link #size()} elements are meaningful. The array must not be modified, and it may be replaced
+     * when cursors are added to the frame.
+     *
+     * @return Cursor IDs.
+     */
+    public long[] getIds() {
+        return ids;
+    }
+
+    /**
+     * Gets the array of X coordinates backing the frame, for tight loops.
+     * <p/>
+     * Only the first {@link #size()} elements are meaningful. The array must not be modified, and it may be replaced
+     * when cursors are added to the frame.
+     *
+     * @return X coordinates of the cursors.
+     */
+    public int[] getXs() {
+        return xs;
+    }
+
+    /**
+     * Gets the array of Y coordinates backing the frame, for tight loops.
+     * <p/>
+     * Only the first {@link #size()} elements are meaningful. The array must not be modified, and it may be replaced
+     * when cursors are added to the frame.
+     *
+     * @return Y coordinates of the cursors.
+     */
+    public int[] getYs() {
+        return ys;
+    }
+
+    /**
+     * Gets the specified cursor as an object.
+     * <p/>
+     * The cursor object is created on the first call and then reused, as long as the cursor is not modified.
+     *
+     * @param index Index of the cursor, between 0 and {@link #size()} excluded.
+     *
+     * @return Cursor object.
+     */
+    public Cursor getCursor(int index) {
+        if (cursors == null) {
+            cursors = new Cursor[ids.length];
+        }
+
+        Cursor cursor = cursors[index];
+        if (cursor == null) {
+            cursor = new Cursor(ids[index], xs[index], ys[index]);
+            cursors[index] = cursor;
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Finds the index of the cursor of the specified ID.
+     * <p/>
+     * Few cursors are expected in a frame, so a linear search is performed.
+     *
+     * @param id Cursor ID.
+     *
+     * @return Index of the cursor, or -1 if the frame holds no cursor with this ID.
+     */
+    public int indexOf(long id) {
+        int index = -1;
+
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                index = i;
+                break;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * States whether the specified frame holds the same cursor IDs as this frame, whatever their order.
+     *
+     * @param frame Frame to be compared to.
+     *
+     * @return True if both frames hold the same cursor IDs, false otherwise.
+     */
+    public boolean hasSameIds(CursorFrame frame) {
+        boolean same = (size == frame.size);
+
+        for (int i = 0; same && (i < size); i++) {
+            // Fast path for cursors in the same order
+            same = (ids[i] == frame.ids[i]) || (frame.indexOf(ids[i]) >= 0);
+        }
+
+        return same;
+    }
+
+    /**
+     * Adds a cursor at the end of the frame.
+     *
+     * @param id Cursor ID.
+     * @param x  X coordinate of the cursor.
+     * @param y  Y coordinate of the cursor.
+     */
+    public void add(long id, int x, int y) {
+        checkNotFrozen();
+        if (size == ids.length) {
+            grow(size + 1);
+        }
+        ids[size] = id;
+        xs[size] = x;
+        ys[size] = y;
+        if (cursors != null) {
+            cursors[size] = null;
+        }
+        size++;
+    }
+
+    /**
+     * Adds the specified cursor at the end of the frame.
+     *
+     * @param cursor Cursor to be added.
+     */
+    public void add(Cursor cursor) {
+        add(cursor.getId(), cursor.getX(), cursor.getY());
+
+        // Reuse the object for the collection view
+        if (cursors == null) {
+            cursors = new Cursor[ids.length];
+        }
+        cursors[size - 1] = cursor;
+    }
+
+    /**
+     * Changes the coordinates of the specified cursor.
+     *
+     * @param index Index of the cursor, between 0 and {@link #size()} excluded.
+     * @param x     New X coordinate of the cursor.
+     * @param y     New Y coordinate of the cursor.
+     */
+    public void set(int index, int x, int y) {
+        checkNotFrozen();
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        if ((xs[index] != x) || (ys[index] != y)) {
+            xs[index] = x;
+            ys[index] = y;
+            if (cursors != null) {
+                cursors[index] = null;
+            }
+        }
+    }
+
+    /**
+     * Removes the specified cursor, keeping the order of the other cursors.
+     *
+     * @param index Index of the cursor, between 0 and {@link #size()} excluded.
+     */
+    public void remove(int index) {
+        checkNotFrozen();
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        int movedCount = size - index - 1;
+        System.arraycopy(ids, index + 1, ids, index, movedCount);
+        System.arraycopy(xs, index + 1, xs, index, movedCount);
+        System.arraycopy(ys, index + 1, ys, index, movedCount);
+        if (cursors != null) {
+            System.arraycopy(cursors, index + 1, cursors, index, movedCount);
+            cursors[size - 1] = null;
+        }
+        size--;
+    }
+
+    /**
+     * Removes all cursors from the frame, keeping its capacity.
+     */
+    public void clear() {
+        checkNotFrozen();
+        if (cursors != null) {
+            Arrays.fill(cursors, 0, size, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Replaces the content of this frame by the content of the specified frame.
+     *
+     * @param frame Frame to be copied.
+     */
+    public void copyFrom(CursorFrame frame) {
+        checkNotFrozen();
+        clear();
+        if (ids.length < frame.size) {
+            grow(frame.size);
+        }
+        System.arraycopy(frame.ids, 0, ids, 0, frame.size);
+        System.arraycopy(frame.xs, 0, xs, 0, frame.size);
+        System.arraycopy(frame.ys, 0, ys, 0, frame.size);
+        size = frame.size;
+    }
+
+    /**
+     * States whether the frame is frozen, that is whether it can no longer be modified.
+     *
+     * @return True if the frame is frozen, false otherwise.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Freezes the frame so that any further modification fails.
+     * <p/>
+     * A frozen frame is safe to be read concurrently as long as it was safely published to the reading threads, for
+     * instance through a final field. The cursor objects of the collection view may still be created lazily, but they
+     * are immutable and recreated if a thread does not see the ones created by another thread.
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Makes sure that the frame can still be modified.
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Frame is frozen because it is shared by an event: " + this);
+        }
+    }
+
+    /**
+     * Gets a read-only collection view of the cursors of the frame.
+     * <p/>
+     * The view reflects the changes made to the frame.
+     *
+     * @return Collection of cursors.
+     */
+    public Collection<Cursor> asCollection() {
+        if (cursorView == null) {
+            cursorView = new CursorView();
+        }
+        return cursorView;
+    }
+
+    /**
+     * Grows the arrays so that they can hold at least the specified number of cursors.
+     *
+     * @param minCapacity Minimum capacity.
+     */
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, Math.max(DEFAULT_CAPACITY, ids.length * 2));
+        ids = Arrays.copyOf(ids, newCapacity);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        if (cursors != null) {
+            cursors = Arrays.copyOf(cursors, newCapacity);
+        }
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CursorFrame[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(ids[i]).append('(').append(xs[i]).append(',').append(ys[i]).append(')');
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -27,30 +27,62 @@ package com.github.multitouchframework.base.cursor;
 
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TracedEvent;
 
 import java.util.Collection;
 
 /**
  * Event representing updates of cursor positions.
+ * <p/>
+ * The cursors can be accessed either as a {@link CursorFrame}, which is the native representation for the blocks of the
+ * framework, or as a collection of {@link Cursor}s, which is a view of the frame.
+ * <p/>
+ * The event may also carry the changes of the cursors since the previous event for the same user and touch target, as
+ * a {@link CursorDelta}, so that the blocks can do work proportional to the number of changes.
+ * <p/>
+ * The event holds a frozen frame and a frozen delta, so that it is an immutable snapshot. It can then be shared by all
+ * the next blocks, including the ones holding it beyond the call in which they received it or passing it to other
+ * threads, without being copied. The frame and the delta given at creation are copied, unless they are already frozen,
+ * for instance because they are taken from another event, in which case they are shared.
+ * <p/>
+ * The only exception is the {@link PooledCursorUpdateEvent} sub-class, which reuses the same state and fills and
+ * recycles it itself: a pooled event is only immutable while it is retained, and its frame and delta are never frozen.
  *
- * @see TouchEvent
+ * @see TracedEvent
+ * @see PooledCursorUpdateEvent
  */
-public class CursorUpdateEvent implements TouchEvent {
+public class CursorUpdateEvent implements TracedEvent {
 
     /**
      * ID of the user touching the surface.
      */
-    private final long userId;
+    private long userId;
 
     /**
      * Touchable target for which the event is produced.
      */
-    private final TouchTarget target;
+    private TouchTarget target;
 
     /**
      * Cursors on the associated target.
      */
-    private final Collection<Cursor> cursors;
+    private final CursorFrame cursorFrame;
+
+    /**
+     * Changes of the cursors since the previous event for the same user and touch target, or null if unknown.
+     */
+    private CursorDelta cursorDelta;
+
+    /**
+     * Time at which the input data was received by the input source, in nanoseconds, or
+     * {@link TracedEvent#NO_RECEIVE_TIME}.
+     */
+    private long receiveTime;
+
+    /**
+     * Sequence number given by the input source to the input data, or {@link TracedEvent#NO_SEQUENCE_NUMBER}.
+     */
+    private long sequenceNumber;
 
     /**
      * Constructor specifying the ID of the user touching the surface, the touched target and the cursors representing
@@ -61,9 +93,156 @@ public class CursorUpdateEvent implements TouchEvent {
      * @param cursors Cursors on the associated touch target.
      */
     public CursorUpdateEvent(long userId, TouchTarget target, Collection<Cursor> cursors) {
+        this(userId, target, cursors, TracedEvent.NO_RECEIVE_TIME, TracedEvent.NO_SEQUENCE_NUMBER);
+    }
+
+    /**
+     * Constructor specifying the ID of the user touching the surface, the touched target and the cursors representing
+     * the points of contacts with the surface, as well as the tracing information.
+     * <p/>
+     * The cursors are copied, so the collection can be modified by the caller after this call.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param cursors        Cursors on the associated touch target.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     */
+    public CursorUpdateEvent(long userId, TouchTarget target, Collection<Cursor> cursors, long receiveTime,
+                             long sequenceNumber) {
+        this(userId, target, frozen(new CursorFrame(cursors)), null, receiveTime, sequenceNumber);
+    }
+
+    /**
+     * Constructor specifying the ID of the user touching the surface, the touched target and the frame of cursors
+     * representing the points of contacts with the surface, as well as the tracing information.
+     * <p/>
+     * The frame is copied unless it is frozen, so the caller can still modify it after this call.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param cursorFrame    Cursors on the associated touch target.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     */
+    public CursorUpdateEvent(long userId, TouchTarget target, CursorFrame cursorFrame, long receiveTime,
+                             long sequenceNumber) {
+        this(userId, target, cursorFrame, null, receiveTime, sequenceNumber);
+    }
+
+    /**
+     * Constructor specifying the ID of the user touching the surface, the touched target, the frame of cursors
+     * representing the points of contacts with the surface and their changes since the previous event, as well as the
+     * tracing information.
+     * <p/>
+     * The frame and the delta are copied unless they are frozen, so the caller can still modify them after this call
+     * (see {@link CursorFrame#isFrozen()} and {@link CursorDelta#isFrozen()}).
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param cursorFrame    Cursors on the associated touch target.
+     * @param cursorDelta    Changes of the cursors since the previous event for the same user and touch target, or null
+     *                       if unknown.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     */
+    public CursorUpdateEvent(long userId, TouchTarget target, CursorFrame cursorFrame, CursorDelta cursorDelta,
+                             long receiveTime, long sequenceNumber) {
+        this.userId = userId;
+        this.target = target;
+        this.cursorFrame = frozenCopy(cursorFrame);
+        this.cursorDelta = frozenCopy(cursorDelta);
+        this.receiveTime = receiveTime;
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Constructor for pooled events, specifying the frame in which the cursors are stored.
+     * <p/>
+     * The frame is not frozen, so that the sub-class can fill and recycle it.
+     *
+     * @param cursorStorage Frame in which the cursors of the event are to be stored.
+     *
+     * @see PooledCursorUpdateEvent
+     */
+    CursorUpdateEvent(CursorFrame cursorStorage) {
+        userId = 0;
+        target = null;
+        cursorFrame = cursorStorage;
+        cursorDelta = null;
+        receiveTime = TracedEvent.NO_RECEIVE_TIME;
+        sequenceNumber = TracedEvent.NO_SEQUENCE_NUMBER;
+    }
+
+    /**
+     * Freezes the specified frame, which must not be referenced by the caller afterwards.
+     *
+     * @param cursorFrame Frame to be frozen.
+     *
+     * @return Frozen frame.
+     */
+    private static CursorFrame frozen(CursorFrame cursorFrame) {
+        cursorFrame.freeze();
+        return cursorFrame;
+    }
+
+    /**
+     * Gets a frozen copy of the specified frame, or the frame itself if it is already frozen.
+     *
+     * @param cursorFrame Frame to be copied.
+     *
+     * @return Frozen frame.
+     */
+    private static CursorFrame frozenCopy(CursorFrame cursorFrame) {
+        CursorFrame frozenFrame = cursorFrame;
+        if (!cursorFrame.isFrozen()) {
+            frozenFrame = frozen(new CursorFrame(cursorFrame));
+        }
+        return frozenFrame;
+    }
+
+    /**
+     * Gets a frozen copy of the specified delta, or the delta itself if it is already frozen.
+     *
+     * @param cursorDelta Delta to be copied, or null if unknown.
+     *
+     * @return Frozen delta, or null if unknown.
+     */
+    private static CursorDelta frozenCopy(CursorDelta cursorDelta) {
+        CursorDelta frozenDelta = cursorDelta;
+        if ((cursorDelta != null) && !cursorDelta.isFrozen()) {
+            frozenDelta = new CursorDelta(cursorDelta);
+            frozenDelta.freeze();
+        }
+        return frozenDelta;
+    }
+
+    /**
+     * Re-initializes the ID of the user, the touch target and the tracing information of a pooled event.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced, or null to release the previous one.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     *
+     * @see PooledCursorUpdateEvent
+     */
+    void setPooledState(long userId, TouchTarget target, long receiveTime, long sequenceNumber) {
         this.userId = userId;
         this.target = target;
-        this.cursors = cursors;
+        this.receiveTime = receiveTime;
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Sets the changes of the cursors of a pooled event.
+     *
+     * @param cursorDelta Storage of the changes of the cursors, or null if unknown.
+     *
+     * @see PooledCursorUpdateEvent
+     */
+    void setPooledCursorDelta(CursorDelta cursorDelta) {
+        this.cursorDelta = cursorDelta;
     }
 
     /**
@@ -88,6 +267,45 @@ public class CursorUpdateEvent implements TouchEvent {
      * @return Cursors on the associated target.
      */
     public Collection<Cursor> getCursors() {
-        return cursors;
+        return cursorFrame.asCollection();
+    }
+
+    /**
+     * Gets the cursors corresponding to the points of contacts with the surface on the associated target, as a frame.
+     * <p/>
+     * The frame must not be modified.
+     *
+     * @return Cursors on the associated target.
+     */
+    public CursorFrame getCursorFrame() {
+        return cursorFrame;
+    }
+
+    /**
+     * Gets the changes of the cursors since the previous event for the same user and touch target.
+     * <p/>
+     * The delta must not be modified. Before using it, the blocks are expected to check that it applies to the last
+     * state of cursors they know (see {@link CursorDelta#appliesTo(long)}).
+     *
+     * @return Changes of the cursors, or null if unknown.
+     */
+    public CursorDelta getCursorDelta() {
+        return cursorDelta;
+    }
+
+    /**
+     * @see TracedEvent#getReceiveTime()
+     */
+    @Override
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    /**
+     * @see TracedEvent#getSequenceNumber()
+     */
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
     }
 }
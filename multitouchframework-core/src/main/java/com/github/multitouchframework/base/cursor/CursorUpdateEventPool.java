@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.cursor;
+
+import com.github.multitouchframework.api.TouchTarget;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe pool of {@link PooledCursorUpdateEvent}s, meant to remove the allocation of events and of their cursor
+ * storage on the processing path.
+ * <p/>
+ * Blocks producing cursor update events can be given a pool to opt in. Events are acquired with a reference count of
+ * one, filled, forwarded to the next blocks and then released by their producer. They return to the pool once all the
+ * blocks holding them have released them too.
+ * <p/>
+ * When the pool is empty, new events are simply created. When the pool is full, the released events are left to the
+ * garbage collector.
+ *
+ * @see PooledCursorUpdateEvent
+ * @see com.github.multitouchframework.base.support.ReferenceCounted
+ */
+public class CursorUpdateEventPool {
+
+    /**
+     * Default maximum number of idle events kept in the pool.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Idle events, used as a stack.
+     */
+    private final PooledCursorUpdateEvent[] idleEvents;
+
+    /**
+     * Number of idle events in the stack.
+     */
+    private int idleCount = 0;
+
+    /**
+     * Number of events created by the pool so far.
+     */
+    private final AtomicLong createdCount = new AtomicLong(0);
+
+    /**
+     * Default constructor.
+     *
+     * @see #DEFAULT_CAPACITY
+     */
+    public CursorUpdateEventPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor specifying the maximum number of idle events kept in the pool.
+     *
+     * @param capacity Maximum number of idle events.
+     */
+    public CursorUpdateEventPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be strictly positive: " + capacity);
+        }
+        idleEvents = new PooledCursorUpdateEvent[capacity];
+    }
+
+    /**
+     * Gets the maximum number of idle events kept in the pool.
+     *
+     * @return Capacity of the pool.
+     */
+    public int getCapacity() {
+        return idleEvents.length;
+    }
+
+    /**
+     * Gets the number of events currently idle in the pool.
+     *
+     * @return Number of idle events.
+     */
+    public synchronized int getIdleCount() {
+        return idleCount;
+    }
+
+    /**
+     * Gets the number of events that had to be created so far because the pool was empty.
+     *
+     * @return Number of created events.
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * Acquires an event holding no cursor.
+     * <p/>
+     * The caller owns the only reference to the event, and must release it once it has been processed.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     *
+     * @return Event to be filled with cursors.
+     */
+    public PooledCursorUpdateEvent acquire(long userId, TouchTarget target, long receiveTime, long sequenceNumber) {
+        PooledCursorUpdateEvent event = null;
+
+        synchronized (this) {
+            if (idleCount > 0) {
+                idleCount--;
+                event = idleEvents[idleCount];
+                idleEvents[idleCount] = null;
+            }
+        }
+
+        if (event == null) {
+            event = new PooledCursorUpdateEvent(this);
+            createdCount.incrementAndGet();
+        }
+        event.reset(userId, target, receiveTime, sequenceNumber);
+
+        return event;
+    }
+
+    /**
+     * Acquires an event holding the specified cursors.
+     * <p/>
+     * The caller owns the only reference to the event, and must release it once it has been processed.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param cursors        Cursors to be copied to the event.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     *
+     * @return Event holding the cursors.
+     */
+    public PooledCursorUpdateEvent acquire(long userId, TouchTarget target, Collection<Cursor> cursors,
+                                           long receiveTime, long sequenceNumber) {
+        PooledCursorUpdateEvent event = acquire(userId, target, receiveTime, sequenceNumber);
+        event.addCursors(cursors);
+        return event;
+    }
+
+    /**
+     * Acquires an event holding a copy of the specified frame of cursors.
+     * <p/>
+     * The caller owns the only reference to the event, and must release it once it has been processed.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param cursors        Frame of cursors to be copied to the event.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     *
+     * @return Event holding the cursors.
+     */
+    public PooledCursorUpdateEvent acquire(long userId, TouchTarget target, CursorFrame cursors, long receiveTime,
+                                           long sequenceNumber) {
+        PooledCursorUpdateEvent event = acquire(userId, target, receiveTime, sequenceNumber);
+        event.setCursors(cursors);
+        return event;
+    }
+
+    /**
+     * Acquires an event holding a copy of the specified frame of cursors and of their changes.
+     * <p/>
+     * The caller owns the only reference to the event, and must release it once it has been processed.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param cursors        Frame of cursors to be copied to the event.
+     * @param delta          Changes of the cursors to be copied to the event, or null if unknown.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     *
+     * @return Event holding the cursors and their changes.
+     */
+    public PooledCursorUpdateEvent acquire(long userId, TouchTarget target, CursorFrame cursors, CursorDelta delta,
+                                           long receiveTime, long sequenceNumber) {
+        PooledCursorUpdateEvent event = acquire(userId, target, cursors, receiveTime, sequenceNumber);
+        event.setCursorDelta(delta);
+        return event;
+    }
+
+    /**
+     * Puts the specified event back in the pool, if there is room for it.
+     *
+     * @param event Event that is no longer referenced.
+     */
+    synchronized void recycle(PooledCursorUpdateEvent event) {
+        if (idleCount < idleEvents.length) {
+            idleEvents[idleCount] = event;
+            idleCount++;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.cursor;
+
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TracedEvent;
+import com.github.multitouchframework.base.support.ReferenceCounted;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cursor update event provided by a {@link CursorUpdateEventPool}, whose content and cursor storage are recycled once
+ * it is no longer referenced.
+ * <p/>
+ * The producer fills the event right after acquiring it, and must not modify it once it has been forwarded to the next
+ * blocks. Blocks holding the event beyond the call in which they received it must retain it, and release it when done.
+ * In particular, the cursors, the frame and the delta of the event must not be used after the event has been released.
+ * <p/>
+ * Unlike the other cursor update events, the frame and the delta of a pooled event are not frozen, because they are
+ * recycled.
+ *
+ * @see CursorUpdateEventPool
+ * @see ReferenceCounted
+ */
+public class PooledCursorUpdateEvent extends CursorUpdateEvent implements ReferenceCounted {
+
+    /**
+     * Pool to which the event is returned once it is no longer referenced.
+     */
+    private final CursorUpdateEventPool pool;
+
+    /**
+     * Number of references to this event.
+     */
+    private final AtomicInteger referenceCount = new AtomicInteger(0);
+
+    /**
+     * Storage of the cursors, kept when the event is recycled.
+     */
+    private final CursorFrame cursorStorage;
+
+    /**
+     * Storage of the changes of the cursors, kept when the event is recycled.
+     */
+    private final CursorDelta cursorDeltaStorage = new CursorDelta();
+
+    /**
+     * Constructor specifying the pool to which the event belongs.
+     *
+     * @param pool Pool to which the event is returned once it is no longer referenced.
+     */
+    PooledCursorUpdateEvent(CursorUpdateEventPool pool) {
+        this(pool, new CursorFrame());
+    }
+
+    /**
+     * Constructor specifying the pool to which the event belongs and the storage of the cursors.
+     *
+     * @param pool          Pool to which the event is returned once it is no longer referenced.
+     * @param cursorStorage Storage of the cursors, kept when the event is recycled.
+     */
+    private PooledCursorUpdateEvent(CursorUpdateEventPool pool, CursorFrame cursorStorage) {
+        super(cursorStorage);
+        this.pool = pool;
+        this.cursorStorage = cursorStorage;
+    }
+
+    /**
+     * Re-initializes the event when it is acquired from the pool.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     */
+    void reset(long userId, TouchTarget target, long receiveTime, long sequenceNumber) {
+        setPooledState(userId, target, receiveTime, sequenceNumber);
+        cursorStorage.clear();
+        setPooledCursorDelta(null);
+        referenceCount.set(1);
+    }
+
+    /**
+     * Adds the specified cursor to the event.
+     * <p/>
+     * This method is meant to be called by the producer only, before forwarding the event.
+     *
+     * @param cursor Cursor to be added.
+     */
+    public void addCursor(Cursor cursor) {
+        cursorStorage.add(cursor);
+    }
+
+    /**
+     * Adds a cursor to the event.
+     * <p/>
+     * This method is meant to be called by the producer only, before forwarding the event.
+     *
+     * @param id Cursor ID.
+     * @param x  X coordinate of the cursor.
+     * @param y  Y coordinate of the cursor.
+     */
+    public void addCursor(long id, int x, int y) {
+        cursorStorage.add(id, x, y);
+    }
+
+    /**
+     * Adds the specified cursors to the event.
+     * <p/>
+     * This method is meant to be called by the producer only, before forwarding the event.
+     *
+     * @param cursors Cursors to be added.
+     */
+    public void addCursors(Collection<Cursor> cursors) {
+        for (Cursor cursor : cursors) {
+            cursorStorage.add(cursor);
+        }
+    }
+
+    /**
+     * Replaces the cursors of the event by a copy of the cursors of the specified frame.
+     * <p/>
+     * This method is meant to be called by the producer only, before forwarding the event.
+     *
+     * @param cursors Frame of cursors to be copied.
+     */
+    public void setCursors(CursorFrame cursors) {
+        cursorStorage.copyFrom(cursors);
+    }
+
+    /**
+     * Replaces the changes of the cursors of the event by a copy of the specified delta.
+     * <p/>
+     * This method is meant to be called by the producer only, before forwarding the event.
+     *
+     * @param delta Changes of the cursors to be copied, or null if unknown.
+     */
+    public void setCursorDelta(CursorDelta delta) {
+        if (delta == null) {
+            setPooledCursorDelta(null);
+        } else {
+            cursorDeltaStorage.copyFrom(delta);
+            setPooledCursorDelta(cursorDeltaStorage);
+        }
+    }
+
+    /**
+     * @see ReferenceCounted#retain()
+     */
+    @Override
+    public void retain() {
+        int count;
+        do {
+            count = referenceCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Event has already been recycled");
+            }
+        } while (!referenceCount.compareAndSet(count, count + 1));
+    }
+
+    /**
+     * @see ReferenceCounted#release()
+     */
+    @Override
+    public void release() {
+        int count;
+        do {
+            count = referenceCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Event has already been recycled");
+            }
+        } while (!referenceCount.compareAndSet(count, count - 1));
+
+        if (count == 1) {
+            // Do not keep the cursor objects and the target alive while the event is idle
+            setPooledState(0, null, TracedEvent.NO_RECEIVE_TIME, TracedEvent.NO_SEQUENCE_NUMBER);
+            cursorStorage.clear();
+            cursorDeltaStorage.clear();
+            setPooledCursorDelta(null);
+            pool.recycle(this);
+        }
+    }
+
+    /**
+     * @see ReferenceCounted#getReferenceCount()
+     */
+    @Override
+    public int getReferenceCount() {
+        return referenceCount.get();
+    }
+}
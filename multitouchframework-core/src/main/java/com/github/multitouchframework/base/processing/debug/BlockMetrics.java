@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.debug;
+
+import com.github.multitouchframework.base.support.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics collected for a single processing block, typically by an {@link InstrumentedListener} or an {@link
+ * InstrumentedBlock}.
+ *
+ * @see MetricsRegistry
+ */
+public final class BlockMetrics {
+
+    /**
+     * Name of the block.
+     */
+    private final String name;
+
+    /**
+     * Flag indicating whether the block forwards events to next blocks.
+     */
+    private final boolean forwarding;
+
+    /**
+     * Histogram of the time taken by the block to process an event, in nanoseconds.
+     */
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    /**
+     * Number of events received by the block.
+     */
+    private final AtomicLong receivedCount = new AtomicLong(0);
+
+    /**
+     * Number of events forwarded by the block to its next blocks.
+     */
+    private final AtomicLong forwardedCount = new AtomicLong(0);
+
+    /**
+     * Time at which the collection of the metrics started, in nanoseconds.
+     */
+    private volatile long startTime = System.nanoTime();
+
+    /**
+     * Constructor specifying the name of the block and whether it forwards events to next blocks.
+     *
+     * @param name       Name of the block.
+     * @param forwarding True if the block forwards events to next blocks, false if it is at the end of the chain.
+     */
+    BlockMetrics(String name, boolean forwarding) {
+        this.name = name;
+        this.forwarding = forwarding;
+    }
+
+    /**
+     * Gets the name of the block.
+     *
+     * @return Name of the block.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * States whether the block forwards events to next blocks.
+     *
+     * @return True if the block forwards events to next blocks, false if it is at the end of the chain.
+     */
+    public boolean isForwarding() {
+        return forwarding;
+    }
+
+    /**
+     * Gets the histogram of the time taken by the block to process an event, in nanoseconds.
+     * <p/>
+     * This does not include the time taken by the next blocks, when they are called on the same thread.
+     *
+     * @return Latency histogram.
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    /**
+     * Gets the number of events received by the block.
+     *
+     * @return Received event count.
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * Gets the number of events forwarded by the block to its next blocks.
+     * <p/>
+     * Note that an event forwarded to several next blocks is only counted once.
+     *
+     * @return Forwarded event count.
+     */
+    public long getForwardedCount() {
+        return forwardedCount.get();
+    }
+
+    /**
+     * Gets the number of received events that were not forwarded by the block.
+     * <p/>
+     * This is only relevant for forwarding blocks producing at most one event for each event received, like filters.
+     *
+     * @return Dropped event count, or 0 if the block is at the end of the chain.
+     */
+    public long getDroppedCount() {
+        return forwarding ? Math.max(0, receivedCount.get() - forwardedCount.get()) : 0;
+    }
+
+    /**
+     * Gets the average number of events received per second since the collection of the metrics started.
+     *
+     * @return Event rate in events per second.
+     */
+    public double getEventRate() {
+        double elapsedSeconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        return (elapsedSeconds > 0) ? (receivedCount.get() / elapsedSeconds) : 0;
+    }
+
+    /**
+     * Clears all metrics and restarts their collection.
+     */
+    public void reset() {
+        latencyHistogram.reset();
+        receivedCount.set(0);
+        forwardedCount.set(0);
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Records the reception and processing of an event.
+     *
+     * @param latency Time taken by the block to process the event, in nanoseconds.
+     */
+    void recordReceived(long latency) {
+        receivedCount.incrementAndGet();
+        latencyHistogram.record(latency);
+    }
+
+    /**
+     * Records the forwarding of an event to the next blocks.
+     */
+    void recordForwarded() {
+        forwardedCount.incrementAndGet();
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s: %d received (%.1f/s)", name, getReceivedCount(), getEventRate()));
+        if (forwarding) {
+            builder.append(String.format(", %d forwarded, %d dropped", getForwardedCount(), getDroppedCount()));
+        }
+        builder.append(String.format(", latency p50=%dus p99=%dus p999=%dus max=%dus",
+                toMicros(latencyHistogram.getValueAtPercentile(50)),
+                toMicros(latencyHistogram.getValueAtPercentile(99)),
+                toMicros(latencyHistogram.getValueAtPercentile(99.9)), toMicros(latencyHistogram.getMax())));
+        if (latencyHistogram.getNegativeCount() > 0) {
+            builder.append(String.format(", %d negative latencies ignored", latencyHistogram.getNegativeCount()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Converts the specified nanoseconds into microseconds.
+     *
+     * @param nanos Time in nanoseconds.
+     *
+     * @return Time in microseconds.
+     */
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.debug;
+
+import com.github.multitouchframework.api.TouchListener;
+import com.github.multitouchframework.api.TracedEvent;
+
+/**
+ * Touch listener measuring the time elapsed since the traced events it receives entered the processing chain.
+ * <p/>
+ * This listener is meant to be added at the end of a path of the processing chain, for instance after a gesture
+ * recognizer or after the scheduler moving the events to the Event Dispatch Thread, so that the measured latency
+ * includes all the filters, recognizers, schedulers and thread hops from the input source to the listener. The
+ * latencies are recorded in a {@link BlockMetrics} named after the path.
+ * <p/>
+ * Events that are not traced (for instance, created by the application without a receive time) are ignored. Events
+ * whose receive time is ahead of the clock, like the events replayed faster than real time by a {@link
+ * com.github.multitouchframework.base.processing.source.ReplaySource}, give negative latencies: they are counted
+ * separately by the latency histogram rather than recorded (see {@link
+ * com.github.multitouchframework.base.support.LatencyHistogram#getNegativeCount()}).
+ *
+ * @param <E> Type of traced events processed by this listener.
+ *
+ * @see TracedEvent
+ * @see MetricsRegistry
+ */
+public class EndToEndLatencySink<E extends TracedEvent> implements TouchListener<E> {
+
+    /**
+     * Registry in which the metrics are registered.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Metrics of the path ending with this listener.
+     */
+    private final BlockMetrics metrics;
+
+    /**
+     * Constructor specifying the name of the path ending with this listener, registering the metrics in the default
+     * registry.
+     *
+     * @param pathName Name of the path, for instance "tuio-to-drag-on-edt".
+     *
+     * @see MetricsRegistry#getDefault()
+     */
+    public EndToEndLatencySink(String pathName) {
+        this(MetricsRegistry.getDefault(), pathName);
+    }
+
+    /**
+     * Constructor specifying the registry and the name of the path ending with this listener.
+     *
+     * @param registry Registry in which the metrics are to be registered.
+     * @param pathName Name of the path, for instance "tuio-to-drag-on-edt".
+     */
+    public EndToEndLatencySink(MetricsRegistry registry, String pathName) {
+        this.registry = registry;
+        this.metrics = registry.register(pathName, false);
+    }
+
+    /**
+     * Gets the metrics of the path ending with this listener.
+     * <p/>
+     * The latency histogram holds the time elapsed between the reception of the events by the input source and their
+     * reception by this listener, in nanoseconds.
+     *
+     * @return Metrics of the path.
+     */
+    public BlockMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @see TouchListener#processTouchEvent(com.github.multitouchframework.api.TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(E event) {
+        if (registry.isRecording() && (event.getReceiveTime() != TracedEvent.NO_RECEIVE_TIME)) {
+            metrics.recordReceived(System.nanoTime() - event.getReceiveTime());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.debug;
+
+import com.github.multitouchframework.api.Chainable;
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.api.TouchListener;
+import com.github.multitouchframework.base.processing.filter.Filter;
+import com.github.multitouchframework.base.processing.gesture.GestureRecognizer;
+import com.github.multitouchframework.base.support.ListenerArray;
+
+/**
+ * Processing block decorating another processing block in order to measure the time it takes to process each event,
+ * and the number of events it forwards to its next blocks.
+ * <p/>
+ * Any block that is both a {@link TouchListener} and a {@link Chainable} can be decorated: filters, gesture
+ * recognizers, schedulers, etc. The next blocks are to be queued to this block instead of the wrapped block.
+ * <p/>
+ * When the next blocks are called on the same thread, the time they take is not included in the latency of the wrapped
+ * block, so that the latency of each block can be compared to the others.
+ * <p/>
+ * Note that a block decorated this way always forwards its events through this block, even if instrumentation is
+ * globally disabled. Filters and gesture recognizers should therefore rather be instrumented using
+ * {@link MetricsRegistry#instrument(String, Filter)} and
+ * {@link MetricsRegistry#instrument(String, GestureRecognizer)}, which do not decorate them at all in that case.
+ *
+ * @param <I> Type of touch event processed by the wrapped block.
+ * @param <O> Type of touch event forwarded by the wrapped block to the next blocks.
+ *
+ * @see MetricsRegistry
+ */
+public class InstrumentedBlock<I extends TouchEvent, O extends TouchEvent> extends InstrumentedListener<I> implements
+        Chainable<TouchListener<O>> {
+
+    /**
+     * Time spent in the next blocks by the current thread while the wrapped block processes an event.
+     */
+    private static class DownstreamTime {
+
+        /**
+         * Time spent in the next blocks, in nanoseconds.
+         */
+        private long time = 0;
+
+        /**
+         * Number of nested calls to the wrapped block on the current thread.
+         */
+        private int depth = 0;
+    }
+
+    /**
+     * Listener queued to the wrapped block, counting the forwarded events and passing them to the next blocks.
+     */
+    private class Forwarder implements TouchListener<O> {
+
+        /**
+         * @see TouchListener#processTouchEvent(TouchEvent)
+         */
+        @Override
+        public void processTouchEvent(O event) {
+            if (MetricsRegistry.ENABLED && registry.isRecording()) {
+                metrics.recordForwarded();
+
+                DownstreamTime downstream = downstreamTime.get();
+                if (downstream.depth > 0) {
+                    // Called from the wrapped block on the same thread
+                    long startTime = System.nanoTime();
+                    processWithNextBlocks(event);
+                    downstream.time += System.nanoTime() - startTime;
+                } else {
+                    // Called later by the wrapped block, for instance from another thread
+                    processWithNextBlocks(event);
+                }
+            } else {
+                processWithNextBlocks(event);
+            }
+        }
+    }
+
+    /**
+     * Time spent in the next blocks by each thread.
+     */
+    private final ThreadLocal<DownstreamTime> downstreamTime = new ThreadLocal<DownstreamTime>() {
+        @Override
+        protected DownstreamTime initialValue() {
+            return new DownstreamTime();
+        }
+    };
+
+    /**
+     * Blocks queued to this block.
+     * <p/>
+     * The blocks can be (de-)queued from any thread while events are being processed.
+     */
+    private final ListenerArray<TouchListener<O>> nextBlocks = new ListenerArray<TouchListener<O>>(TouchListener
+            .class);
+
+    /**
+     * Constructor specifying the name of the block and the block to be instrumented, registering the metrics in the
+     * default registry.
+     *
+     * @param name     Name of the block.
+     * @param delegate Block to be instrumented.
+     * @param <B>      Type of block to be instrumented.
+     *
+     * @see MetricsRegistry#getDefault()
+     */
+    public <B extends TouchListener<I> & Chainable<TouchListener<O>>> InstrumentedBlock(String name, B delegate) {
+        this(MetricsRegistry.getDefault(), name, delegate);
+    }
+
+    /**
+     * Constructor specifying the registry, the name of the block and the block to be instrumented.
+     *
+     * @param registry Registry in which the metrics are to be registered.
+     * @param name     Name of the block.
+     * @param delegate Block to be instrumented.
+     * @param <B>      Type of block to be instrumented.
+     */
+    public <B extends TouchListener<I> & Chainable<TouchListener<O>>> InstrumentedBlock(MetricsRegistry registry,
+                                                                                        String name, B delegate) {
+        super(registry, name, delegate, true);
+        delegate.queue(new Forwarder());
+    }
+
+    /**
+     * @see Chainable#queue(Object)
+     */
+    @Override
+    public void queue(TouchListener<O> nextBlock) {
+        nextBlocks.add(nextBlock);
+    }
+
+    /**
+     * @see Chainable#dequeue(Object)
+     */
+    @Override
+    public void dequeue(TouchListener<O> nextBlock) {
+        nextBlocks.remove(nextBlock);
+    }
+
+    /**
+     * Processes the specified event with the wrapped block, measuring the time it takes, excluding the time taken by
+     * the next blocks on the same thread.
+     *
+     * @see InstrumentedListener#processTouchEvent(TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(I event) {
+        if (MetricsRegistry.ENABLED && registry.isRecording()) {
+            DownstreamTime downstream = downstreamTime.get();
+            long savedTime = downstream.time;
+            downstream.time = 0;
+            downstream.depth++;
+
+            long startTime = System.nanoTime();
+            try {
+                getDelegate().processTouchEvent(event);
+            } finally {
+                long totalTime = System.nanoTime() - startTime;
+                metrics.recordReceived(totalTime - downstream.time);
+                downstream.depth--;
+                downstream.time = savedTime;
+            }
+        } else {
+            getDelegate().processTouchEvent(event);
+        }
+    }
+
+    /**
+     * Processes the specified event using the blocks that are queued to this block.
+     *
+     * @param event Event forwarded by the wrapped block.
+     */
+    private void processWithNextBlocks(O event) {
+        for (TouchListener<O> nextBlock : nextBlocks.getSnapshot()) {
+            nextBlock.processTouchEvent(event);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.debug;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.api.TouchListener;
+
+/**
+ * Touch listener decorating another touch listener in order to measure the time it takes to process each event.
+ * <p/>
+ * This is meant for listeners at the end of a chain. For blocks forwarding events to next blocks, {@link
+ * InstrumentedBlock} should be used instead.
+ *
+ * @param <E> Type of touch event processed by the listener.
+ *
+ * @see MetricsRegistry
+ */
+public class InstrumentedListener<E extends TouchEvent> implements TouchListener<E> {
+
+    /**
+     * Registry in which the metrics are registered.
+     */
+    protected final MetricsRegistry registry;
+
+    /**
+     * Metrics of the wrapped listener.
+     */
+    protected final BlockMetrics metrics;
+
+    /**
+     * Wrapped listener.
+     */
+    private final TouchListener<E> delegate;
+
+    /**
+     * Constructor specifying the name of the listener and the listener to be instrumented, registering the metrics in
+     * the default registry.
+     *
+     * @param name     Name of the listener.
+     * @param delegate Listener to be instrumented.
+     *
+     * @see MetricsRegistry#getDefault()
+     */
+    public InstrumentedListener(String name, TouchListener<E> delegate) {
+        this(MetricsRegistry.getDefault(), name, delegate);
+    }
+
+    /**
+     * Constructor specifying the registry, the name of the listener and the listener to be instrumented.
+     *
+     * @param registry Registry in which the metrics are to be registered.
+     * @param name     Name of the listener.
+     * @param delegate Listener to be instrumented.
+     */
+    public InstrumentedListener(MetricsRegistry registry, String name, TouchListener<E> delegate) {
+        this(registry, name, delegate, false);
+    }
+
+    /**
+     * Constructor specifying the registry, the name of the listener, the listener to be instrumented and whether it
+     * forwards events to next blocks.
+     *
+     * @param registry   Registry in which the metrics are to be registered.
+     * @param name       Name of the listener.
+     * @param delegate   Listener to be instrumented.
+     * @param forwarding True if the listener forwards events to next blocks, false otherwise.
+     */
+    protected InstrumentedListener(MetricsRegistry registry, String name, TouchListener<E> delegate,
+                                   boolean forwarding) {
+        this.registry = registry;
+        this.metrics = registry.register(name, forwarding);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gets the metrics of the wrapped listener.
+     *
+     * @return Metrics of the wrapped listener.
+     */
+    public BlockMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the wrapped listener.
+     *
+     * @return Wrapped listener.
+     */
+    public TouchListener<E> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Processes the specified event with the wrapped listener, measuring the time it takes.
+     *
+     * @see TouchListener#processTouchEvent(TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(E event) {
+        if (MetricsRegistry.ENABLED && registry.isRecording()) {
+            long startTime = System.nanoTime();
+            delegate.processTouchEvent(event);
+            metrics.recordReceived(System.nanoTime() - startTime);
+        } else {
+            delegate.processTouchEvent(event);
+        }
+    }
+}
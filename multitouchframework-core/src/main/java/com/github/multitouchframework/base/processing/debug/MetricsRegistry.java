@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.debug;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.api.TouchListener;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.processing.filter.Filter;
+import com.github.multitouchframework.base.processing.gesture.GestureRecognizer;
+import com.github.multitouchframework.base.support.ListenerArray;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Registry of the metrics of all instrumented processing blocks.
+ * <p/>
+ * Instrumentation can be switched off globally by setting the system property {@value #ENABLED_PROPERTY} to false
+ * before this class is loaded. In that case, the {@code instrument(...)} methods return the listeners, filters and
+ * gesture recognizers as they are, so that they are not even decorated. Blocks decorated directly using
+ * {@link InstrumentedBlock} still forward their events through it, but without measuring anything. Recording can also
+ * be paused and resumed at runtime using {@link #setRecording(boolean)}.
+ *
+ * @see InstrumentedListener
+ * @see InstrumentedBlock
+ */
+public final class MetricsRegistry {
+
+    /**
+     * Instrumented block that can be used as a filter.
+     *
+     * @param <E> Type of touch event processed and forwarded by the wrapped filter.
+     */
+    private static class InstrumentedFilter<E extends TouchEvent> extends InstrumentedBlock<E, E> implements Filter<E> {
+
+        /**
+         * Constructor specifying the registry, the name of the filter and the filter to be instrumented.
+         *
+         * @param registry Registry in which the metrics are to be registered.
+         * @param name     Name of the filter.
+         * @param filter   Filter to be instrumented.
+         */
+        public InstrumentedFilter(MetricsRegistry registry, String name, Filter<E> filter) {
+            super(registry, name, filter);
+        }
+    }
+
+    /**
+     * Instrumented block that can be used as a gesture recognizer.
+     *
+     * @param <E> Type of gesture events fired by the wrapped gesture recognizer.
+     */
+    private static class InstrumentedGestureRecognizer<E extends TouchEvent> extends
+            InstrumentedBlock<CursorUpdateEvent, E> implements GestureRecognizer<E> {
+
+        /**
+         * Constructor specifying the registry, the name of the gesture recognizer and the gesture recognizer to be
+         * instrumented.
+         *
+         * @param registry   Registry in which the metrics are to be registered.
+         * @param name       Name of the gesture recognizer.
+         * @param recognizer Gesture recognizer to be instrumented.
+         */
+        public InstrumentedGestureRecognizer(MetricsRegistry registry, String name, GestureRecognizer<E> recognizer) {
+            super(registry, name, recognizer);
+        }
+    }
+
+    /**
+     * Name of the system property allowing to switch off instrumentation globally.
+     */
+    public static final String ENABLED_PROPERTY = "multitouchframework.instrumentation";
+
+    /**
+     * Flag indicating whether instrumentation is globally enabled.
+     */
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+
+    /**
+     * Registry used by default by the instrumented blocks.
+     */
+    private static final MetricsRegistry DEFAULT_REGISTRY = new MetricsRegistry();
+
+    /**
+     * Metrics of all registered blocks.
+     */
+    private final ListenerArray<BlockMetrics> metrics = new ListenerArray<BlockMetrics>(BlockMetrics.class);
+
+    /**
+     * Flag indicating whether the instrumented blocks currently record metrics.
+     */
+    private volatile boolean recording = true;
+
+    /**
+     * Gets the registry used by default by the instrumented blocks.
+     *
+     * @return Default registry.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT_REGISTRY;
+    }
+
+    /**
+     * Decorates the specified touch listener so that its metrics are collected in this registry.
+     * <p/>
+     * For filters and gesture recognizers, {@link #instrument(String, Filter)} and
+     * {@link #instrument(String, GestureRecognizer)} should be used instead.
+     *
+     * @param name     Name of the listener in this registry.
+     * @param listener Listener to be instrumented.
+     * @param <E>      Type of events processed by the listener.
+     *
+     * @return Instrumented listener, or the listener itself if instrumentation is globally disabled.
+     */
+    public <E extends TouchEvent> TouchListener<E> instrument(String name, TouchListener<E> listener) {
+        TouchListener<E> instrumentedListener = listener;
+        if (ENABLED) {
+            instrumentedListener = new InstrumentedListener<E>(this, name, listener);
+        }
+        return instrumentedListener;
+    }
+
+    /**
+     * Decorates the specified filter so that its metrics are collected in this registry.
+     * <p/>
+     * The next blocks are to be queued to the returned filter instead of the specified filter.
+     *
+     * @param name   Name of the filter in this registry.
+     * @param filter Filter to be instrumented.
+     * @param <E>    Type of events processed and forwarded by the filter.
+     *
+     * @return Instrumented filter, or the filter itself if instrumentation is globally disabled.
+     *
+     * @see InstrumentedBlock
+     */
+    public <E extends TouchEvent> Filter<E> instrument(String name, Filter<E> filter) {
+        Filter<E> instrumentedFilter = filter;
+        if (ENABLED) {
+            instrumentedFilter = new InstrumentedFilter<E>(this, name, filter);
+        }
+        return instrumentedFilter;
+    }
+
+    /**
+     * Decorates the specified gesture recognizer so that its metrics are collected in this registry.
+     * <p/>
+     * The next blocks are to be queued to the returned gesture recognizer instead of the specified gesture recognizer.
+     *
+     * @param name       Name of the gesture recognizer in this registry.
+     * @param recognizer Gesture recognizer to be instrumented.
+     * @param <E>        Type of gesture events fired by the gesture recognizer.
+     *
+     * @return Instrumented gesture recognizer, or the gesture recognizer itself if instrumentation is globally
+     *         disabled.
+     *
+     * @see InstrumentedBlock
+     */
+    public <E extends TouchEvent> GestureRecognizer<E> instrument(String name, GestureRecognizer<E> recognizer) {
+        GestureRecognizer<E> instrumentedRecognizer = recognizer;
+        if (ENABLED) {
+            instrumentedRecognizer = new InstrumentedGestureRecognizer<E>(this, name, recognizer);
+        }
+        return instrumentedRecognizer;
+    }
+
+    /**
+     * Creates and registers the metrics for a block.
+     *
+     * @param name       Name of the block.
+     * @param forwarding True if the block forwards events to next blocks, false if it is at the end of the chain.
+     *
+     * @return Newly created metrics.
+     */
+    public BlockMetrics register(String name, boolean forwarding) {
+        BlockMetrics blockMetrics = new BlockMetrics(name, forwarding);
+        metrics.add(blockMetrics);
+        return blockMetrics;
+    }
+
+    /**
+     * Unregisters the specified metrics.
+     *
+     * @param blockMetrics Metrics to be unregistered.
+     */
+    public void unregister(BlockMetrics blockMetrics) {
+        metrics.remove(blockMetrics);
+    }
+
+    /**
+     * Gets the metrics of all registered blocks, in order of registration.
+     *
+     * @return Read-only list of metrics.
+     */
+    public List<BlockMetrics> getMetrics() {
+        return Collections.unmodifiableList(Arrays.asList(metrics.getSnapshot()));
+    }
+
+    /**
+     * Gets the metrics of the first registered block having the specified name.
+     *
+     * @param name Name of the block.
+     *
+     * @return Metrics of the block, or null if no block with this name is registered.
+     */
+    public BlockMetrics getMetrics(String name) {
+        BlockMetrics foundMetrics = null;
+
+        for (BlockMetrics blockMetrics : metrics.getSnapshot()) {
+            if (blockMetrics.getName().equals(name)) {
+                foundMetrics = blockMetrics;
+                break;
+            }
+        }
+
+        return foundMetrics;
+    }
+
+    /**
+     * States whether the instrumented blocks currently record metrics.
+     *
+     * @return True if recording, false otherwise.
+     */
+    public boolean isRecording() {
+        return ENABLED && recording;
+    }
+
+    /**
+     * Pauses or resumes the recording of metrics by the instrumented blocks.
+     *
+     * @param recording True to record metrics, false to pause.
+     */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Clears the metrics of all registered blocks.
+     */
+    public void resetAll() {
+        for (BlockMetrics blockMetrics : metrics.getSnapshot()) {
+            blockMetrics.reset();
+        }
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (BlockMetrics blockMetrics : metrics.getSnapshot()) {
+            builder.append(blockMetrics).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -27,12 +27,17 @@ package com.github.multitouchframework.base.processing.filter;
 
 import com.github.multitouchframework.api.TouchTarget;
 import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.base.cursor.CursorDelta;
+import com.github.multitouchframework.base.cursor.CursorDeltaTracker;
+import com.github.multitouchframework.base.cursor.CursorFrame;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.cursor.CursorUpdateEventPool;
+import com.github.multitouchframework.base.cursor.PooledCursorUpdateEvent;
+import com.github.multitouchframework.base.support.LongObjectMap;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -50,6 +55,13 @@ import java.util.Map;
  * only. But the touch targets will hold the cursors even if they leave these touch targets. This makes it more
  * convenient for users working on small touch targets of the screen (for instance, when several users are working on
  * different small maps displayed on the same device).
+ * <p/>
+ * If the input events carry the changes of their cursors, only the added and moved cursors are considered for catching
+ * touch targets. The output events carry the changes of the cursors for each touch target.
+ * <p/>
+ * An event is forwarded for a touch target only if its cursors were added, moved or removed, including a last event
+ * without any cursor when the touch target releases its last cursor. The cursors of each touch target are split into
+ * buffers that are reused from one event to the next, so that no collection is created on the processing path.
  *
  * @see AbstractFilter
  * @see CursorUpdateEvent
@@ -58,57 +70,212 @@ import java.util.Map;
 public abstract class AbstractCursorToTouchTargetDispatcher extends AbstractFilter<CursorUpdateEvent> {
 
     /**
-     * Mapping between cursors and touch targets resulting from the call to {@link #processTouchEvent
-     * (CursorUpdateEvent)}.
+     * Cursors held by a touch target, and the changes of these cursors from one event to the next.
+     */
+    private static class TargetState {
+
+        /**
+         * Touch target holding the cursors.
+         */
+        private final TouchTarget target;
+
+        /**
+         * Cursors of the current event held by the touch target, reused for each event.
+         */
+        private final CursorFrame cursors = new CursorFrame();
+
+        /**
+         * Tracker computing the changes of the cursors held by the touch target.
+         */
+        private final CursorDeltaTracker tracker = new CursorDeltaTracker();
+
+        /**
+         * Constructor specifying the touch target holding the cursors.
+         *
+         * @param target Touch target holding the cursors.
+         */
+        public TargetState(TouchTarget target) {
+            this.target = target;
+        }
+    }
+
+    /**
+     * Mapping between cursors and touch targets resulting from the last call to {@link
+     * #processTouchEvent(CursorUpdateEvent)}.
+     */
+    private LongObjectMap<TouchTarget> cursorToTarget = new LongObjectMap<TouchTarget>(); // Initially, no cursor down
+
+    /**
+     * Mapping swapped with {@link #cursorToTarget} when all cursors are assigned again, so that no map needs to be
+     * created.
+     */
+    private LongObjectMap<TouchTarget> newCursorToTarget = new LongObjectMap<TouchTarget>();
+
+    /**
+     * States of the touch targets holding cursors.
+     */
+    private final Map<TouchTarget, TargetState> targetStates = new HashMap<TouchTarget, TargetState>();
+
+    /**
+     * States of the touch targets holding cursors, as a list to be iterated without creating any iterator.
+     */
+    private final List<TargetState> activeTargetStates = new ArrayList<TargetState>();
+
+    /**
+     * Version of the state of the cursors of the last processed event, or {@link CursorDelta#UNKNOWN_VERSION}.
+     */
+    private long lastVersion = CursorDelta.UNKNOWN_VERSION;
+
+    /**
+     * Pool providing the events produced by this dispatcher, or null if the events are simply created.
+     */
+    private CursorUpdateEventPool eventPool = null;
+
+    /**
+     * Gets the pool providing the events produced by this dispatcher.
+     *
+     * @return Event pool, or null if the events are not pooled.
+     */
+    public CursorUpdateEventPool getEventPool() {
+        return eventPool;
+    }
+
+    /**
+     * Sets the pool providing the events produced by this dispatcher.
+     *
+     * @param eventPool Event pool, or null if the events are to be simply created.
+     *
+     * @see CursorUpdateEventPool
      */
-    private Map<Long, TouchTarget> oldCursorToTarget = new HashMap<Long, TouchTarget>(); // Initially, no cursor down
+    public void setEventPool(CursorUpdateEventPool eventPool) {
+        this.eventPool = eventPool;
+    }
 
     /**
      * @see AbstractFilter#processTouchEvent(com.github.multitouchframework.api.TouchEvent)
      */
     @Override
     public void processTouchEvent(CursorUpdateEvent event) {
-        Map<Long, TouchTarget> newCursorToTarget = new HashMap<Long, TouchTarget>();
-        Map<TouchTarget, Collection<Cursor>> updatesToBeForwarded = new HashMap<TouchTarget, Collection<Cursor>>();
+        CursorFrame cursors = event.getCursorFrame();
+        CursorDelta delta = event.getCursorDelta();
+
+        // Find the touch targets holding the cursors
+        if ((delta != null) && delta.appliesTo(lastVersion)) {
+            updateAssignedTargets(cursors, delta);
+        } else {
+            assignTargets(cursors);
+        }
+        if (delta == null) {
+            lastVersion = CursorDelta.UNKNOWN_VERSION;
+        } else {
+            lastVersion = delta.getVersion();
+        }
+
+        // Split the cursors per touch target, reusing the buffers of the touch targets that were holding cursors
+        for (int i = 0; i < activeTargetStates.size(); i++) {
+            activeTargetStates.get(i).cursors.clear();
+        }
+        for (int i = 0; i < cursors.size(); i++) {
+            TouchTarget assignedTarget = cursorToTarget.get(cursors.getId(i));
+            if (assignedTarget != null) {
+                TargetState state = targetStates.get(assignedTarget);
+                if (state == null) {
+                    state = new TargetState(assignedTarget);
+                    targetStates.put(assignedTarget, state);
+                    activeTargetStates.add(state);
+                }
+                state.cursors.add(cursors.getId(i), cursors.getX(i), cursors.getY(i));
+            }
+        }
+
+        // Forward only the touch targets whose cursors changed, including those that no longer hold any cursor
+        int i = 0;
+        while (i < activeTargetStates.size()) {
+            TargetState state = activeTargetStates.get(i);
+            CursorDelta deltaForThisTarget = state.tracker.update(state.cursors);
+
+            if (state.cursors.isEmpty()) {
+                // Touch target no longer holds any cursor, so forget it (the order of the others does not matter)
+                targetStates.remove(state.target);
+                int lastIndex = activeTargetStates.size() - 1;
+                activeTargetStates.set(i, activeTargetStates.get(lastIndex));
+                activeTargetStates.remove(lastIndex);
+            } else {
+                i++;
+            }
+
+            if (deltaForThisTarget.hasChanges()) {
+                forwardToNextBlocks(event, state.target, state.cursors, deltaForThisTarget);
+            }
+        }
+    }
+
+    /**
+     * Assigns all the specified cursors to touch targets, regardless of the previous events.
+     * <p/>
+     * The cursors that were already assigned keep their touch targets.
+     *
+     * @param cursors Cursors to be assigned.
+     */
+    private void assignTargets(CursorFrame cursors) {
+        newCursorToTarget.clear();
+
+        for (int i = 0; i < cursors.size(); i++) {
+            long cursorId = cursors.getId(i);
 
-        for (Cursor cursor : event.getCursors()) {
             // Find the touch target holding the cursor
-            TouchTarget assignedTarget = oldCursorToTarget.get(cursor.getId());
+            TouchTarget assignedTarget = cursorToTarget.get(cursorId);
             if (assignedTarget == null) {
                 // Find a new candidate touch target to hold the cursor
-                assignedTarget = findTouchedTarget(cursor);
-            } else {
-                // Touch target already holds the cursor
-                oldCursorToTarget.remove(cursor.getId());
+                assignedTarget = findTouchedTarget(cursors.getCursor(i));
             }
 
             if (assignedTarget != null) {
-                // Update cursor for this touch target
-                newCursorToTarget.put(cursor.getId(), assignedTarget);
-
-                Collection<Cursor> cursorsForThisTarget = updatesToBeForwarded.get(assignedTarget);
-                if (cursorsForThisTarget == null) {
-                    cursorsForThisTarget = new HashSet<Cursor>();
-                    updatesToBeForwarded.put(assignedTarget, cursorsForThisTarget);
-                }
-                cursorsForThisTarget.add(cursor);
+                newCursorToTarget.put(cursorId, assignedTarget);
             }
         }
 
-        // Clean up old mapping to notify for touch targets that have no more cursor
-        for (TouchTarget oldTarget : oldCursorToTarget.values()) {
-            if (!updatesToBeForwarded.containsKey(oldTarget)) {
-                updatesToBeForwarded.put(oldTarget, Collections.<Cursor>emptySet());
-            }
-        }
+        // Cursors that are no longer there are forgotten
+        LongObjectMap<TouchTarget> swappedCursorToTarget = cursorToTarget;
+        cursorToTarget = newCursorToTarget;
+        newCursorToTarget = swappedCursorToTarget;
+    }
 
-        // Forward updated touch targets and cursors to next blocks
-        for (Map.Entry<TouchTarget, Collection<Cursor>> entry : updatesToBeForwarded.entrySet()) {
-            forwardToNextBlocks(event.getUserId(), entry.getKey(), entry.getValue());
+    /**
+     * Updates the assignment of cursors to touch targets according to the specified changes.
+     *
+     * @param cursors Cursors of the event.
+     * @param delta   Changes of the cursors since the last processed event.
+     */
+    private void updateAssignedTargets(CursorFrame cursors, CursorDelta delta) {
+        // Release the cursors that are no longer there
+        CursorFrame removedCursors = delta.getRemovedCursors();
+        for (int i = 0; i < removedCursors.size(); i++) {
+            cursorToTarget.remove(removedCursors.getId(i));
         }
 
-        // Save mapping for next time
-        oldCursorToTarget = newCursorToTarget;
+        // Only the new and moved cursors may catch a touch target
+        assignTargets(cursors, delta.getAddedIndexes(), delta.getAddedCount());
+        assignTargets(cursors, delta.getUpdatedIndexes(), delta.getUpdatedCount());
+    }
+
+    /**
+     * Assigns the specified cursors to touch targets, unless they are already assigned.
+     *
+     * @param cursors Cursors of the event.
+     * @param indexes Indexes of the cursors to be assigned.
+     * @param count   Number of cursors to be assigned.
+     */
+    private void assignTargets(CursorFrame cursors, int[] indexes, int count) {
+        for (int i = 0; i < count; i++) {
+            long cursorId = cursors.getId(indexes[i]);
+            if (!cursorToTarget.containsKey(cursorId)) {
+                TouchTarget assignedTarget = findTouchedTarget(cursors.getCursor(indexes[i]));
+                if (assignedTarget != null) {
+                    cursorToTarget.put(cursorId, assignedTarget);
+                }
+            }
+        }
     }
 
     /**
@@ -126,11 +293,26 @@ public abstract class AbstractCursorToTouchTargetDispatcher extends AbstractFilt
      * Typically, this method is called for each touch target touched by the cursors processed in {@link
      * #processTouchEvent(CursorUpdateEvent)}.
      *
-     * @param userId  ID of the user touching the surface.
+     * @param event   Event from which the cursors originate.
      * @param target  Touch target holding the specified cursors.
      * @param cursors Cursors for the specified touch target.
+     * @param delta   Changes of the cursors for the specified touch target.
      */
-    private void forwardToNextBlocks(long userId, TouchTarget target, Collection<Cursor> cursors) {
-        processWithNextBlocks(new CursorUpdateEvent(userId, target, cursors));
+    private void forwardToNextBlocks(CursorUpdateEvent event, TouchTarget target, CursorFrame cursors,
+                                     CursorDelta delta) {
+        CursorUpdateEventPool currentEventPool = eventPool;
+        if (currentEventPool == null) {
+            // The cursors and the delta will be reused for the next events, but the event copies them
+            processWithNextBlocks(new CursorUpdateEvent(event.getUserId(), target, cursors, delta,
+                    event.getReceiveTime(), event.getSequenceNumber()));
+        } else {
+            PooledCursorUpdateEvent newEvent = currentEventPool.acquire(event.getUserId(), target, cursors, delta,
+                    event.getReceiveTime(), event.getSequenceNumber());
+            try {
+                processWithNextBlocks(newEvent);
+            } finally {
+                newEvent.release();
+            }
+        }
     }
 }
@@ -27,9 +27,7 @@ package com.github.multitouchframework.base.processing.filter;
 
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchListener;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.github.multitouchframework.base.support.ListenerArray;
 
 /**
  * Abstract implementation of a filter.
@@ -44,8 +42,11 @@ public abstract class AbstractFilter<E extends TouchEvent> implements Filter<E>
 
     /**
      * Cursor processors connected and processing the output cursors from this input controller.
+     * <p/>
+     * The blocks can be (de-)queued from any thread while events are being processed.
      */
-    private final List<TouchListener<E>> registeredNextBlocks = new ArrayList<TouchListener<E>>();
+    private final ListenerArray<TouchListener<E>> registeredNextBlocks = new ListenerArray<TouchListener<E>>
+            (TouchListener.class);
 
     /**
      * Connects the specified cursor processor to this input controller block.
@@ -77,7 +78,7 @@ public abstract class AbstractFilter<E extends TouchEvent> implements Filter<E>
      * @param event Cursor update event to be processed by the next blocks.
      */
     protected void processWithNextBlocks(E event) {
-        for (TouchListener<E> nextBlock : registeredNextBlocks) {
+        for (TouchListener<E> nextBlock : registeredNextBlocks.getSnapshot()) {
             nextBlock.processTouchEvent(event);
         }
     }
@@ -25,11 +25,11 @@
 
 package com.github.multitouchframework.base.processing.filter;
 
-import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.base.cursor.CursorDelta;
+import com.github.multitouchframework.base.cursor.CursorFrame;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
-
-import java.util.HashMap;
-import java.util.Map;
+import com.github.multitouchframework.base.cursor.CursorUpdateEventPool;
+import com.github.multitouchframework.base.cursor.PooledCursorUpdateEvent;
 
 /**
  * Simple input filter meant to reduce the small variations of cursor positions while the user holds still the point of
@@ -40,6 +40,9 @@ import java.util.Map;
  * <p/>
  * Coupled to a {@link NoChangeCursorFilter}, this is a very cheap alternative to low-pass filters, even though high
  * frequencies are not filtered out.
+ * <p/>
+ * The output events carry the changes of the filtered cursors, so that the cursors whose boxes did not move are seen as
+ * stationary by the next blocks.
  *
  * @see AbstractFilter
  * @see CursorUpdateEvent
@@ -54,7 +57,49 @@ public class BoundingBoxCursorFilter extends AbstractFilter<CursorUpdateEvent> {
     /**
      * Cursors corresponding to the boxes' center points.
      */
-    private Map<Long, Cursor> filteredCursors = new HashMap<Long, Cursor>();
+    private CursorFrame filteredCursors = new CursorFrame();
+
+    /**
+     * Cursors corresponding to the boxes' center points for the previous event.
+     * <p/>
+     * This frame is swapped with {@link #filteredCursors} for each event, so that no frame needs to be created.
+     */
+    private CursorFrame oldFilteredCursors = new CursorFrame();
+
+    /**
+     * Changes of the filtered cursors, reused for each event.
+     */
+    private final CursorDelta filteredDelta = new CursorDelta();
+
+    /**
+     * Version of the state of the filtered cursors.
+     */
+    private long filteredVersion = CursorDelta.newVersion();
+
+    /**
+     * Pool providing the events produced by this filter, or null if the events are simply created.
+     */
+    private CursorUpdateEventPool eventPool = null;
+
+    /**
+     * Gets the pool providing the events produced by this filter.
+     *
+     * @return Event pool, or null if the events are not pooled.
+     */
+    public CursorUpdateEventPool getEventPool() {
+        return eventPool;
+    }
+
+    /**
+     * Sets the pool providing the events produced by this filter.
+     *
+     * @param eventPool Event pool, or null if the events are to be simply created.
+     *
+     * @see CursorUpdateEventPool
+     */
+    public void setEventPool(CursorUpdateEventPool eventPool) {
+        this.eventPool = eventPool;
+    }
 
     /**
      * @see AbstractFilter#processTouchEvent(com.github.multitouchframework.api.TouchEvent)
@@ -62,61 +107,76 @@ public class BoundingBoxCursorFilter extends AbstractFilter<CursorUpdateEvent> {
     @Override
     public void processTouchEvent(CursorUpdateEvent event) {
         // Quick way to remove the cursors that are no longer there
-        Map<Long, Cursor> oldFilteredCursors = filteredCursors;
-        filteredCursors = new HashMap<Long, Cursor>();
+        CursorFrame swappedCursors = oldFilteredCursors;
+        oldFilteredCursors = filteredCursors;
+        filteredCursors = swappedCursors;
+        filteredCursors.clear();
 
-        for (Cursor rawCursor : event.getCursors()) {
-            Cursor oldFilteredCursor = oldFilteredCursors.get(rawCursor.getId());
-            if (oldFilteredCursor == null) {
+        CursorFrame rawCursors = event.getCursorFrame();
+        long[] rawIds = rawCursors.getIds();
+        int[] rawXs = rawCursors.getXs();
+        int[] rawYs = rawCursors.getYs();
+        long[] oldIds = oldFilteredCursors.getIds();
+        int[] oldXs = oldFilteredCursors.getXs();
+        int[] oldYs = oldFilteredCursors.getYs();
+        for (int i = 0; i < rawCursors.size(); i++) {
+            // Cursors are most likely in the same order as last time
+            int oldIndex = i;
+            if ((i >= oldFilteredCursors.size()) || (rawIds[i] != oldIds[i])) {
+                oldIndex = oldFilteredCursors.indexOf(rawIds[i]);
+            }
+            if (oldIndex < 0) {
                 // Cursor was not yet filtered, so just added it now to the list
-                filteredCursors.put(rawCursor.getId(), rawCursor);
+                filteredCursors.add(rawIds[i], rawXs[i], rawYs[i]);
             } else {
                 // Cursor was already filtered
-                Cursor newFilteredCursor = filterCursor(rawCursor, oldFilteredCursor);
-                filteredCursors.put(rawCursor.getId(), newFilteredCursor);
+                filteredCursors.add(rawIds[i], filterCoordinate(rawXs[i], oldXs[oldIndex]),
+                        filterCoordinate(rawYs[i], oldYs[oldIndex]));
             }
         }
 
-        processWithNextBlocks(new CursorUpdateEvent(event.getUserId(), event.getTouchTarget(),
-                filteredCursors.values()));
+        // Small moves of the raw cursors result in stationary filtered cursors
+        filteredDelta.compute(oldFilteredCursors, filteredCursors);
+        filteredVersion = filteredDelta.advanceVersion(filteredVersion);
+
+        CursorUpdateEventPool currentEventPool = eventPool;
+        if (currentEventPool == null) {
+            // The frame and delta will be reused for the next events, but the event copies them
+            processWithNextBlocks(new CursorUpdateEvent(event.getUserId(), event.getTouchTarget(), filteredCursors,
+                    filteredDelta, event.getReceiveTime(), event.getSequenceNumber()));
+        } else {
+            PooledCursorUpdateEvent newEvent = currentEventPool.acquire(event.getUserId(), event.getTouchTarget(),
+                    filteredCursors, filteredDelta, event.getReceiveTime(), event.getSequenceNumber());
+            try {
+                processWithNextBlocks(newEvent);
+            } finally {
+                newEvent.release();
+            }
+        }
     }
 
     /**
-     * Filters the specified raw cursor by calculating the new center of the bounding box.
+     * Filters the specified raw coordinate by calculating the new center of the bounding box along one axis.
      *
-     * @param rawCursor         Raw input cursor.
-     * @param oldFilteredCursor Previous result from the filtering of a cursor of the same ID.
+     * @param rawCoordinate         Coordinate of the raw input cursor.
+     * @param oldFilteredCoordinate Previous result from the filtering of the coordinate of a cursor of the same ID.
      *
-     * @return Filtered cursor.
+     * @return Filtered coordinate.
      */
-    private Cursor filterCursor(Cursor rawCursor, Cursor oldFilteredCursor) {
-        int filteredX;
-        int filteredY;
-
-        // Filter on the X axis
-        if (rawCursor.getX() < (oldFilteredCursor.getX() - MAX_DIFF)) {
-            // New position is out of the box, so move the box
-            filteredX = rawCursor.getX() + MAX_DIFF;
-        } else if (rawCursor.getX() > (oldFilteredCursor.getX() + MAX_DIFF)) {
-            // New position is out of the box, so move the box
-            filteredX = rawCursor.getX() - MAX_DIFF;
-        } else {
-            // Just reuse the old position
-            filteredX = oldFilteredCursor.getX();
-        }
+    private static int filterCoordinate(int rawCoordinate, int oldFilteredCoordinate) {
+        int filteredCoordinate;
 
-        // Filter on the Y axis
-        if (rawCursor.getY() < (oldFilteredCursor.getY() - MAX_DIFF)) {
+        if (rawCoordinate < (oldFilteredCoordinate - MAX_DIFF)) {
             // New position is out of the box, so move the box
-            filteredY = rawCursor.getY() + MAX_DIFF;
-        } else if (rawCursor.getY() > (oldFilteredCursor.getY() + MAX_DIFF)) {
+            filteredCoordinate = rawCoordinate + MAX_DIFF;
+        } else if (rawCoordinate > (oldFilteredCoordinate + MAX_DIFF)) {
             // New position is out of the box, so move the box
-            filteredY = rawCursor.getY() - MAX_DIFF;
+            filteredCoordinate = rawCoordinate - MAX_DIFF;
         } else {
             // Just reuse the old position
-            filteredY = oldFilteredCursor.getY();
+            filteredCoordinate = oldFilteredCoordinate;
         }
 
-        return new Cursor(rawCursor.getId(), filteredX, filteredY);
+        return filteredCoordinate;
     }
 }
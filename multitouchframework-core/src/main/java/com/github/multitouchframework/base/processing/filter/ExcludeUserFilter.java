@@ -27,10 +27,9 @@ package com.github.multitouchframework.base.processing.filter;
 
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.support.CopyOnWriteLongSet;
 
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Input filter passing the {@link CursorUpdateEvent}s to the following blocks only if the user ID of the events does
@@ -46,7 +45,7 @@ public class ExcludeUserFilter<E extends TouchEvent> extends AbstractFilter<E> {
     /**
      * Excluded user IDs.
      */
-    private final Set<Long> userIds = new HashSet<Long>();
+    private final CopyOnWriteLongSet userIds = new CopyOnWriteLongSet();
 
     /**
      * Constructor specifying the IDs of the users to be excluded.
@@ -68,7 +67,9 @@ public class ExcludeUserFilter<E extends TouchEvent> extends AbstractFilter<E> {
      */
     public ExcludeUserFilter(Collection<Long> userIds) {
         if (userIds != null) {
-            this.userIds.addAll(userIds);
+            for (long userId : userIds) {
+                this.userIds.add(userId);
+            }
         }
     }
 
@@ -28,11 +28,10 @@ package com.github.multitouchframework.base.processing.filter;
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchTarget;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.support.CopyOnWriteSet;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Input filter passing the {@link CursorUpdateEvent}s to the following blocks only if the touch target of the events
@@ -48,7 +47,7 @@ public class IncludeTouchTargetFilter<E extends TouchEvent> extends AbstractFilt
     /**
      * Included touch targets.
      */
-    private final Set<TouchTarget> touchTargets = new HashSet<TouchTarget>();
+    private final CopyOnWriteSet<TouchTarget> touchTargets = new CopyOnWriteSet<TouchTarget>();
 
     /**
      * Constructor specifying the touch targets to be included.
@@ -57,7 +56,7 @@ public class IncludeTouchTargetFilter<E extends TouchEvent> extends AbstractFilt
      */
     public IncludeTouchTargetFilter(TouchTarget... touchTargets) {
         if (touchTargets != null) {
-            Collections.addAll(this.touchTargets, touchTargets);
+            this.touchTargets.addAll(Arrays.asList(touchTargets));
         }
     }
 
@@ -25,17 +25,27 @@
 
 package com.github.multitouchframework.base.processing.filter;
 
-import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.base.cursor.CursorDelta;
+import com.github.multitouchframework.base.cursor.CursorFrame;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.support.LongObjectMap;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Simple input filter that inhibits identical consecutive events.
  * <p/>
  * This improves performance by reducing the number of redundant touch events.
+ * <p/>
+ * The last fired cursors are kept separately for each user and touch target, so that the filter can be queued after a
+ * cursor-to-target dispatcher without dropping the events of a touch target because of the events of another one.
+ * <p/>
+ * If the events carry the changes of their cursors, the decision is made without comparing the cursors. Otherwise, a
+ * fingerprint of the cursors is compared first, and the cursors are compared only if the fingerprints match. The last
+ * fired cursors are kept sorted by ID in reused buffers, so that no object is created when the cursors do not change.
  *
  * @see Filter
  * @see CursorUpdateEvent
@@ -43,36 +53,202 @@ import java.util.Set;
 public class NoChangeCursorFilter extends AbstractFilter<CursorUpdateEvent> {
 
     /**
-     * Cursors involved in the last fired event.
+     * Last fired cursors of a user on a touch target.
+     */
+    private static class StreamState {
+
+        /**
+         * IDs of the cursors of the last fired event, sorted in ascending order.
+         */
+        private long[] ids = new long[0];
+
+        /**
+         * X coordinates of the cursors of the last fired event, in the same order as the IDs.
+         */
+        private int[] xs = new int[0];
+
+        /**
+         * Y coordinates of the cursors of the last fired event, in the same order as the IDs.
+         */
+        private int[] ys = new int[0];
+
+        /**
+         * Number of cursors of the last fired event.
+         */
+        private int size = 0;
+
+        /**
+         * Fingerprint of the cursors of the last fired event.
+         */
+        private long fingerprint = 0;
+
+        /**
+         * Flag indicating whether the buffers hold the cursors of the last fired event.
+         * <p/>
+         * They are not copied when the changes of the cursors are known.
+         */
+        private boolean cursorsKnown = true;
+
+        /**
+         * Version of the state of the cursors of the last processed event, or {@link CursorDelta#UNKNOWN_VERSION}.
+         */
+        private long version = CursorDelta.UNKNOWN_VERSION;
+    }
+
+    /**
+     * Last fired cursors for each touch target and user.
+     * <p/>
+     * Users whose last fired event had no cursor are not kept, because their state is the same as the initial state.
+     * Access to this map must be synchronized on itself.
      */
-    private Set<Cursor> lastCursors = new HashSet<Cursor>();
+    private final Map<TouchTarget, LongObjectMap<StreamState>> targetStates = new WeakHashMap<TouchTarget,
+            LongObjectMap<StreamState>>();
 
     /**
      * @see AbstractFilter#processTouchEvent(com.github.multitouchframework.api.TouchEvent)
      */
     @Override
     public void processTouchEvent(CursorUpdateEvent event) {
-        boolean changed = false;
-
-        // Check if at least one cursor changed since the last event
-        Collection<Cursor> cursors = event.getCursors();
-        if (cursors.size() == lastCursors.size()) {
-            // Same number of cursors as last event, so check if all cursors are the same
-            for (Cursor cursor : cursors) {
-                if (!lastCursors.contains(cursor)) {
-                    changed = true;
-                    break;
+        CursorFrame cursors = event.getCursorFrame();
+        CursorDelta delta = event.getCursorDelta();
+        boolean changed;
+        boolean deltaApplied = false;
+
+        synchronized (targetStates) {
+            LongObjectMap<StreamState> userStates = targetStates.get(event.getTouchTarget());
+            StreamState state = null;
+            if (userStates != null) {
+                state = userStates.get(event.getUserId());
+            }
+
+            if (state == null) {
+                // No cursor fired so far, or no cursor in the last fired event
+                changed = !cursors.isEmpty();
+                if (changed) {
+                    state = new StreamState();
+                    if (userStates == null) {
+                        userStates = new LongObjectMap<StreamState>();
+                        targetStates.put(event.getTouchTarget(), userStates);
+                    }
+                    userStates.put(event.getUserId(), state);
+                }
+            } else if ((delta != null) && delta.appliesTo(state.version)) {
+                // No need to compare the cursors
+                changed = delta.hasChanges();
+                deltaApplied = true;
+            } else {
+                changed = !state.cursorsKnown || hasChanged(state, cursors);
+            }
+
+            if (changed) {
+                if (cursors.isEmpty()) {
+                    // Back to the initial state
+                    userStates.remove(event.getUserId());
+                    if (userStates.isEmpty()) {
+                        targetStates.remove(event.getTouchTarget());
+                    }
+                } else if (deltaApplied) {
+                    // The next event will most likely tell whether its cursors changed
+                    state.cursorsKnown = false;
+                } else {
+                    // Keep the cursors for the comparison with the next event
+                    saveCursors(state, cursors);
+                }
+            }
+
+            if ((state != null) && !cursors.isEmpty()) {
+                if (delta == null) {
+                    state.version = CursorDelta.UNKNOWN_VERSION;
+                } else {
+                    state.version = delta.getVersion();
                 }
             }
-        } else {
-            // Not the same number of cursors as last event, so process them
-            changed = true;
         }
 
         // Trigger listeners if at least one cursor changed since the last event
         if (changed) {
-            lastCursors = new HashSet<Cursor>(cursors);
-            processWithNextBlocks(new CursorUpdateEvent(event.getUserId(), event.getTouchTarget(), cursors));
+            processWithNextBlocks(event);
+        }
+    }
+
+    /**
+     * States whether the specified cursors differ from the last fired cursors.
+     *
+     * @param state   State holding the last fired cursors.
+     * @param cursors Cursors to be compared.
+     *
+     * @return True if at least one cursor was added, removed or moved, false otherwise.
+     */
+    private static boolean hasChanged(StreamState state, CursorFrame cursors) {
+        boolean changed = (cursors.size() != state.size) || (fingerprint(cursors) != state.fingerprint);
+
+        // Make sure that matching fingerprints are not a collision
+        long[] ids = cursors.getIds();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
+        for (int i = 0; !changed && (i < state.size); i++) {
+            // Cursors are most likely sorted by ID already
+            int lastIndex = i;
+            if (ids[i] != state.ids[i]) {
+                lastIndex = Arrays.binarySearch(state.ids, 0, state.size, ids[i]);
+            }
+            changed = (lastIndex < 0) || (xs[i] != state.xs[lastIndex]) || (ys[i] != state.ys[lastIndex]);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Copies the specified cursors to the buffers of the specified state, sorted by ID.
+     *
+     * @param state   State to be updated.
+     * @param cursors Cursors of the fired event.
+     */
+    private static void saveCursors(StreamState state, CursorFrame cursors) {
+        int size = cursors.size();
+        if (state.ids.length < size) {
+            state.ids = new long[size];
+            state.xs = new int[size];
+            state.ys = new int[size];
+        }
+
+        // Insertion sort, which is linear when the cursors are already sorted
+        for (int i = 0; i < size; i++) {
+            long id = cursors.getId(i);
+            int j = i;
+            while ((j > 0) && (state.ids[j - 1] > id)) {
+                state.ids[j] = state.ids[j - 1];
+                state.xs[j] = state.xs[j - 1];
+                state.ys[j] = state.ys[j - 1];
+                j--;
+            }
+            state.ids[j] = id;
+            state.xs[j] = cursors.getX(i);
+            state.ys[j] = cursors.getY(i);
+        }
+
+        state.size = size;
+        state.fingerprint = fingerprint(cursors);
+        state.cursorsKnown = true;
+    }
+
+    /**
+     * Computes a fingerprint of the specified cursors that does not depend on their order.
+     *
+     * @param cursors Cursors to be fingerprinted.
+     *
+     * @return Fingerprint of the cursors.
+     */
+    private static long fingerprint(CursorFrame cursors) {
+        long fingerprint = 0;
+        for (int i = 0; i < cursors.size(); i++) {
+            // Sum of well-mixed hashes, so that the order does not matter
+            long hash = cursors.getId(i) * 0x9E3779B97F4A7C15L + ((((long) cursors.getX(i)) << 32) | (cursors.getY
+                    (i) & 0xFFFFFFFFL));
+            hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+            hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            fingerprint += hash ^ (hash >>> 33);
         }
+        return fingerprint;
     }
 }
@@ -28,12 +28,10 @@ package com.github.multitouchframework.base.processing.gesture;
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchListener;
 import com.github.multitouchframework.api.TouchTarget;
-import com.github.multitouchframework.base.cursor.Cursor;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.support.ListenerArray;
+import com.github.multitouchframework.base.support.LongObjectMap;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -43,7 +41,12 @@ import java.util.WeakHashMap;
  * It provides basic support for a per-target gesture recognition and for notifying gesture listeners.
  * <p/>
  * Implementing sub-classes are meant to create context objects that will hold all the metadata associated to the
- * recognition of the gesture for a specific touch target, and to process the cursors for this context and touch target.
+ * recognition of the gesture for a specific user and touch target, and to process the cursors for this context and
+ * touch target.
+ * <p/>
+ * Events for different users or touch targets may be processed concurrently, for instance by a {@link
+ * com.github.multitouchframework.base.processing.scheduling.ShardedStage}, because each context is only used for the
+ * events of its user and touch target.
  *
  * @param <C> Type of context holding the recognition metadata associated to a touch target.
  * @param <E> Type of gesture events fired by the gesture recognizer.
@@ -72,15 +75,19 @@ public abstract class AbstractGestureRecognizer<C, E extends TouchEvent> impleme
      * @see #dequeue(TouchListener)
      * @see #fireGestureEvent(TouchEvent)
      */
-    private final List<TouchListener<E>> gestureListeners = new ArrayList<TouchListener<E>>();
+    private final ListenerArray<TouchListener<E>> gestureListeners = new ListenerArray<TouchListener<E>>
+            (TouchListener.class);
 
     /**
-     * Saved recognition context for each touch target.
+     * Saved recognition context for each touch target and user.
+     * <p/>
+     * Access to this map must be synchronized on itself.
      *
      * @see #getContext(long, TouchTarget)
      * @see #createContext(long, TouchTarget)
      */
-    private final Map<TouchTarget, C> targetContexts = new WeakHashMap<TouchTarget, C>();
+    private final Map<TouchTarget, LongObjectMap<C>> targetContexts = new WeakHashMap<TouchTarget,
+            LongObjectMap<C>>();
 
     /**
      * Constructor specifying the minimum and maximum numbers of cursors required to perform the gesture.
@@ -166,7 +173,7 @@ public abstract class AbstractGestureRecognizer<C, E extends TouchEvent> impleme
      * @param event Gesture event to be fired.
      */
     protected void fireGestureEvent(E event) {
-        for (TouchListener<E> listener : gestureListeners) {
+        for (TouchListener<E> listener : gestureListeners.getSnapshot()) {
             listener.processTouchEvent(event);
         }
     }
@@ -176,29 +183,36 @@ public abstract class AbstractGestureRecognizer<C, E extends TouchEvent> impleme
      */
     @Override
     public void processTouchEvent(CursorUpdateEvent event) {
-        process(getContext(event.getUserId(), event.getTouchTarget()), event.getUserId(), event.getTouchTarget(),
-                event.getCursors());
+        process(getContext(event.getUserId(), event.getTouchTarget()), event);
     }
 
     /**
-     * Gets a context for the specified touch target.
+     * Gets a context for the specified user and touch target.
      * <p/>
-     * This method will create a new context for the touch target if it does not exist.
+     * This method will create a new context for the user and touch target if it does not exist.
      *
      * @param userId ID of the user performing the gesture.
      * @param target Touch target to get a context for.
      *
-     * @return Context for the touch target.
+     * @return Context for the user and touch target.
      *
      * @see #createContext(long, TouchTarget)
      */
     protected C getContext(long userId, TouchTarget target) {
-        C context = targetContexts.get(target);
-        if (context == null) {
-            context = createContext(userId, target);
-            targetContexts.put(target, context);
+        synchronized (targetContexts) {
+            LongObjectMap<C> userContexts = targetContexts.get(target);
+            if (userContexts == null) {
+                userContexts = new LongObjectMap<C>();
+                targetContexts.put(target, userContexts);
+            }
+
+            C context = userContexts.get(userId);
+            if (context == null) {
+                context = createContext(userId, target);
+                userContexts.put(userId, context);
+            }
+            return context;
         }
-        return context;
     }
 
     /**
@@ -214,14 +228,15 @@ public abstract class AbstractGestureRecognizer<C, E extends TouchEvent> impleme
     protected abstract C createContext(long userId, TouchTarget target);
 
     /**
-     * Processes the specified cursors for the specified touch target and target context.
+     * Processes the cursors of the specified event for the specified target context.
      * <p/>
-     * This method is to be implemented by sub-classes.
+     * This method is to be implemented by sub-classes. The receive time and the sequence number of the event are to be
+     * propagated to the gesture events fired as a result, so that they can be traced.
+     *
+     * @param context Context associated to the user and touch target of the event.
+     * @param event   Cursor update event to be processed, whose cursors must not be modified.
      *
-     * @param context Context associated to the touch target to which the cursors apply.
-     * @param userId  ID of the user performing the gesture.
-     * @param target  Touch target to which the cursors are associated.
-     * @param cursors Cursors to be processed.
+     * @see com.github.multitouchframework.api.TracedEvent
      */
-    protected abstract void process(C context, long userId, TouchTarget target, Collection<Cursor> cursors);
+    protected abstract void process(C context, CursorUpdateEvent event);
 }
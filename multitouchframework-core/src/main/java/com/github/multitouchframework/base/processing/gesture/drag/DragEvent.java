@@ -27,14 +27,15 @@ package com.github.multitouchframework.base.processing.gesture.drag;
 
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TracedEvent;
 
 /**
  * Event fired when the drag/pan gesture is recognized.
  *
- * @see TouchEvent
+ * @see TracedEvent
  * @see DragRecognizer
  */
-public class DragEvent implements TouchEvent, Cloneable {
+public class DragEvent implements TracedEvent, Cloneable {
 
     /**
      * Possible states of the gesture.
@@ -102,6 +103,17 @@ public class DragEvent implements TouchEvent, Cloneable {
      */
     private final int dyTotal;
 
+    /**
+     * Time at which the input data was received by the input source, in nanoseconds, or
+     * {@link TracedEvent#NO_RECEIVE_TIME}.
+     */
+    private final long receiveTime;
+
+    /**
+     * Sequence number given by the input source to the input data, or {@link TracedEvent#NO_SEQUENCE_NUMBER}.
+     */
+    private final long sequenceNumber;
+
     /**
      * Copy constructor.
      *
@@ -111,11 +123,11 @@ public class DragEvent implements TouchEvent, Cloneable {
      */
     public DragEvent(DragEvent event) {
         this(event.getUserId(), event.getTouchTarget(), event.getState(), event.getDiffX(), event.getDiffY(),
-                event.getTotalDiffX(), event.getTotalDiffY());
+                event.getTotalDiffX(), event.getTotalDiffY(), event.getReceiveTime(), event.getSequenceNumber());
     }
 
     /**
-     * Constructor specifying all the information on the gesture.
+     * Constructor specifying all the information on the gesture, without tracing information.
      *
      * @param userId  ID of the user performing the gesture.
      * @param target  Touch target for which the event is produced.
@@ -126,6 +138,25 @@ public class DragEvent implements TouchEvent, Cloneable {
      * @param dyTotal Drag movement on the Y axis relatively to the very beginning of the gesture.
      */
     public DragEvent(long userId, TouchTarget target, State state, int dx, int dy, int dxTotal, int dyTotal) {
+        this(userId, target, state, dx, dy, dxTotal, dyTotal, TracedEvent.NO_RECEIVE_TIME,
+                TracedEvent.NO_SEQUENCE_NUMBER);
+    }
+
+    /**
+     * Constructor specifying all the information on the gesture, including the tracing information.
+     *
+     * @param userId         ID of the user performing the gesture.
+     * @param target         Touch target for which the event is produced.
+     * @param state          State of the recognized gesture.
+     * @param dx             Drag movement on the X axis relatively to the previous event.
+     * @param dy             Drag movement on the Y axis relatively to the previous event.
+     * @param dxTotal        Drag movement on the X axis relatively to the very beginning of the gesture.
+     * @param dyTotal        Drag movement on the Y axis relatively to the very beginning of the gesture.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     */
+    public DragEvent(long userId, TouchTarget target, State state, int dx, int dy, int dxTotal, int dyTotal,
+                     long receiveTime, long sequenceNumber) {
         this.userId = userId;
         this.target = target;
         this.state = state;
@@ -133,6 +164,8 @@ public class DragEvent implements TouchEvent, Cloneable {
         this.dy = dy;
         this.dxTotal = dxTotal;
         this.dyTotal = dyTotal;
+        this.receiveTime = receiveTime;
+        this.sequenceNumber = sequenceNumber;
     }
 
     /**
@@ -196,6 +229,22 @@ public class DragEvent implements TouchEvent, Cloneable {
         return dyTotal;
     }
 
+    /**
+     * @see TracedEvent#getReceiveTime()
+     */
+    @Override
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    /**
+     * @see TracedEvent#getSequenceNumber()
+     */
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
     /**
      * @see Object#toString()
      */
@@ -26,10 +26,10 @@
 package com.github.multitouchframework.base.processing.gesture.drag;
 
 import com.github.multitouchframework.api.TouchTarget;
-import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.base.cursor.CursorFrame;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
 import com.github.multitouchframework.base.processing.gesture.AbstractGestureRecognizer;
 
-import java.util.Collection;
 
 /**
  * Entity responsible for recognizing a drag/pan/etc. gesture.
@@ -131,23 +131,24 @@ public class DragRecognizer extends AbstractGestureRecognizer<DragRecognizer.Tou
     }
 
     /**
-     * @see AbstractGestureRecognizer#process(Object, long, TouchTarget, Collection)
+     * @see AbstractGestureRecognizer#process(Object, CursorUpdateEvent)
      */
     @Override
-    protected void process(TouchTargetContext context, long userId, TouchTarget target, Collection<Cursor> cursors) {
+    protected void process(TouchTargetContext context, CursorUpdateEvent event) {
+        CursorFrame cursors = event.getCursorFrame();
         int cursorCount = cursors.size();
 
         // Test this first because it is the most likely to happen
         if (isCursorCountValid(context.previousCursorCount) && isCursorCountValid(cursorCount)) {
             if (context.previousCursorCount == cursorCount) {
-                processDragPerformed(context, cursors);
+                processDragPerformed(context, event);
             } else {
                 processValidCursorCountChanged(context, cursors);
             }
         } else if (!isCursorCountValid(context.previousCursorCount) && isCursorCountValid(cursorCount)) {
-            processDragArmed(context, userId, target, cursors);
+            processDragArmed(context, event);
         } else if (isCursorCountValid(context.previousCursorCount) && !isCursorCountValid(cursorCount)) {
-            processDragUnarmed(context);
+            processDragUnarmed(context, event);
         } else {
             processNothingHappened(context);
         }
@@ -157,23 +158,27 @@ public class DragRecognizer extends AbstractGestureRecognizer<DragRecognizer.Tou
      * Handles the fact that the change of input cursors armed the gesture.
      *
      * @param context Target context to be updated.
-     * @param userId  ID of the user performing the gesture.
-     * @param target  Touch target to which the cursors are associated.
-     * @param cursors New input cursors.
+     * @param trigger Cursor update event holding the new input cursors.
      */
-    private void processDragArmed(TouchTargetContext context, long userId, TouchTarget target,
-                                  Collection<Cursor> cursors) {
+    private void processDragArmed(TouchTargetContext context, CursorUpdateEvent trigger) {
+        long userId = trigger.getUserId();
+        TouchTarget target = trigger.getTouchTarget();
+        CursorFrame cursors = trigger.getCursorFrame();
+
         // Trigger listeners
-        DragEvent event = new DragEvent(userId, target, DragEvent.State.ARMED, 0, 0, 0, 0);
+        DragEvent event = new DragEvent(userId, target, DragEvent.State.ARMED, 0, 0, 0, 0, trigger.getReceiveTime(),
+                trigger.getSequenceNumber());
         fireGestureEvent(event);
 
         // Calculate mean point
         int cursorCount = cursors.size();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
         int meanX = 0;
         int meanY = 0;
-        for (Cursor cursor : cursors) {
-            meanX += cursor.getX();
-            meanY += cursor.getY();
+        for (int i = 0; i < cursorCount; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
         }
         meanX /= cursorCount;
         meanY /= cursorCount;
@@ -193,16 +198,20 @@ public class DragRecognizer extends AbstractGestureRecognizer<DragRecognizer.Tou
      * Handles the fact that the change of input cursors corresponds to a drag movement.
      *
      * @param context Target context to be used and updated.
-     * @param cursors New input cursors.
+     * @param trigger Cursor update event holding the new input cursors.
      */
-    private void processDragPerformed(TouchTargetContext context, Collection<Cursor> cursors) {
+    private void processDragPerformed(TouchTargetContext context, CursorUpdateEvent trigger) {
+        CursorFrame cursors = trigger.getCursorFrame();
+
         // Calculate mean point
         int cursorCount = cursors.size();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
         int meanX = 0;
         int meanY = 0;
-        for (Cursor cursor : cursors) {
-            meanX += cursor.getX();
-            meanY += cursor.getY();
+        for (int i = 0; i < cursorCount; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
         }
         meanX /= cursorCount;
         meanY /= cursorCount;
@@ -213,7 +222,8 @@ public class DragRecognizer extends AbstractGestureRecognizer<DragRecognizer.Tou
 
         // Trigger listeners
         DragEvent event = new DragEvent(context.userId, context.activeTarget, DragEvent.State.PERFORMED, offsetX,
-                offsetY, meanX - context.referenceX, meanY - context.referenceY);
+                offsetY, meanX - context.referenceX, meanY - context.referenceY, trigger.getReceiveTime(),
+                trigger.getSequenceNumber());
         fireGestureEvent(event);
 
         // Save context (no change of reference point or active touch target)
@@ -231,14 +241,16 @@ public class DragRecognizer extends AbstractGestureRecognizer<DragRecognizer.Tou
      * @param context Touch target context to be used and updated.
      * @param cursors New input cursors.
      */
-    private void processValidCursorCountChanged(TouchTargetContext context, Collection<Cursor> cursors) {
+    private void processValidCursorCountChanged(TouchTargetContext context, CursorFrame cursors) {
         // Calculate mean point
         int cursorCount = cursors.size();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
         int meanX = 0;
         int meanY = 0;
-        for (Cursor cursor : cursors) {
-            meanX += cursor.getX();
-            meanY += cursor.getY();
+        for (int i = 0; i < cursorCount; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
         }
         meanX /= cursorCount;
         meanY /= cursorCount;
@@ -261,11 +273,13 @@ public class DragRecognizer extends AbstractGestureRecognizer<DragRecognizer.Tou
      * Handles the fact that the change of input cursors unarmed the gesture.
      *
      * @param context Target context to be updated.
+     * @param trigger Cursor update event holding the new input cursors.
      */
-    private void processDragUnarmed(TouchTargetContext context) {
+    private void processDragUnarmed(TouchTargetContext context, CursorUpdateEvent trigger) {
         // Trigger listeners
         DragEvent event = new DragEvent(context.userId, context.activeTarget, DragEvent.State.UNARMED, 0, 0,
-                context.previousMeanX - context.referenceX, context.previousMeanY - context.referenceY);
+                context.previousMeanX - context.referenceX, context.previousMeanY - context.referenceY,
+                trigger.getReceiveTime(), trigger.getSequenceNumber());
         fireGestureEvent(event);
 
         // Clear context
@@ -27,14 +27,15 @@ package com.github.multitouchframework.base.processing.gesture.pinchspread;
 
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TracedEvent;
 
 /**
  * Event fired when pinch/spread/zoom gesture is recognized.
  *
- * @see TouchEvent
+ * @see TracedEvent
  * @see PinchSpreadRecognizer
  */
-public class PinchSpreadEvent implements TouchEvent, Cloneable {
+public class PinchSpreadEvent implements TracedEvent, Cloneable {
 
     /**
      * Possible states of the gesture.
@@ -92,6 +93,17 @@ public class PinchSpreadEvent implements TouchEvent, Cloneable {
      */
     private final double dsTotal;
 
+    /**
+     * Time at which the input data was received by the input source, in nanoseconds, or
+     * {@link TracedEvent#NO_RECEIVE_TIME}.
+     */
+    private final long receiveTime;
+
+    /**
+     * Sequence number given by the input source to the input data, or {@link TracedEvent#NO_SEQUENCE_NUMBER}.
+     */
+    private final long sequenceNumber;
+
     /**
      * Copy constructor.
      *
@@ -101,11 +113,11 @@ public class PinchSpreadEvent implements TouchEvent, Cloneable {
      */
     public PinchSpreadEvent(PinchSpreadEvent event) {
         this(event.getUserId(), event.getTouchTarget(), event.getState(), event.getDiffScale(),
-                event.getTotalDiffScale());
+                event.getTotalDiffScale(), event.getReceiveTime(), event.getSequenceNumber());
     }
 
     /**
-     * Constructor specifying all the information on the gesture.
+     * Constructor specifying all the information on the gesture, without tracing information.
      *
      * @param userId  ID of the user performing the gesture.
      * @param target  Touch target for which the event is produced.
@@ -114,11 +126,29 @@ public class PinchSpreadEvent implements TouchEvent, Cloneable {
      * @param dsTotal Scale movement relatively to the very beginning of the gesture.
      */
     public PinchSpreadEvent(long userId, TouchTarget target, State state, double ds, double dsTotal) {
+        this(userId, target, state, ds, dsTotal, TracedEvent.NO_RECEIVE_TIME, TracedEvent.NO_SEQUENCE_NUMBER);
+    }
+
+    /**
+     * Constructor specifying all the information on the gesture, including the tracing information.
+     *
+     * @param userId         ID of the user performing the gesture.
+     * @param target         Touch target for which the event is produced.
+     * @param state          State of the recognized gesture.
+     * @param ds             Scale movement relatively to the previous event.
+     * @param dsTotal        Scale movement relatively to the very beginning of the gesture.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     */
+    public PinchSpreadEvent(long userId, TouchTarget target, State state, double ds, double dsTotal,
+                            long receiveTime, long sequenceNumber) {
         this.userId = userId;
         this.target = target;
         this.state = state;
         this.ds = ds;
         this.dsTotal = dsTotal;
+        this.receiveTime = receiveTime;
+        this.sequenceNumber = sequenceNumber;
     }
 
     /**
@@ -163,6 +193,22 @@ public class PinchSpreadEvent implements TouchEvent, Cloneable {
         return dsTotal;
     }
 
+    /**
+     * @see TracedEvent#getReceiveTime()
+     */
+    @Override
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    /**
+     * @see TracedEvent#getSequenceNumber()
+     */
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
     /**
      * @see Object#toString()
      */
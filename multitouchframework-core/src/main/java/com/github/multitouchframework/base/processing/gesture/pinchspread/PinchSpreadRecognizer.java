@@ -26,10 +26,10 @@
 package com.github.multitouchframework.base.processing.gesture.pinchspread;
 
 import com.github.multitouchframework.api.TouchTarget;
-import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.base.cursor.CursorFrame;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
 import com.github.multitouchframework.base.processing.gesture.AbstractGestureRecognizer;
 
-import java.util.Collection;
 
 /**
  * Entity responsible for recognizing a pinch/spread/zoom/etc. gesture.
@@ -122,23 +122,24 @@ public class PinchSpreadRecognizer extends AbstractGestureRecognizer<PinchSpread
     }
 
     /**
-     * @see AbstractGestureRecognizer#process(Object, long, TouchTarget, Collection)
+     * @see AbstractGestureRecognizer#process(Object, CursorUpdateEvent)
      */
     @Override
-    protected void process(TouchTargetContext context, long userId, TouchTarget target, Collection<Cursor> cursors) {
+    protected void process(TouchTargetContext context, CursorUpdateEvent event) {
+        CursorFrame cursors = event.getCursorFrame();
         int cursorCount = cursors.size();
 
         // Test this first because it is the most likely to happen
         if (isCursorCountValid(context.previousCursorCount) && isCursorCountValid(cursorCount)) {
             if (context.previousCursorCount == cursorCount) {
-                processPinchOrSpreadPerformed(context, cursors);
+                processPinchOrSpreadPerformed(context, event);
             } else {
                 processValidCursorCountChanged(context, cursors);
             }
         } else if (!isCursorCountValid(context.previousCursorCount) && isCursorCountValid(cursorCount)) {
-            processPinchOrSpreadArmed(context, userId, target, cursors);
+            processPinchOrSpreadArmed(context, event);
         } else if (isCursorCountValid(context.previousCursorCount) && !isCursorCountValid(cursorCount)) {
-            processPinchOrSpreadUnarmed(context);
+            processPinchOrSpreadUnarmed(context, event);
         } else {
             processNothingHappened(context);
         }
@@ -148,32 +149,37 @@ public class PinchSpreadRecognizer extends AbstractGestureRecognizer<PinchSpread
      * Handles the fact that the change of input cursors armed the gesture.
      *
      * @param context Touch target context to be updated.
-     * @param userId  ID of the user performing the gesture.
-     * @param target  Touch target to which the cursors are associated.
-     * @param cursors New input cursors.
+     * @param trigger Cursor update event holding the new input cursors.
      */
-    private void processPinchOrSpreadArmed(TouchTargetContext context, long userId, TouchTarget target,
-                                           Collection<Cursor> cursors) {
+    private void processPinchOrSpreadArmed(TouchTargetContext context, CursorUpdateEvent trigger) {
+        long userId = trigger.getUserId();
+        TouchTarget target = trigger.getTouchTarget();
+        CursorFrame cursors = trigger.getCursorFrame();
+
         // Trigger listeners
-        PinchSpreadEvent event = new PinchSpreadEvent(userId, target, PinchSpreadEvent.State.ARMED, 1.0, 1.0);
+        PinchSpreadEvent event = new PinchSpreadEvent(userId, target, PinchSpreadEvent.State.ARMED, 1.0, 1.0,
+                trigger.getReceiveTime(), trigger.getSequenceNumber());
         fireGestureEvent(event);
 
         // Calculate mean point
         int cursorCount = cursors.size();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
         int meanX = 0;
         int meanY = 0;
-        for (Cursor cursor : cursors) {
-            meanX += cursor.getX();
-            meanY += cursor.getY();
+        for (int i = 0; i < cursorCount; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
         }
         meanX /= cursorCount;
         meanY /= cursorCount;
 
         // Calculate mean distance to mean point
         double meanDistance = 0.0;
-        for (Cursor cursor : cursors) {
-            meanDistance += Math.sqrt((meanX - cursor.getX()) * (meanX - cursor.getX()) + (meanY - cursor.getY()) *
-                    (meanY - cursor.getY()));
+        for (int i = 0; i < cursorCount; i++) {
+            int distanceX = meanX - xs[i];
+            int distanceY = meanY - ys[i];
+            meanDistance += Math.sqrt(distanceX * distanceX + distanceY * distanceY);
         }
         meanDistance /= cursorCount;
 
@@ -190,32 +196,37 @@ public class PinchSpreadRecognizer extends AbstractGestureRecognizer<PinchSpread
      * Handles the fact that the change of input cursors corresponds to a pinch or spread.
      *
      * @param context Touch target context to be used and updated.
-     * @param cursors New input cursors.
+     * @param trigger Cursor update event holding the new input cursors.
      */
-    private void processPinchOrSpreadPerformed(TouchTargetContext context, Collection<Cursor> cursors) {
+    private void processPinchOrSpreadPerformed(TouchTargetContext context, CursorUpdateEvent trigger) {
+        CursorFrame cursors = trigger.getCursorFrame();
+
         // Calculate mean point
         int cursorCount = cursors.size();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
         int meanX = 0;
         int meanY = 0;
-        for (Cursor cursor : cursors) {
-            meanX += cursor.getX();
-            meanY += cursor.getY();
+        for (int i = 0; i < cursorCount; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
         }
         meanX /= cursorCount;
         meanY /= cursorCount;
 
         // Calculate mean distance to mean point
         double meanDistance = 0.0;
-        for (Cursor cursor : cursors) {
-            meanDistance += Math.sqrt((meanX - cursor.getX()) * (meanX - cursor.getX()) + (meanY - cursor.getY()) *
-                    (meanY - cursor.getY()));
+        for (int i = 0; i < cursorCount; i++) {
+            int distanceX = meanX - xs[i];
+            int distanceY = meanY - ys[i];
+            meanDistance += Math.sqrt(distanceX * distanceX + distanceY * distanceY);
         }
         meanDistance /= cursorCount;
 
         // Trigger listeners
         PinchSpreadEvent event = new PinchSpreadEvent(context.userId, context.activeTarget,
                 PinchSpreadEvent.State.PERFORMED, meanDistance / context.previousMeanDistance,
-                meanDistance / context.referenceDistance);
+                meanDistance / context.referenceDistance, trigger.getReceiveTime(), trigger.getSequenceNumber());
         fireGestureEvent(event);
 
         // Save context (no change of reference point or active touch target)
@@ -232,23 +243,26 @@ public class PinchSpreadRecognizer extends AbstractGestureRecognizer<PinchSpread
      * @param context Touch target context to be used and updated.
      * @param cursors New input cursors.
      */
-    private void processValidCursorCountChanged(TouchTargetContext context, Collection<Cursor> cursors) {
+    private void processValidCursorCountChanged(TouchTargetContext context, CursorFrame cursors) {
         // Calculate mean point
         int cursorCount = cursors.size();
+        int[] xs = cursors.getXs();
+        int[] ys = cursors.getYs();
         int meanX = 0;
         int meanY = 0;
-        for (Cursor cursor : cursors) {
-            meanX += cursor.getX();
-            meanY += cursor.getY();
+        for (int i = 0; i < cursorCount; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
         }
         meanX /= cursorCount;
         meanY /= cursorCount;
 
         // Calculate mean distance to mean point
         double meanDistance = 0.0;
-        for (Cursor cursor : cursors) {
-            meanDistance += Math.sqrt((meanX - cursor.getX()) * (meanX - cursor.getX()) + (meanY - cursor.getY()) *
-                    (meanY - cursor.getY()));
+        for (int i = 0; i < cursorCount; i++) {
+            int distanceX = meanX - xs[i];
+            int distanceY = meanY - ys[i];
+            meanDistance += Math.sqrt(distanceX * distanceX + distanceY * distanceY);
         }
         meanDistance /= cursorCount;
 
@@ -267,11 +281,13 @@ public class PinchSpreadRecognizer extends AbstractGestureRecognizer<PinchSpread
      * Handles the fact that the change of input cursors unarmed the gesture.
      *
      * @param context Touch target context to be updated.
+     * @param trigger Cursor update event holding the new input cursors.
      */
-    private void processPinchOrSpreadUnarmed(TouchTargetContext context) {
+    private void processPinchOrSpreadUnarmed(TouchTargetContext context, CursorUpdateEvent trigger) {
         // Trigger listeners
         PinchSpreadEvent event = new PinchSpreadEvent(context.userId, context.activeTarget,
-                PinchSpreadEvent.State.UNARMED, 0, context.previousMeanDistance / context.referenceDistance);
+                PinchSpreadEvent.State.UNARMED, 0, context.previousMeanDistance / context.referenceDistance,
+                trigger.getReceiveTime(), trigger.getSequenceNumber());
         fireGestureEvent(event);
 
         // Clear context
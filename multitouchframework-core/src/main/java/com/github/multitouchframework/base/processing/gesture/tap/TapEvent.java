@@ -27,14 +27,15 @@ package com.github.multitouchframework.base.processing.gesture.tap;
 
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TracedEvent;
 
 /**
  * Event fired when the tap gesture is recognized.
  *
- * @see TouchEvent
+ * @see TracedEvent
  * @see TapRecognizer
  */
-public class TapEvent implements TouchEvent, Cloneable {
+public class TapEvent implements TracedEvent, Cloneable {
 
     /**
      * Possible states of the gesture.
@@ -92,6 +93,17 @@ public class TapEvent implements TouchEvent, Cloneable {
      */
     private final int cursorCount;
 
+    /**
+     * Time at which the input data was received by the input source, in nanoseconds, or
+     * {@link TracedEvent#NO_RECEIVE_TIME}.
+     */
+    private final long receiveTime;
+
+    /**
+     * Sequence number given by the input source to the input data, or {@link TracedEvent#NO_SEQUENCE_NUMBER}.
+     */
+    private final long sequenceNumber;
+
     /**
      * Copy constructor.
      *
@@ -100,11 +112,12 @@ public class TapEvent implements TouchEvent, Cloneable {
      * @see TapEvent#TapEvent(long, TouchTarget, State, int, int)
      */
     public TapEvent(TapEvent event) {
-        this(event.getUserId(), event.getTouchTarget(), event.getState(), event.getTapCount(), event.getCursorCount());
+        this(event.getUserId(), event.getTouchTarget(), event.getState(), event.getTapCount(), event.getCursorCount(),
+                event.getReceiveTime(), event.getSequenceNumber());
     }
 
     /**
-     * Constructor specifying all the information on the gesture.
+     * Constructor specifying all the information on the gesture, without tracing information.
      *
      * @param userId      ID of the user performing the gesture.
      * @param target      Touch target for which the event is produced.
@@ -113,11 +126,29 @@ public class TapEvent implements TouchEvent, Cloneable {
      * @param cursorCount Number of cursors involved for this tap.
      */
     public TapEvent(long userId, TouchTarget target, State state, int tapCount, int cursorCount) {
+        this(userId, target, state, tapCount, cursorCount, TracedEvent.NO_RECEIVE_TIME, TracedEvent.NO_SEQUENCE_NUMBER);
+    }
+
+    /**
+     * Constructor specifying all the information on the gesture, including the tracing information.
+     *
+     * @param userId         ID of the user performing the gesture.
+     * @param target         Touch target for which the event is produced.
+     * @param state          State of the recognized gesture.
+     * @param tapCount       Number of consecutive taps that have been performed, including this one.
+     * @param cursorCount    Number of cursors involved for this tap.
+     * @param receiveTime    Time at which the input data was received by the input source, in nanoseconds.
+     * @param sequenceNumber Sequence number given by the input source to the input data.
+     */
+    public TapEvent(long userId, TouchTarget target, State state, int tapCount, int cursorCount, long receiveTime,
+                    long sequenceNumber) {
         this.userId = userId;
         this.target = target;
         this.state = state;
         this.tapCount = tapCount;
         this.cursorCount = cursorCount;
+        this.receiveTime = receiveTime;
+        this.sequenceNumber = sequenceNumber;
     }
 
     /**
@@ -162,6 +193,22 @@ public class TapEvent implements TouchEvent, Cloneable {
         return cursorCount;
     }
 
+    /**
+     * @see TracedEvent#getReceiveTime()
+     */
+    @Override
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    /**
+     * @see TracedEvent#getSequenceNumber()
+     */
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
     /**
      * @see Object#toString()
      */
@@ -26,16 +26,23 @@
 package com.github.multitouchframework.base.processing.gesture.tap;
 
 import com.github.multitouchframework.api.TouchTarget;
-import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.api.TracedEvent;
+import com.github.multitouchframework.base.cursor.CursorDelta;
+import com.github.multitouchframework.base.cursor.CursorFrame;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
 import com.github.multitouchframework.base.processing.gesture.AbstractGestureRecognizer;
+import com.github.multitouchframework.base.support.LongSet;
 
-import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Entity responsible for recognizing a single-/multiple-tab gesture.
  * <p/>
  * The recognition is made on a per-target basis.
  * <p/>
+ * If the input events carry the changes of their cursors, only the added and moved cursors are checked against the
+ * touch target.
+ * <p/>
  * Note that this recognizer works best after filtering the input and limiting the number of input touch events.
  *
  * @see AbstractGestureRecognizer
@@ -51,13 +58,24 @@ public class TapRecognizer extends AbstractGestureRecognizer<TapRecognizer.Touch
     protected static class TouchTargetContext {
 
         /**
-         * Number of cursors on the last call to {@link #process(TapRecognizer.TouchTargetContext, long, TouchTarget,
-         * Collection)}.
+         * Number of cursors on the last call to {@link #process(TapRecognizer.TouchTargetContext, CursorUpdateEvent)}.
          */
         public int previousCursorCount = 0;
 
         /**
-         * Timestamp of the last recognized tap.
+         * IDs of the cursors that were on the touch target on the last call to {@link
+         * #process(TapRecognizer.TouchTargetContext, CursorUpdateEvent)}.
+         */
+        public final LongSet touchingCursorIds = new LongSet();
+
+        /**
+         * Version of the state of the cursors on the last call to {@link #process(TapRecognizer.TouchTargetContext,
+         * CursorUpdateEvent)}, or {@link CursorDelta#UNKNOWN_VERSION}.
+         */
+        public long cursorVersion = CursorDelta.UNKNOWN_VERSION;
+
+        /**
+         * Timestamp of the last recognized tap, in nanoseconds.
          * <p/>
          * It is used to detect whether the next sub-sequent is part of the same series and the consecutive tap count is
          * to be incremented.
@@ -153,18 +171,23 @@ public class TapRecognizer extends AbstractGestureRecognizer<TapRecognizer.Touch
     }
 
     /**
-     * @see AbstractGestureRecognizer#process(Object, long, TouchTarget, Collection)
+     * @see AbstractGestureRecognizer#process(Object, CursorUpdateEvent)
      */
     @Override
-    protected void process(TouchTargetContext context, long userId, TouchTarget target, Collection<Cursor> cursors) {
+    protected void process(TouchTargetContext context, CursorUpdateEvent trigger) {
+        long userId = trigger.getUserId();
+        TouchTarget target = trigger.getTouchTarget();
+        CursorFrame cursors = trigger.getCursorFrame();
+
         // Check if at least 1 cursor is still on the touch target
-        if (isGestureStillArmed(target, cursors)) {
+        if (isGestureStillArmed(context, target, cursors, trigger.getCursorDelta())) {
             int cursorCount = cursors.size();
-            long tapTimestamp = System.currentTimeMillis();
+            long tapTimestamp = getEventTime(trigger);
 
             if (!isCursorCountValid(context.previousCursorCount) && isCursorCountValid(cursorCount)) {
                 // Just starting a new tap (e.g. some fingers down)
-                if ((tapTimestamp - context.previousTapTimestamp) > consecutiveTapTimeout) {
+                if ((context.consecutiveTapCount == 0) || ((tapTimestamp - context.previousTapTimestamp) >
+                        TimeUnit.MILLISECONDS.toNanos(consecutiveTapTimeout))) {
                     // The tap is the beginning of a new series
                     context.consecutiveTapCount = 1;
                 } else {
@@ -176,18 +199,18 @@ public class TapRecognizer extends AbstractGestureRecognizer<TapRecognizer.Touch
 
                 // Notify listeners that the tap has been armed
                 fireGestureEvent(new TapEvent(userId, target, TapEvent.State.ARMED, context.consecutiveTapCount,
-                        context.previousCursorCount));
+                        context.previousCursorCount, trigger.getReceiveTime(), trigger.getSequenceNumber()));
             } else if (isCursorCountValid(context.previousCursorCount) && !isCursorCountValid(cursorCount)) {
                 // Just finishing to tap (e.g. all fingers up)
                 context.previousTapTimestamp = tapTimestamp;
 
                 // Notify listeners that the tap has been performed
                 fireGestureEvent(new TapEvent(userId, target, TapEvent.State.PERFORMED, context.consecutiveTapCount,
-                        context.previousCursorCount));
+                        context.previousCursorCount, trigger.getReceiveTime(), trigger.getSequenceNumber()));
 
                 // Notify listeners of the tap has been ended
                 fireGestureEvent(new TapEvent(userId, target, TapEvent.State.UNARMED, context.consecutiveTapCount,
-                        context.previousCursorCount));
+                        context.previousCursorCount, trigger.getReceiveTime(), trigger.getSequenceNumber()));
 
                 // Update cursor count only after firing the events
                 context.previousCursorCount = cursorCount;
@@ -198,32 +221,95 @@ public class TapRecognizer extends AbstractGestureRecognizer<TapRecognizer.Touch
 
             // Notify listeners
             fireGestureEvent(new TapEvent(userId, target, TapEvent.State.UNARMED, context.consecutiveTapCount,
-                    context.previousCursorCount));
+                    context.previousCursorCount, trigger.getReceiveTime(), trigger.getSequenceNumber()));
         }
     }
 
+    /**
+     * Gets the time of the specified cursor update event.
+     * <p/>
+     * The time at which the event was received by the input source is used whenever available, so that the consecutive
+     * taps are recognized the same way whatever the delays in the processing chain, and whatever the speed at which a
+     * recorded session is replayed.
+     *
+     * @param event Cursor update event being processed.
+     *
+     * @return Event time in nanoseconds.
+     *
+     * @see TracedEvent#getReceiveTime()
+     */
+    private static long getEventTime(CursorUpdateEvent event) {
+        long eventTime;
+
+        if (event.getReceiveTime() == TracedEvent.NO_RECEIVE_TIME) {
+            eventTime = System.nanoTime();
+        } else {
+            eventTime = event.getReceiveTime();
+        }
+
+        return eventTime;
+    }
+
     /**
      * Checks whether there is at least one cursor on the specified touch target.
      * <p/>
      * If it is the case, it means that tap is still armed.
      *
+     * @param context Context associated to the touch target, holding the cursors that were on the touch target.
      * @param target  Touch target to be checked.
      * @param cursors Cursors to be checked.
+     * @param delta   Changes of the cursors since the last call, or null if unknown.
      *
      * @return True if there is at least one cursor on the touch target, false otherwise.
      */
-    private boolean isGestureStillArmed(TouchTarget target, Collection<Cursor> cursors) {
-        boolean stillArmed = false;
-
-        if (cursors.isEmpty()) {
-            stillArmed = true;
-        } else for (Cursor cursor : cursors) {
-            if (target.isTouched(cursor)) {
-                stillArmed = true;
-                break;
+    private boolean isGestureStillArmed(TouchTargetContext context, TouchTarget target, CursorFrame cursors,
+                                        CursorDelta delta) {
+        LongSet touchingCursorIds = context.touchingCursorIds;
+
+        if ((delta != null) && delta.appliesTo(context.cursorVersion)) {
+            // Only the cursors that changed need to be checked again
+            CursorFrame removedCursors = delta.getRemovedCursors();
+            for (int i = 0; i < removedCursors.size(); i++) {
+                touchingCursorIds.remove(removedCursors.getId(i));
             }
+            updateTouchingCursors(touchingCursorIds, target, cursors, delta.getAddedIndexes(), delta.getAddedCount());
+            updateTouchingCursors(touchingCursorIds, target, cursors, delta.getUpdatedIndexes(),
+                    delta.getUpdatedCount());
+        } else {
+            touchingCursorIds.clear();
+            for (int i = 0; i < cursors.size(); i++) {
+                if (target.isTouched(cursors.getX(i), cursors.getY(i))) {
+                    touchingCursorIds.add(cursors.getId(i));
+                }
+            }
+        }
+
+        if (delta == null) {
+            context.cursorVersion = CursorDelta.UNKNOWN_VERSION;
+        } else {
+            context.cursorVersion = delta.getVersion();
         }
 
-        return stillArmed;
+        return cursors.isEmpty() || !touchingCursorIds.isEmpty();
+    }
+
+    /**
+     * Checks whether the specified cursors are on the touch target, and updates the set of touching cursors.
+     *
+     * @param touchingCursorIds IDs of the cursors on the touch target, to be updated.
+     * @param target            Touch target to be checked.
+     * @param cursors           Cursors of the event.
+     * @param indexes           Indexes of the cursors to be checked.
+     * @param count             Number of cursors to be checked.
+     */
+    private static void updateTouchingCursors(LongSet touchingCursorIds, TouchTarget target, CursorFrame cursors,
+                                              int[] indexes, int count) {
+        for (int i = 0; i < count; i++) {
+            if (target.isTouched(cursors.getX(indexes[i]), cursors.getY(indexes[i]))) {
+                touchingCursorIds.add(cursors.getId(indexes[i]));
+            } else {
+                touchingCursorIds.remove(cursors.getId(indexes[i]));
+            }
+        }
     }
 }
@@ -0,0 +1,658 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.record;
+
+import com.github.multitouchframework.api.TouchListener;
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TracedEvent;
+import com.github.multitouchframework.base.cursor.CursorFrame;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Touch listener recording the cursor update events it receives into memory-mapped segment files, so that they can be
+ * replayed later, for instance using a {@link RecordingReader}.
+ * <p/>
+ * Each event is written as a compact binary frame holding its timestamp, the ID of the user, the ID of the touch
+ * target and the ID and coordinates of each cursor. The timestamp is the time at which the event was received by the
+ * input source if the event is traced, or the time at which it is recorded otherwise. The touch targets are given IDs
+ * in order of appearance (see {@link #getTargetIds()}), and are described in a target table file written next to the
+ * segment files, so that the recorded IDs can be mapped back to touch targets when replaying (see {@link
+ * RecordingReader#getTargets()}). The recorder does not prevent the touch targets from being garbage collected.
+ * <p/>
+ * Writing a frame only copies it into the mapped memory, without any system call and without creating any object. When
+ * a segment is full, the recorder switches to the next segment, which is created and mapped in advance by a background
+ * thread; the full segment is also flushed and closed by this thread, which also writes the target table. If the next
+ * segment is not ready yet, or if a frame is too big to fit in a segment, the frame is dropped rather than blocking the
+ * calling thread (see {@link #getDroppedCount()}).
+ * <p/>
+ * A new recorder replaces any previous recording with the same base name in the same directory: all its segment files
+ * are deleted and its target table is emptied.
+ * <p/>
+ * This recorder is thread-safe, but it is meant to be called mostly from the same thread, typically the thread of the
+ * input source.
+ *
+ * @see RecordingFormat
+ */
+public class CursorRecorder implements TouchListener<CursorUpdateEvent>, Closeable {
+
+    /**
+     * Segment file mapped in memory.
+     */
+    private static class Segment {
+
+        /**
+         * Index of the segment.
+         */
+        private final int index;
+
+        /**
+         * Segment file.
+         */
+        private final File file;
+
+        /**
+         * Channel to the segment file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Memory-mapped content of the segment file, positioned at the end of the data written so far.
+         */
+        private final MappedByteBuffer buffer;
+
+        /**
+         * Capacity of the sparse time index.
+         */
+        private final int indexCapacity;
+
+        /**
+         * Offset of the data region.
+         */
+        private final int dataOffset;
+
+        /**
+         * Number of entries in the sparse time index.
+         */
+        private int indexEntryCount = 0;
+
+        /**
+         * Index of the data block from which the next frame is to be indexed.
+         */
+        private int nextIndexedBlock = 0;
+
+        /**
+         * Creates and maps a new segment file.
+         *
+         * @param file      Segment file to be created.
+         * @param index     Index of the segment.
+         * @param size      Size of the segment file.
+         * @param startTime Time at which the recording started, in milliseconds since the epoch.
+         *
+         * @throws IOException If the segment file could not be created.
+         */
+        public Segment(File file, int index, int size, long startTime) throws IOException {
+            this.index = index;
+            this.file = file;
+
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                randomAccessFile.setLength(size);
+                channel = randomAccessFile.getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                randomAccessFile.close();
+                throw e;
+            }
+
+            // Reserve space for one index entry per data block
+            indexCapacity = (size - RecordingFormat.HEADER_SIZE) / RecordingFormat.INDEX_BLOCK_SIZE + 1;
+            dataOffset = RecordingFormat.HEADER_SIZE + indexCapacity * RecordingFormat.INDEX_ENTRY_SIZE;
+
+            // Write header
+            buffer.putInt(0, RecordingFormat.MAGIC);
+            buffer.putShort(4, RecordingFormat.VERSION);
+            buffer.putInt(RecordingFormat.SEGMENT_INDEX_OFFSET, index);
+            buffer.putInt(RecordingFormat.INDEX_ENTRY_COUNT_OFFSET, 0);
+            buffer.putInt(RecordingFormat.INDEX_CAPACITY_OFFSET, indexCapacity);
+            buffer.putInt(RecordingFormat.DATA_OFFSET_OFFSET, dataOffset);
+            buffer.putInt(RecordingFormat.DATA_END_OFFSET, dataOffset);
+            buffer.putLong(RecordingFormat.START_TIME_OFFSET, startTime);
+            buffer.position(dataOffset);
+        }
+
+        /**
+         * Writes the specified frame at the end of the data of this segment.
+         * <p/>
+         * The frame is expected to fit in the remaining space.
+         *
+         * @param frameSize Size of the frame, as computed from the number of cursors.
+         * @param timestamp Timestamp of the frame, in nanoseconds since the recording started.
+         * @param userId    ID of the user.
+         * @param targetId  ID of the touch target.
+         * @param cursors   Cursors of the frame.
+         */
+        public void write(int frameSize, long timestamp, long userId, int targetId, CursorFrame cursors) {
+            int frameOffset = buffer.position();
+
+            // Index the first frame starting in each data block
+            int block = (frameOffset - dataOffset) / RecordingFormat.INDEX_BLOCK_SIZE;
+            if ((block >= nextIndexedBlock) && (indexEntryCount < indexCapacity)) {
+                int entryOffset = RecordingFormat.HEADER_SIZE + indexEntryCount * RecordingFormat.INDEX_ENTRY_SIZE;
+                buffer.putLong(entryOffset, timestamp);
+                buffer.putInt(entryOffset + 8, frameOffset);
+                indexEntryCount++;
+                buffer.putInt(RecordingFormat.INDEX_ENTRY_COUNT_OFFSET, indexEntryCount);
+                nextIndexedBlock = block + 1;
+            }
+
+            // Write the fixed part, leaving the cursor count to be written at the end
+            buffer.putInt(frameSize);
+            buffer.putInt(targetId);
+            buffer.putLong(timestamp);
+            buffer.putLong(userId);
+            buffer.putInt(0);
+            buffer.putInt(0);
+
+            // Write the cursors, without exceeding the space computed for the frame
+            int maxCursorCount = (frameSize - RecordingFormat.FRAME_HEADER_SIZE) / RecordingFormat.CURSOR_SIZE;
+            int cursorCount = Math.min(cursors.size(), maxCursorCount);
+            long[] ids = cursors.getIds();
+            int[] xs = cursors.getXs();
+            int[] ys = cursors.getYs();
+            for (int i = 0; i < cursorCount; i++) {
+                buffer.putLong(ids[i]);
+                buffer.putInt(xs[i]);
+                buffer.putInt(ys[i]);
+            }
+
+            // Fix the frame if some cursors did not fit
+            int actualFrameSize = RecordingFormat.FRAME_HEADER_SIZE + cursorCount * RecordingFormat.CURSOR_SIZE;
+            buffer.putInt(frameOffset, actualFrameSize);
+            buffer.putInt(frameOffset + RecordingFormat.FRAME_CURSOR_COUNT_OFFSET, cursorCount);
+            buffer.position(frameOffset + actualFrameSize);
+
+            // Publish the frame to the readers
+            buffer.putInt(RecordingFormat.DATA_END_OFFSET, buffer.position());
+        }
+
+        /**
+         * Flushes the content of this segment to the disk and closes the segment file.
+         *
+         * @throws IOException If the segment file could not be flushed or closed.
+         */
+        public void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Task creating and mapping a segment file in the background.
+     */
+    private class SegmentCreator implements Callable<Segment> {
+
+        /**
+         * Index of the segment to be created.
+         */
+        private final int index;
+
+        /**
+         * Constructor specifying the index of the segment to be created.
+         *
+         * @param index Index of the segment to be created.
+         */
+        public SegmentCreator(int index) {
+            this.index = index;
+        }
+
+        /**
+         * @see Callable#call()
+         */
+        @Override
+        public Segment call() throws IOException {
+            return new Segment(RecordingFormat.getSegmentFile(directory, baseName, index), index, segmentSize,
+                    startTime);
+        }
+    }
+
+    /**
+     * Task flushing and closing a segment in the background.
+     */
+    private static class SegmentCloser implements Runnable {
+
+        /**
+         * Segment to be closed.
+         */
+        private final Segment segment;
+
+        /**
+         * Constructor specifying the segment to be closed.
+         *
+         * @param segment Segment to be closed.
+         */
+        public SegmentCloser(Segment segment) {
+            this.segment = segment;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                LOGGER.error("Could not close segment file " + segment.file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Task appending the description of a touch target to the target table file in the background.
+     */
+    private class TargetTableWriter implements Runnable {
+
+        /**
+         * Line describing the touch target.
+         */
+        private final String line;
+
+        /**
+         * Constructor specifying the touch target to be described and its ID.
+         * <p/>
+         * The description is built immediately, so that this task does not hold the touch target.
+         *
+         * @param targetId ID given to the touch target.
+         * @param target   Touch target to be described.
+         */
+        public TargetTableWriter(int targetId, TouchTarget target) {
+            line = Integer.toString(targetId) + RecordingFormat.TARGET_TABLE_SEPARATOR + target.getClass().getName() +
+                    RecordingFormat.TARGET_TABLE_SEPARATOR + String.valueOf(target).replaceAll("[\\t\\r\\n]", " ")
+                    + '\n';
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                Writer writer = new OutputStreamWriter(new FileOutputStream(targetTableFile, true), RecordingFormat
+                        .TARGET_TABLE_CHARSET);
+                try {
+                    writer.write(line);
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                LOGGER.error("Could not write target table file " + targetTableFile + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CursorRecorder.class);
+
+    /**
+     * Default size of the segment files.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Number of background threads created so far, used to name them.
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+    /**
+     * Directory containing the segment files.
+     */
+    private final File directory;
+
+    /**
+     * Base name of the segment files.
+     */
+    private final String baseName;
+
+    /**
+     * Size of the segment files.
+     */
+    private final int segmentSize;
+
+    /**
+     * Time at which the recording started, in milliseconds since the epoch.
+     */
+    private final long startTime;
+
+    /**
+     * Time at which the recording started, in nanoseconds, used as origin of the frame timestamps.
+     */
+    private final long startNanoTime;
+
+    /**
+     * File describing the touch targets.
+     */
+    private final File targetTableFile;
+
+    /**
+     * Executor creating and closing the segment files, and writing the target table, in the background.
+     */
+    private final ExecutorService segmentExecutor;
+
+    /**
+     * IDs given to the touch targets, in order of appearance.
+     * <p/>
+     * The touch targets are weakly referenced, so that recording does not prevent them from being garbage collected.
+     * Access to this map must be synchronized on this recorder.
+     */
+    private final Map<TouchTarget, Integer> targetIds = new WeakHashMap<TouchTarget, Integer>();
+
+    /**
+     * ID to be given to the next new touch target.
+     * <p/>
+     * Access to this field must be synchronized on this recorder.
+     */
+    private int nextTargetId = 0;
+
+    /**
+     * Segment currently written.
+     */
+    private Segment currentSegment;
+
+    /**
+     * Next segment being created in the background.
+     */
+    private Future<Segment> nextSegment;
+
+    /**
+     * Flag indicating whether the recorder has been closed.
+     * <p/>
+     * Access to this field must be synchronized on this recorder. Once it is set, the segments are no longer accessed
+     * by the other methods.
+     */
+    private boolean closed = false;
+
+    /**
+     * Number of frames recorded.
+     */
+    private final AtomicLong recordedCount = new AtomicLong(0);
+
+    /**
+     * Number of events that could not be recorded.
+     */
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    /**
+     * Constructor specifying the directory and the base name of the segment files, and using the default segment size.
+     *
+     * @param directory Directory in which the segment files are to be created.
+     * @param baseName  Base name of the segment files.
+     *
+     * @throws IOException If a previous recording could not be replaced or if the first segment file could not be
+     *                     created.
+     */
+    public CursorRecorder(File directory, String baseName) throws IOException {
+        this(directory, baseName, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor specifying the directory and the base name of the segment files, and the size of the segment files.
+     *
+     * @param directory   Directory in which the segment files are to be created.
+     * @param baseName    Base name of the segment files.
+     * @param segmentSize Size of each segment file, in bytes.
+     *
+     * @throws IOException If a previous recording could not be replaced or if the first segment file or the target
+     *                     table file could not be created.
+     */
+    public CursorRecorder(File directory, String baseName, int segmentSize) throws IOException {
+        if (segmentSize < RecordingFormat.HEADER_SIZE + RecordingFormat.INDEX_ENTRY_SIZE + RecordingFormat
+                .FRAME_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.baseName = baseName;
+        this.segmentSize = segmentSize;
+        startTime = System.currentTimeMillis();
+        startNanoTime = System.nanoTime();
+
+        // Delete the segments of any previous recording with the same name, so that they are not read with the new ones
+        for (File previousSegmentFile : RecordingFormat.listSegmentFiles(directory, baseName)) {
+            if (!previousSegmentFile.delete()) {
+                throw new IOException("Could not delete segment file of previous recording: " + previousSegmentFile);
+            }
+        }
+
+        // Create an empty target table, replacing the one of any previous recording with the same name
+        targetTableFile = RecordingFormat.getTargetTableFile(directory, baseName);
+        new FileOutputStream(targetTableFile).close();
+
+        segmentExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "CursorRecorder-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // Create the first segment synchronously and prepare the next one
+        try {
+            currentSegment = new SegmentCreator(0).call();
+        } catch (IOException e) {
+            segmentExecutor.shutdown();
+            throw e;
+        }
+        nextSegment = segmentExecutor.submit(new SegmentCreator(1));
+    }
+
+    /**
+     * Gets the time at which the recording started.
+     *
+     * @return Start time in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Gets the IDs given so far to the touch targets of the recorded events.
+     * <p/>
+     * The touch targets that have been garbage collected since they were recorded are not included.
+     *
+     * @return Read-only copy of the map of touch targets to IDs.
+     */
+    public synchronized Map<TouchTarget, Integer> getTargetIds() {
+        return Collections.unmodifiableMap(new HashMap<TouchTarget, Integer>(targetIds));
+    }
+
+    /**
+     * Gets the number of frames recorded.
+     *
+     * @return Recorded frame count.
+     */
+    public long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    /**
+     * Gets the number of events that could not be recorded.
+     *
+     * @return Dropped event count.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Records the specified event.
+     *
+     * @see TouchListener#processTouchEvent(com.github.multitouchframework.api.TouchEvent)
+     */
+    @Override
+    public synchronized void processTouchEvent(CursorUpdateEvent event) {
+        long time = (event.getReceiveTime() == TracedEvent.NO_RECEIVE_TIME) ? System.nanoTime() : event
+                .getReceiveTime();
+        CursorFrame cursors = event.getCursorFrame();
+        int frameSize = RecordingFormat.FRAME_HEADER_SIZE + cursors.size() * RecordingFormat.CURSOR_SIZE;
+
+        if (closed) {
+            droppedCount.incrementAndGet();
+        } else if ((currentSegment.buffer.remaining() < frameSize) && !switchSegment(frameSize)) {
+            droppedCount.incrementAndGet();
+        } else {
+            currentSegment.write(frameSize, time - startNanoTime, event.getUserId(), getTargetId(event
+                    .getTouchTarget()), cursors);
+            recordedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the ID of the specified touch target, giving it a new ID and describing it in the target table if it is the
+     * first time it is recorded.
+     *
+     * @param target Touch target.
+     *
+     * @return Touch target ID.
+     */
+    private int getTargetId(TouchTarget target) {
+        int targetId;
+
+        if (target == null) {
+            targetId = RecordingFormat.NO_TARGET_ID;
+        } else {
+            Integer knownId = targetIds.get(target);
+            if (knownId == null) {
+                targetId = nextTargetId++;
+                targetIds.put(target, targetId);
+                segmentExecutor.execute(new TargetTableWriter(targetId, target));
+            } else {
+                targetId = knownId;
+            }
+        }
+
+        return targetId;
+    }
+
+    /**
+     * Switches to the next segment, if it is ready.
+     *
+     * @param frameSize Size of the frame to be written in the next segment.
+     *
+     * @return True if the frame can be written in the next segment, false otherwise.
+     */
+    private boolean switchSegment(int frameSize) {
+        boolean switched = false;
+
+        // All segments have the same layout
+        int maxFrameSize = segmentSize - currentSegment.dataOffset;
+        if ((frameSize <= maxFrameSize) && nextSegment.isDone()) {
+            try {
+                Segment segment = nextSegment.get();
+                segmentExecutor.execute(new SegmentCloser(currentSegment));
+                currentSegment = segment;
+                switched = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                LOGGER.error("Could not create segment file: " + e.getCause().getMessage(), e.getCause());
+            }
+
+            // Prepare the following segment, or try again to create the failed one
+            nextSegment = segmentExecutor.submit(new SegmentCreator(currentSegment.index + 1));
+        }
+
+        return switched;
+    }
+
+    /**
+     * Flushes and closes the current segment, and deletes the next segment prepared in advance.
+     * <p/>
+     * The events received after this call are dropped. The files are flushed and closed without holding the lock of
+     * this recorder, so that the threads recording events are not blocked in the meantime.
+     *
+     * @see Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        boolean closing;
+        synchronized (this) {
+            closing = !closed;
+            closed = true;
+        }
+
+        if (closing) {
+            // Delete the segment prepared in advance
+            try {
+                Segment segment = nextSegment.get();
+                segment.channel.close();
+                if (!segment.file.delete()) {
+                    LOGGER.warn("Could not delete unused segment file " + segment.file);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Nothing was created
+            }
+
+            // Wait for the previous segments to be closed
+            segmentExecutor.shutdown();
+            try {
+                segmentExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            currentSegment.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.record;
+
+/**
+ * Description of a touch target of a recording, as written by the {@link CursorRecorder} in the target table.
+ * <p/>
+ * The touch targets themselves are not recorded. This description allows to map the recorded touch target IDs to the
+ * touch targets of the application when replaying the recording.
+ *
+ * @see RecordingReader#getTargets()
+ * @see com.github.multitouchframework.base.processing.source.ReplaySource#setTargets(java.util.Map)
+ */
+public class RecordedTarget {
+
+    /**
+     * ID given to the touch target in the recording.
+     */
+    private final int id;
+
+    /**
+     * Name of the class of the touch target.
+     */
+    private final String className;
+
+    /**
+     * String representation of the touch target.
+     */
+    private final String name;
+
+    /**
+     * Constructor specifying the ID, the class name and the string representation of the touch target.
+     *
+     * @param id        ID given to the touch target in the recording.
+     * @param className Name of the class of the touch target.
+     * @param name      String representation of the touch target.
+     */
+    public RecordedTarget(int id, String className, String name) {
+        this.id = id;
+        this.className = className;
+        this.name = name;
+    }
+
+    /**
+     * Gets the ID given to the touch target in the recording.
+     *
+     * @return Touch target ID.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the name of the class of the touch target.
+     *
+     * @return Fully qualified class name.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Gets the string representation of the touch target, as returned by its {@link Object#toString()} method when it
+     * was recorded.
+     *
+     * @return String representation of the touch target.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "TARGET{id=" + id + "; class=" + className + "} " + name;
+    }
+}
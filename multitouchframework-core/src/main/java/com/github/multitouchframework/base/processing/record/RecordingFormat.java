@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.record;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Binary format of the segment files written by the {@link CursorRecorder} and read by the {@link RecordingReader}.
+ * <p/>
+ * A recording is made of segment files of fixed size, named &lt;baseName&gt;-&lt;segmentIndex&gt;.mtfr. Each segment
+ * file is laid out as follows (all values in big-endian order):
+ * <ul>
+ * <li>Header ({@value #HEADER_SIZE} bytes): magic number, format version, segment index, number of index entries,
+ * capacity of the index, offset of the data region, end of the data written so far, and time at which the recording
+ * started (milliseconds since the epoch).</li>
+ * <li>Sparse time index: one entry for each block of {@value #INDEX_BLOCK_SIZE} bytes of the data region, holding the
+ * timestamp and the offset of the first frame starting in the block.</li>
+ * <li>Data region: frames one after the other. Each frame holds its length, the ID of the touch target, its timestamp
+ * (nanoseconds since the recording started), the ID of the user and the number of cursors, followed by the ID and the
+ * coordinates of each cursor.</li>
+ * </ul>
+ * The touch targets are described in a text file named &lt;baseName&gt;.targets, encoded in UTF-8 and holding one line
+ * per touch target, in order of appearance: the ID of the touch target, the name of its class and its string
+ * representation, separated by tabs.
+ */
+final class RecordingFormat {
+
+    /**
+     * Magic number at the beginning of each segment file ("MTFR").
+     */
+    static final int MAGIC = 0x4D544652;
+
+    /**
+     * Version of the format.
+     */
+    static final short VERSION = 1;
+
+    /**
+     * Extension of the segment files.
+     */
+    static final String EXTENSION = ".mtfr";
+
+    /**
+     * Extension of the target table file.
+     */
+    static final String TARGET_TABLE_EXTENSION = ".targets";
+
+    /**
+     * Encoding of the target table file.
+     */
+    static final Charset TARGET_TABLE_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Separator of the fields of the lines of the target table file.
+     */
+    static final char TARGET_TABLE_SEPARATOR = '\t';
+
+    /**
+     * Offset of the segment index in the header.
+     */
+    static final int SEGMENT_INDEX_OFFSET = 8;
+
+    /**
+     * Offset of the number of index entries in the header.
+     */
+    static final int INDEX_ENTRY_COUNT_OFFSET = 12;
+
+    /**
+     * Offset of the capacity of the index in the header.
+     */
+    static final int INDEX_CAPACITY_OFFSET = 16;
+
+    /**
+     * Offset of the offset of the data region in the header.
+     */
+    static final int DATA_OFFSET_OFFSET = 20;
+
+    /**
+     * Offset of the end of the data written so far in the header.
+     */
+    static final int DATA_END_OFFSET = 24;
+
+    /**
+     * Offset of the start time of the recording in the header.
+     */
+    static final int START_TIME_OFFSET = 32;
+
+    /**
+     * Size of the header.
+     */
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * Size of an entry of the sparse time index.
+     */
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    /**
+     * Size of the blocks of the data region for which an index entry is created.
+     */
+    static final int INDEX_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Size of the fixed part of a frame.
+     */
+    static final int FRAME_HEADER_SIZE = 32;
+
+    /**
+     * Offset of the ID of the touch target in a frame.
+     */
+    static final int FRAME_TARGET_ID_OFFSET = 4;
+
+    /**
+     * Offset of the timestamp in a frame.
+     */
+    static final int FRAME_TIMESTAMP_OFFSET = 8;
+
+    /**
+     * Offset of the ID of the user in a frame.
+     */
+    static final int FRAME_USER_ID_OFFSET = 16;
+
+    /**
+     * Offset of the number of cursors in a frame.
+     */
+    static final int FRAME_CURSOR_COUNT_OFFSET = 24;
+
+    /**
+     * Size of a cursor in a frame.
+     */
+    static final int CURSOR_SIZE = 16;
+
+    /**
+     * Target ID recorded for events having no touch target.
+     */
+    static final int NO_TARGET_ID = -1;
+
+    /**
+     * Pattern of the name of the segment files, capturing the base name and the segment index.
+     */
+    private static final Pattern SEGMENT_NAME_PATTERN = Pattern.compile("(.*)-(\\d+)\\" + EXTENSION);
+
+    /**
+     * Private constructor for utility class.
+     */
+    private RecordingFormat() {
+        // Nothing to be done
+    }
+
+    /**
+     * Gets the file of the specified segment.
+     *
+     * @param directory    Directory containing the segment files.
+     * @param baseName     Base name of the recording.
+     * @param segmentIndex Index of the segment.
+     *
+     * @return Segment file.
+     */
+    static File getSegmentFile(File directory, String baseName, int segmentIndex) {
+        return new File(directory, String.format("%s-%05d%s", baseName, segmentIndex, EXTENSION));
+    }
+
+    /**
+     * Gets the target table file of the specified recording.
+     *
+     * @param directory Directory containing the segment files.
+     * @param baseName  Base name of the recording.
+     *
+     * @return Target table file.
+     */
+    static File getTargetTableFile(File directory, String baseName) {
+        return new File(directory, baseName + TARGET_TABLE_EXTENSION);
+    }
+
+    /**
+     * Lists the segment files of the specified recording, in order of segment index.
+     *
+     * @param directory Directory containing the segment files.
+     * @param baseName  Base name of the recording.
+     *
+     * @return Segment files, possibly empty.
+     */
+    static File[] listSegmentFiles(File directory, final String baseName) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                Matcher matcher = SEGMENT_NAME_PATTERN.matcher(name);
+                return matcher.matches() && matcher.group(1).equals(baseName);
+            }
+        });
+
+        if (files == null) {
+            files = new File[0];
+        } else {
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File file1, File file2) {
+                    return Long.valueOf(getSegmentIndex(file1)).compareTo(getSegmentIndex(file2));
+                }
+            });
+        }
+
+        return files;
+    }
+
+    /**
+     * Gets the index of the segment from the name of the specified segment file.
+     *
+     * @param file Segment file.
+     *
+     * @return Segment index.
+     */
+    private static long getSegmentIndex(File file) {
+        Matcher matcher = SEGMENT_NAME_PATTERN.matcher(file.getName());
+        matcher.matches();
+        return Long.parseLong(matcher.group(2));
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.record;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader of the frames recorded by a {@link CursorRecorder}.
+ * <p/>
+ * The frames are read one after the other with {@link #next()}, and the content of the current frame is accessed with
+ * the getters of this reader, so that reading a recording does not create any object. The reader can also be moved to
+ * any time of the recording with {@link #seek(long)}, thanks to the sparse time index of the segments.
+ * <p/>
+ * The segment files are mapped in memory when the reader is created. A recording still being written can be read, but
+ * the segments created and the touch targets described after the reader are ignored.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @see RecordingFormat
+ */
+public class RecordingReader implements Closeable {
+
+    /**
+     * Segment file mapped in memory.
+     */
+    private static class Segment {
+
+        /**
+         * Channel to the segment file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Memory-mapped content of the segment file.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Offset of the data region.
+         */
+        private final int dataOffset;
+
+        /**
+         * Maps the specified segment file.
+         *
+         * @param file Segment file.
+         *
+         * @throws IOException If the file could not be mapped or is not a segment file.
+         */
+        public Segment(File file) throws IOException {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                channel = randomAccessFile.getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if ((buffer.capacity() < RecordingFormat.HEADER_SIZE) || (buffer.getInt(0) != RecordingFormat.MAGIC)) {
+                    throw new IOException("Not a recording segment file: " + file);
+                }
+                if (buffer.getShort(4) != RecordingFormat.VERSION) {
+                    throw new IOException("Unsupported recording format version " + buffer.getShort(4) + ": " + file);
+                }
+            } catch (IOException e) {
+                randomAccessFile.close();
+                throw e;
+            }
+            dataOffset = buffer.getInt(RecordingFormat.DATA_OFFSET_OFFSET);
+        }
+
+        /**
+         * Gets the end of the data written so far.
+         *
+         * @return Data end offset.
+         */
+        public int getDataEnd() {
+            return buffer.getInt(RecordingFormat.DATA_END_OFFSET);
+        }
+
+        /**
+         * Gets the number of entries written so far in the sparse time index.
+         *
+         * @return Index entry count.
+         */
+        public int getIndexEntryCount() {
+            return buffer.getInt(RecordingFormat.INDEX_ENTRY_COUNT_OFFSET);
+        }
+
+        /**
+         * Gets the timestamp of the specified entry of the sparse time index.
+         *
+         * @param entry Index of the entry.
+         *
+         * @return Timestamp of the first frame of the data block.
+         */
+        public long getIndexedTimestamp(int entry) {
+            return buffer.getLong(RecordingFormat.HEADER_SIZE + entry * RecordingFormat.INDEX_ENTRY_SIZE);
+        }
+
+        /**
+         * Gets the frame offset of the specified entry of the sparse time index.
+         *
+         * @param entry Index of the entry.
+         *
+         * @return Offset of the first frame of the data block.
+         */
+        public int getIndexedOffset(int entry) {
+            return buffer.getInt(RecordingFormat.HEADER_SIZE + entry * RecordingFormat.INDEX_ENTRY_SIZE + 8);
+        }
+    }
+
+    /**
+     * Descriptions of the touch targets of the recording, by ID.
+     */
+    private final Map<Integer, RecordedTarget> targets;
+
+    /**
+     * Segments of the recording, in order.
+     */
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    /**
+     * Index of the segment containing the next frame.
+     */
+    private int segmentIndex = 0;
+
+    /**
+     * Offset of the next frame in its segment.
+     */
+    private int nextFrameOffset = 0;
+
+    /**
+     * Content of the segment of the current frame.
+     */
+    private ByteBuffer frameBuffer = null;
+
+    /**
+     * Offset of the current frame in its segment.
+     */
+    private int frameOffset = 0;
+
+    /**
+     * Constructor specifying the directory and the base name of the segment files of the recording.
+     *
+     * @param directory Directory containing the segment files.
+     * @param baseName  Base name of the segment files.
+     *
+     * @throws IOException If no segment file could be found, or if a segment file or the target table file could not be
+     *                     read.
+     */
+    public RecordingReader(File directory, String baseName) throws IOException {
+        File[] files = RecordingFormat.listSegmentFiles(directory, baseName);
+        if (files.length == 0) {
+            throw new IOException("No recording " + baseName + " found in " + directory);
+        }
+
+        try {
+            for (File file : files) {
+                segments.add(new Segment(file));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+
+        nextFrameOffset = segments.get(0).dataOffset;
+
+        try {
+            targets = readTargetTable(RecordingFormat.getTargetTableFile(directory, baseName));
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the specified target table file.
+     *
+     * @param file Target table file.
+     *
+     * @return Read-only map of touch target IDs to descriptions, empty if the file does not exist.
+     *
+     * @throws IOException If the file could not be read.
+     */
+    private static Map<Integer, RecordedTarget> readTargetTable(File file) throws IOException {
+        Map<Integer, RecordedTarget> readTargets = new LinkedHashMap<Integer, RecordedTarget>();
+
+        if (file.exists()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                    RecordingFormat.TARGET_TABLE_CHARSET));
+            try {
+                String line = reader.readLine();
+                while (line != null) {
+                    String[] fields = line.split(String.valueOf(RecordingFormat.TARGET_TABLE_SEPARATOR), 3);
+                    if (fields.length == 3) {
+                        try {
+                            int id = Integer.parseInt(fields[0]);
+                            readTargets.put(id, new RecordedTarget(id, fields[1], fields[2]));
+                        } catch (NumberFormatException e) {
+                            // Ignore lines that could not be fully written, for instance after a crash
+                        }
+                    }
+                    line = reader.readLine();
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        return Collections.unmodifiableMap(readTargets);
+    }
+
+    /**
+     * Gets the time at which the recording started.
+     *
+     * @return Start time in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return segments.get(0).buffer.getLong(RecordingFormat.START_TIME_OFFSET);
+    }
+
+    /**
+     * Gets the descriptions of the touch targets of the recording.
+     * <p/>
+     * They can be used to map the recorded touch target IDs to the touch targets of the application when replaying the
+     * recording.
+     *
+     * @return Read-only map of touch target IDs to descriptions, in order of appearance.
+     *
+     * @see com.github.multitouchframework.base.processing.source.ReplaySource#setTargets(Map)
+     */
+    public Map<Integer, RecordedTarget> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Moves to the next frame.
+     *
+     * @return True if there is a next frame, false if the end of the recording is reached.
+     */
+    public boolean next() {
+        boolean found = false;
+
+        while (!found && (segmentIndex < segments.size())) {
+            Segment segment = segments.get(segmentIndex);
+            if (nextFrameOffset < segment.getDataEnd()) {
+                // Frame available in this segment
+                frameBuffer = segment.buffer;
+                frameOffset = nextFrameOffset;
+                nextFrameOffset += frameBuffer.getInt(frameOffset);
+                found = true;
+            } else if (segmentIndex < segments.size() - 1) {
+                // Continue with next segment
+                segmentIndex++;
+                nextFrameOffset = segments.get(segmentIndex).dataOffset;
+            } else {
+                // End of the last segment
+                break;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Moves before the first frame whose timestamp is greater than or equal to the specified timestamp, so that this
+     * frame is the one returned by the next call to {@link #next()}.
+     * <p/>
+     * The segments and their indexes are searched by bisection, and then at most one data block is scanned. This
+     * assumes that the frames were recorded in order of timestamp.
+     *
+     * @param timestamp Timestamp to be searched for, in nanoseconds since the recording started.
+     */
+    public void seek(long timestamp) {
+        // Find the last segment starting before the timestamp
+        int low = 0;
+        int high = segments.size() - 1;
+        int foundSegment = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Segment segment = segments.get(middle);
+            if ((segment.getIndexEntryCount() > 0) && (segment.getIndexedTimestamp(0) <= timestamp)) {
+                foundSegment = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        // Find the last indexed data block starting before the timestamp
+        Segment segment = segments.get(foundSegment);
+        low = 0;
+        high = segment.getIndexEntryCount() - 1;
+        int foundOffset = segment.dataOffset;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (segment.getIndexedTimestamp(middle) <= timestamp) {
+                foundOffset = segment.getIndexedOffset(middle);
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        // Scan the frames up to the timestamp
+        segmentIndex = foundSegment;
+        nextFrameOffset = foundOffset;
+        frameBuffer = null;
+        int previousSegmentIndex = segmentIndex;
+        int previousFrameOffset = nextFrameOffset;
+        while (next()) {
+            if (getTimestamp() >= timestamp) {
+                // Step back so that this frame is read next
+                segmentIndex = previousSegmentIndex;
+                nextFrameOffset = previousFrameOffset;
+                break;
+            }
+            previousSegmentIndex = segmentIndex;
+            previousFrameOffset = nextFrameOffset;
+        }
+        frameBuffer = null;
+    }
+
+    /**
+     * Gets the timestamp of the current frame.
+     *
+     * @return Timestamp in nanoseconds since the recording started.
+     */
+    public long getTimestamp() {
+        return frameBuffer.getLong(frameOffset + RecordingFormat.FRAME_TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * Gets the ID of the user of the current frame.
+     *
+     * @return User ID.
+     */
+    public long getUserId() {
+        return frameBuffer.getLong(frameOffset + RecordingFormat.FRAME_USER_ID_OFFSET);
+    }
+
+    /**
+     * Gets the ID of the touch target of the current frame.
+     *
+     * @return Touch target ID as given by the recorder, or a negative value if the event had no touch target.
+     *
+     * @see CursorRecorder#getTargetIds()
+     */
+    public int getTargetId() {
+        return frameBuffer.getInt(frameOffset + RecordingFormat.FRAME_TARGET_ID_OFFSET);
+    }
+
+    /**
+     * Gets the number of cursors of the current frame.
+     *
+     * @return Cursor count.
+     */
+    public int getCursorCount() {
+        return frameBuffer.getInt(frameOffset + RecordingFormat.FRAME_CURSOR_COUNT_OFFSET);
+    }
+
+    /**
+     * Gets the ID of the specified cursor of the current frame.
+     *
+     * @param cursor Index of the cursor in the frame.
+     *
+     * @return Cursor ID.
+     */
+    public long getCursorId(int cursor) {
+        return frameBuffer.getLong(getCursorOffset(cursor));
+    }
+
+    /**
+     * Gets the X coordinate of the specified cursor of the current frame.
+     *
+     * @param cursor Index of the cursor in the frame.
+     *
+     * @return X coordinate of the cursor.
+     */
+    public int getCursorX(int cursor) {
+        return frameBuffer.getInt(getCursorOffset(cursor) + 8);
+    }
+
+    /**
+     * Gets the Y coordinate of the specified cursor of the current frame.
+     *
+     * @param cursor Index of the cursor in the frame.
+     *
+     * @return Y coordinate of the cursor.
+     */
+    public int getCursorY(int cursor) {
+        return frameBuffer.getInt(getCursorOffset(cursor) + 12);
+    }
+
+    /**
+     * Gets the offset of the specified cursor of the current frame in its segment.
+     *
+     * @param cursor Index of the cursor in the frame.
+     *
+     * @return Cursor offset.
+     */
+    private int getCursorOffset(int cursor) {
+        return frameOffset + RecordingFormat.FRAME_HEADER_SIZE + cursor * RecordingFormat.CURSOR_SIZE;
+    }
+
+    /**
+     * Closes all segment files.
+     *
+     * @see Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+}
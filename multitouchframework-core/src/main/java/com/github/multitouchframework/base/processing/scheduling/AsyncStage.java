@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.scheduling;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.base.processing.filter.AbstractFilter;
+import com.github.multitouchframework.base.support.ReferenceCounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Processing block re-scheduling the processing of {@link TouchEvent}s on its own worker thread.
+ * <p/>
+ * The events are handed over to the worker thread through a preallocated ring buffer, so that the thread producing
+ * the events (typically the network thread of an input source) does not have to wait for the next blocks to process
+ * them. When the next blocks cannot keep up, the ring buffer fills up and the {@link OverflowPolicy} decides what
+ * happens to the new events.
+ * <p/>
+ * Note that the ring buffer supports a single producer: all events must be fed to this block from the same thread, or
+ * at least never concurrently.
+ * <p/>
+ * Pooled events are retained while they are pending, and released once processed or dropped.
+ *
+ * @param <E> Type of event to be forwarded by this block to the queued blocks.
+ *
+ * @see AbstractFilter
+ */
+public class AsyncStage<E extends TouchEvent> extends AbstractFilter<E> {
+
+    /**
+     * Possible strategies for the worker thread to wait for new events, and for the producer to wait for free space
+     * when using {@link OverflowPolicy#BLOCK}.
+     */
+    public static enum WaitStrategy {
+
+        /**
+         * The waiting thread is suspended until it is signaled.
+         * <p/>
+         * This is the most CPU-friendly strategy, but it adds the cost of the signaling to the other thread.
+         */
+        BLOCKING,
+
+        /**
+         * The waiting thread repeatedly yields to other threads.
+         */
+        YIELDING,
+
+        /**
+         * The waiting thread actively spins.
+         * <p/>
+         * This offers the lowest latency, but it keeps a CPU core busy.
+         */
+        BUSY_SPINNING,
+
+        /**
+         * The waiting thread is repeatedly parked for a short time.
+         */
+        PARKING
+    }
+
+    /**
+     * Possible policies when an event is to be processed while the ring buffer is full.
+     */
+    public static enum OverflowPolicy {
+
+        /**
+         * The producer waits until there is free space in the ring buffer.
+         * <p/>
+         * No event is lost, but the producer is slowed down to the pace of the next blocks.
+         */
+        BLOCK,
+
+        /**
+         * The oldest pending event is dropped to make space for the new event.
+         */
+        DROP_OLDEST,
+
+        /**
+         * All pending events are dropped and only the new event is kept.
+         * <p/>
+         * This is suitable when each event carries the complete state, like {@link com.github.multitouchframework.base
+         * .cursor.CursorUpdateEvent}s.
+         */
+        LATEST_WINS
+    }
+
+    /**
+     * Runnable processing the events of the ring buffer on the worker thread.
+     */
+    private class Worker implements Runnable {
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            while (running) {
+                long t = tail.get();
+                if (t < head.get()) {
+                    int slot = (int) (t & mask);
+                    E event = slots.get(slot);
+                    // The producer may have dropped this event in the meantime
+                    if (tail.compareAndSet(t, t + 1)) {
+                        // Do not keep the event, and whatever it references, until the slot is reused
+                        slots.set(slot, null);
+                        signalProducer();
+                        try {
+                            processWithNextBlocks(event);
+                        } catch (RuntimeException e) {
+                            LOGGER.error("Failed processing event " + event, e);
+                        } finally {
+                            ReferenceCounting.release(event);
+                        }
+                        processedCount.incrementAndGet();
+                    }
+                } else {
+                    awaitEvent();
+                }
+            }
+
+            releasePendingEvents();
+        }
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncStage.class);
+
+    /**
+     * Default capacity of the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Default wait strategy.
+     */
+    public static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.BLOCKING;
+
+    /**
+     * Default overflow policy.
+     * <p/>
+     * By default, the producer never waits for the next blocks.
+     */
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Duration in nanoseconds of a single park when using {@link WaitStrategy#PARKING}.
+     */
+    private static final long PARK_DURATION = 50000; // ns
+
+    /**
+     * Counter used to name the worker threads.
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+    /**
+     * Preallocated slots of the ring buffer.
+     * <p/>
+     * A slot is cleared by the thread that consumed or dropped its event, so that no event stays referenced once
+     * processed.
+     */
+    private final AtomicReferenceArray<E> slots;
+
+    /**
+     * Mask to convert a sequence number into a slot index.
+     */
+    private final long mask;
+
+    /**
+     * Strategy used to wait for events or for free space.
+     */
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Policy applied when the ring buffer is full.
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Sequence number of the next event to be published by the producer.
+     */
+    private final AtomicLong head = new AtomicLong(0);
+
+    /**
+     * Sequence number of the next event to be consumed by the worker thread.
+     * <p/>
+     * It may also be moved forward by the producer when dropping events.
+     */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /**
+     * Number of events dropped because the ring buffer was full.
+     */
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    /**
+     * Number of events processed by the next blocks.
+     */
+    private final AtomicLong processedCount = new AtomicLong(0);
+
+    /**
+     * Lock used by {@link WaitStrategy#BLOCKING}.
+     */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * Condition signaled when an event has been published, used by {@link WaitStrategy#BLOCKING}.
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Condition signaled when an event has been consumed, used by {@link WaitStrategy#BLOCKING}.
+     */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Flag indicating whether the worker thread is suspended, used by {@link WaitStrategy#BLOCKING}.
+     */
+    private volatile boolean consumerWaiting = false;
+
+    /**
+     * Flag indicating whether the producer is suspended, used by {@link WaitStrategy#BLOCKING}.
+     */
+    private volatile boolean producerWaiting = false;
+
+    /**
+     * Flag indicating whether the worker thread is running.
+     *
+     * @see #stop()
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Worker thread processing the events with the next blocks.
+     */
+    private final Thread workerThread;
+
+    /**
+     * Default constructor.
+     *
+     * @see #DEFAULT_CAPACITY
+     * @see #DEFAULT_WAIT_STRATEGY
+     * @see #DEFAULT_OVERFLOW_POLICY
+     */
+    public AsyncStage() {
+        this(DEFAULT_CAPACITY, DEFAULT_WAIT_STRATEGY, DEFAULT_OVERFLOW_POLICY);
+    }
+
+    /**
+     * Constructor specifying the capacity of the ring buffer, the wait strategy and the overflow policy.
+     * <p/>
+     * The worker thread is started right away.
+     *
+     * @param capacity       Minimum number of events that can be pending.<br>
+     *                       It will be rounded up to the next power of two.
+     * @param waitStrategy   Strategy used to wait for events or for free space.
+     * @param overflowPolicy Policy applied when the ring buffer is full.
+     */
+    public AsyncStage(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be strictly positive: " + capacity);
+        }
+        int actualCapacity = Integer.highestOneBit(capacity);
+        if (actualCapacity < capacity) {
+            actualCapacity <<= 1;
+        }
+
+        slots = new AtomicReferenceArray<E>(actualCapacity);
+        mask = actualCapacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+
+        workerThread = new Thread(new Worker(), "AsyncStage-" + THREAD_COUNT.incrementAndGet());
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    /**
+     * Gets the capacity of the ring buffer.
+     *
+     * @return Maximum number of pending events.
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Gets the wait strategy.
+     *
+     * @return Strategy used to wait for events or for free space.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Gets the overflow policy.
+     *
+     * @return Policy applied when the ring buffer is full.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Gets the number of events currently waiting to be processed by the next blocks.
+     *
+     * @return Number of pending events.
+     */
+    public int getOccupancy() {
+        // Read tail first so that the result is never negative
+        long t = tail.get();
+        return (int) Math.max(0, head.get() - t);
+    }
+
+    /**
+     * Gets the number of events that have been dropped so far because the ring buffer was full.
+     *
+     * @return Number of dropped events.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Gets the number of events that have been processed so far by the next blocks.
+     *
+     * @return Number of processed events.
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * States whether the worker thread is running.
+     *
+     * @return True if the events are being processed, false if this block has been stopped.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops the worker thread.
+     * <p/>
+     * Pending events will not be processed but released, and sub-sequent events will be dropped.
+     */
+    public void stop() {
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(workerThread);
+    }
+
+    /**
+     * Puts the specified event in the ring buffer so that it will be processed by the next blocks on the worker
+     * thread.
+     *
+     * @see AbstractFilter#processTouchEvent(TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(E event) {
+        long h = head.get(); // Only modified by this thread
+        boolean accepted = running;
+
+        // Check and drop against the same tail, which the worker thread may move up to the head in the meantime
+        long t = tail.get();
+        while (accepted && ((h - t) >= slots.length())) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    awaitFreeSpace();
+                    accepted = running;
+                    break;
+                case DROP_OLDEST:
+                    if (tail.compareAndSet(t, t + 1)) {
+                        ReferenceCounting.release(slots.getAndSet((int) (t & mask), null));
+                        droppedCount.incrementAndGet();
+                    }
+                    break;
+                case LATEST_WINS:
+                    if (tail.compareAndSet(t, h)) {
+                        for (long dropped = t; dropped < h; dropped++) {
+                            ReferenceCounting.release(slots.getAndSet((int) (dropped & mask), null));
+                        }
+                        droppedCount.addAndGet(h - t);
+                    }
+                    break;
+            }
+            t = tail.get();
+        }
+
+        if (accepted) {
+            int slot = (int) (h & mask);
+            while (slots.get(slot) != null) {
+                // The worker thread has just consumed the previous event of this slot but not cleared it yet
+                Thread.yield();
+            }
+
+            ReferenceCounting.retain(event);
+            slots.set(slot, event);
+            head.set(h + 1);
+            signalConsumer();
+
+            if (!running) {
+                // The worker thread may have already released the pending events before this one was published
+                releasePendingEvents();
+            }
+        } else {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops and releases all the events still in the ring buffer once the worker thread is stopped.
+     * <p/>
+     * This may be called by both the worker thread and the producer: each slot is cleared atomically, so that an event
+     * is released only once.
+     */
+    private void releasePendingEvents() {
+        for (int slot = 0; slot < slots.length(); slot++) {
+            E event = slots.getAndSet(slot, null);
+            if (event != null) {
+                ReferenceCounting.release(event);
+                droppedCount.incrementAndGet();
+            }
+        }
+        tail.set(head.get());
+    }
+
+    /**
+     * Makes the worker thread wait for a new event, according to the wait strategy.
+     */
+    private void awaitEvent() {
+        switch (waitStrategy) {
+            case BLOCKING:
+                lock.lock();
+                try {
+                    consumerWaiting = true;
+                    while (running && (tail.get() >= head.get())) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                } finally {
+                    consumerWaiting = false;
+                    lock.unlock();
+                }
+                break;
+            case YIELDING:
+                Thread.yield();
+                break;
+            case BUSY_SPINNING:
+                // Just try again
+                break;
+            case PARKING:
+                LockSupport.parkNanos(PARK_DURATION);
+                break;
+        }
+    }
+
+    /**
+     * Makes the producer wait for free space in the ring buffer, according to the wait strategy.
+     */
+    private void awaitFreeSpace() {
+        switch (waitStrategy) {
+            case BLOCKING:
+                lock.lock();
+                try {
+                    producerWaiting = true;
+                    while (running && ((head.get() - tail.get()) >= slots.length())) {
+                        notFull.awaitUninterruptibly();
+                    }
+                } finally {
+                    producerWaiting = false;
+                    lock.unlock();
+                }
+                break;
+            case YIELDING:
+                Thread.yield();
+                break;
+            case BUSY_SPINNING:
+                // Just try again
+                break;
+            case PARKING:
+                LockSupport.parkNanos(PARK_DURATION);
+                break;
+        }
+    }
+
+    /**
+     * Wakes up the worker thread if it is suspended.
+     */
+    private void signalConsumer() {
+        if (consumerWaiting) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wakes up the producer if it is suspended.
+     */
+    private void signalProducer() {
+        if (producerWaiting) {
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
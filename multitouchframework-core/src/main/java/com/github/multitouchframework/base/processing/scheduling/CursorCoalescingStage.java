@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.scheduling;
+
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.processing.filter.AbstractFilter;
+import com.github.multitouchframework.base.support.LongObjectMap;
+import com.github.multitouchframework.base.support.ReferenceCounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Processing block re-scheduling the processing of {@link CursorUpdateEvent}s on its own worker thread, coalescing
+ * the events that the next blocks could not process in time.
+ * <p/>
+ * For each user and touch target, a pending event is simply replaced by a newer event holding the same cursors (only
+ * their positions changed). However, an event in which cursors were added or removed is never replaced, so that the
+ * gesture recognizers still get all the transitions needed to arm and unarm their gestures.
+ * <p/>
+ * This way, when the next blocks are slower than the input source, they process events at their own pace, with the
+ * most recent cursor positions, instead of accumulating delay.
+ * <p/>
+ * Pooled events are retained while they are pending, and other events are shared as they are immutable.
+ * <p/>
+ * Pending events are looked up by user and touch target without creating any key, and their holders are reused, so
+ * that queuing an event produces no garbage once the stage has warmed up.
+ *
+ * @see AbstractFilter
+ * @see AsyncStage
+ */
+public class CursorCoalescingStage extends AbstractFilter<CursorUpdateEvent> {
+
+    /**
+     * Reusable holder of a pending event waiting to be processed by the worker thread.
+     */
+    private static class PendingEvent {
+
+        /**
+         * ID of the user of the stream of events to which the event belongs.
+         */
+        private long userId;
+
+        /**
+         * Touch target of the stream of events to which the event belongs.
+         */
+        private TouchTarget target;
+
+        /**
+         * Event to be processed, possibly replaced by a more recent one.
+         */
+        private CursorUpdateEvent event;
+    }
+
+    /**
+     * Runnable processing the pending events on the worker thread.
+     */
+    private class Worker implements Runnable {
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            while (running) {
+                CursorUpdateEvent event = null;
+
+                lock.lock();
+                try {
+                    while (running && pendingEvents.isEmpty()) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    PendingEvent pending = pendingEvents.poll();
+                    if (pending != null) {
+                        // Event can no longer be replaced
+                        LongObjectMap<PendingEvent> userPendingEvents = lastPendingEvents.get(pending.target);
+                        if ((userPendingEvents != null) && (userPendingEvents.get(pending.userId) == pending)) {
+                            userPendingEvents.remove(pending.userId);
+                        }
+                        event = pending.event;
+                        recycle(pending);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (event != null) {
+                    try {
+                        processWithNextBlocks(event);
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Failed processing event " + event, e);
+                    } finally {
+                        ReferenceCounting.release(event);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CursorCoalescingStage.class);
+
+    /**
+     * Counter used to name the worker threads.
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+    /**
+     * Lock protecting the pending events.
+     */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * Condition signaled when an event has been added to the pending events.
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Events waiting to be processed, in order of arrival.
+     */
+    private final Queue<PendingEvent> pendingEvents = new ArrayDeque<PendingEvent>();
+
+    /**
+     * Most recent pending event of each stream, which can still be replaced, per touch target and per user ID.
+     * <p/>
+     * Touch targets are weakly referenced so that they can be garbage collected once no longer used.
+     */
+    private final Map<TouchTarget, LongObjectMap<PendingEvent>> lastPendingEvents = new WeakHashMap<TouchTarget,
+            LongObjectMap<PendingEvent>>();
+
+    /**
+     * Holders of pending events that can be reused.
+     */
+    private final Queue<PendingEvent> freePendingEvents = new ArrayDeque<PendingEvent>();
+
+    /**
+     * Number of events that have been replaced by more recent events.
+     */
+    private long coalescedCount = 0;
+
+    /**
+     * Flag indicating whether the worker thread is running.
+     *
+     * @see #stop()
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Default constructor.
+     * <p/>
+     * The worker thread is started right away.
+     */
+    public CursorCoalescingStage() {
+        Thread workerThread = new Thread(new Worker(), "CursorCoalescingStage-" + THREAD_COUNT.incrementAndGet());
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    /**
+     * Gets the number of events currently waiting to be processed by the next blocks.
+     *
+     * @return Number of pending events.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pendingEvents.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of events that have been replaced so far by more recent events.
+     *
+     * @return Number of coalesced events.
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalescedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * States whether the worker thread is running.
+     *
+     * @return True if the events are being processed, false if this block has been stopped.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops the worker thread.
+     * <p/>
+     * Pending events will not be processed, and sub-sequent events will be ignored.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            PendingEvent pending = pendingEvents.poll();
+            while (pending != null) {
+                ReferenceCounting.release(pending.event);
+                recycle(pending);
+                pending = pendingEvents.poll();
+            }
+            lastPendingEvents.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the specified event to the pending events, or replaces the last pending event of the same user and touch
+     * target if it holds the same cursors.
+     *
+     * @see AbstractFilter#processTouchEvent(com.github.multitouchframework.api.TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(CursorUpdateEvent event) {
+        lock.lock();
+        try {
+            if (running) {
+                // Pooled events are recycled once released, whereas regular events are immutable and can be shared
+                ReferenceCounting.retain(event);
+
+                LongObjectMap<PendingEvent> userPendingEvents = lastPendingEvents.get(event.getTouchTarget());
+                if (userPendingEvents == null) {
+                    userPendingEvents = new LongObjectMap<PendingEvent>();
+                    lastPendingEvents.put(event.getTouchTarget(), userPendingEvents);
+                }
+
+                PendingEvent lastPending = userPendingEvents.get(event.getUserId());
+                if ((lastPending != null) && lastPending.event.getCursorFrame().hasSameIds(event.getCursorFrame())) {
+                    // Only the positions changed, so just replace the pending event
+                    ReferenceCounting.release(lastPending.event);
+                    lastPending.event = event;
+                    coalescedCount++;
+                } else {
+                    // Cursors were added or removed, so keep this transition
+                    PendingEvent pending = freePendingEvents.poll();
+                    if (pending == null) {
+                        pending = new PendingEvent();
+                    }
+                    pending.userId = event.getUserId();
+                    pending.target = event.getTouchTarget();
+                    pending.event = event;
+                    pendingEvents.add(pending);
+                    userPendingEvents.put(event.getUserId(), pending);
+                    notEmpty.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears the specified holder of pending event so that it can be reused.
+     * <p/>
+     * This method must be called with the lock held.
+     *
+     * @param pending Holder of pending event that is no longer used.
+     */
+    private void recycle(PendingEvent pending) {
+        pending.target = null;
+        pending.event = null;
+        freePendingEvents.add(pending);
+    }
+}
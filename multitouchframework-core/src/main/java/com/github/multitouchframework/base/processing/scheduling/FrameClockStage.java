@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.scheduling;
+
+import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.processing.filter.AbstractFilter;
+import com.github.multitouchframework.base.support.ReferenceCounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing block holding the latest {@link CursorUpdateEvent}s and forwarding them to the next blocks at the pace of
+ * a frame clock, typically the refresh rate of the display.
+ * <p/>
+ * Input devices usually produce events at a higher rate than the display can render them. On each tick, this block
+ * forwards only one merged event per user and touch target, holding the latest cursor positions. However, an event in
+ * which cursors are added or removed is never merged with a later one, so that the gesture recognizers still get all
+ * the transitions needed to arm and unarm their gestures, even if they happened between two ticks.
+ * <p/>
+ * The ticks can either come from a shared high-resolution ticker (see {@link #start()}), or from the render loop of the
+ * application in pull mode (see {@link #tick()}).
+ * <p/>
+ * Pooled events are retained until the tick, and other events are shared as they are immutable.
+ *
+ * @see AbstractFilter
+ * @see CursorCoalescingStage
+ */
+public class FrameClockStage extends AbstractFilter<CursorUpdateEvent> {
+
+    /**
+     * Events of a stream received since the last tick.
+     */
+    private static class StreamState {
+
+        /**
+         * Last events received before each addition or removal of cursors.
+         */
+        private final List<CursorUpdateEvent> transitions = new ArrayList<CursorUpdateEvent>();
+
+        /**
+         * Latest event received.
+         */
+        private CursorUpdateEvent latest = null;
+    }
+
+    /**
+     * Runnable calling {@link #tick()} on the shared ticker thread.
+     */
+    private class TickTask implements Runnable {
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // Catch everything, otherwise the ticker would not run this task anymore
+                LOGGER.error("Failed processing events on tick", e);
+            }
+        }
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrameClockStage.class);
+
+    /**
+     * Default frame rate in Hz, when using the shared ticker.
+     */
+    public static final int DEFAULT_FRAME_RATE = 60;
+
+    /**
+     * Shared ticker for all instances of this class, lazily created.
+     *
+     * @see #getTicker()
+     */
+    private static ScheduledExecutorService ticker = null;
+
+    /**
+     * Frame period in nanoseconds, when using the shared ticker.
+     */
+    private final long framePeriod;
+
+    /**
+     * Events received since the last tick, per user and touch target, in order of arrival.
+     * <p/>
+     * Access to this map must be synchronized on itself.
+     */
+    private final Map<StreamKey, StreamState> streamStates = new LinkedHashMap<StreamKey, StreamState>();
+
+    /**
+     * Lock making sure that concurrent ticks forward their events one after the other.
+     */
+    private final Object tickLock = new Object();
+
+    /**
+     * Task currently scheduled on the shared ticker, if any.
+     * <p/>
+     * Access to this field must be synchronized on the {@link #tickLock}.
+     */
+    private ScheduledFuture<?> tickTask = null;
+
+    /**
+     * Default constructor using the default frame rate.
+     *
+     * @see #DEFAULT_FRAME_RATE
+     */
+    public FrameClockStage() {
+        this(DEFAULT_FRAME_RATE);
+    }
+
+    /**
+     * Constructor specifying the frame rate to be used with the shared ticker.
+     *
+     * @param frameRate Frame rate in Hz.
+     */
+    public FrameClockStage(int frameRate) {
+        this(TimeUnit.SECONDS.toNanos(1) / frameRate, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructor specifying the frame period to be used with the shared ticker.
+     *
+     * @param framePeriod Frame period.
+     * @param unit        Unit of the frame period.
+     */
+    public FrameClockStage(long framePeriod, TimeUnit unit) {
+        if (framePeriod <= 0) {
+            throw new IllegalArgumentException("Frame period must be strictly positive: " + framePeriod);
+        }
+        this.framePeriod = unit.toNanos(framePeriod);
+    }
+
+    /**
+     * Gets the shared ticker, creating it if necessary.
+     *
+     * @return Shared ticker.
+     */
+    private static synchronized ScheduledExecutorService getTicker() {
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FrameClockStage-Ticker");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MAX_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return ticker;
+    }
+
+    /**
+     * Gets the frame period used with the shared ticker.
+     *
+     * @param unit Unit in which the frame period is to be returned.
+     *
+     * @return Frame period.
+     */
+    public long getFramePeriod(TimeUnit unit) {
+        return unit.convert(framePeriod, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts ticking at the frame rate on the shared ticker.
+     * <p/>
+     * This method is not to be called in pull mode, that is when the application calls {@link #tick()} from its render
+     * loop.
+     */
+    public void start() {
+        synchronized (tickLock) {
+            if (tickTask == null) {
+                tickTask = getTicker().scheduleAtFixedRate(new TickTask(), framePeriod, framePeriod,
+                        TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stops ticking on the shared ticker.
+     * <p/>
+     * The events received since the last tick will be kept until the next call to {@link #tick()}.
+     */
+    public void stop() {
+        synchronized (tickLock) {
+            if (tickTask != null) {
+                tickTask.cancel(false);
+                tickTask = null;
+            }
+        }
+    }
+
+    /**
+     * States whether this block is ticking on the shared ticker.
+     *
+     * @return True if ticking on the shared ticker, false otherwise.
+     */
+    public boolean isStarted() {
+        synchronized (tickLock) {
+            return tickTask != null;
+        }
+    }
+
+    /**
+     * Keeps the specified event until the next tick.
+     * <p/>
+     * The event replaces the latest event received for the same user and touch target, unless cursors were added or
+     * removed in between.
+     *
+     * @see AbstractFilter#processTouchEvent(com.github.multitouchframework.api.TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(CursorUpdateEvent event) {
+        // Pooled events are recycled once released, whereas regular events are immutable and can be shared
+        ReferenceCounting.retain(event);
+        StreamKey key = new StreamKey(event.getUserId(), event.getTouchTarget());
+
+        synchronized (streamStates) {
+            StreamState state = streamStates.get(key);
+            if (state == null) {
+                state = new StreamState();
+                streamStates.put(key, state);
+            } else if (!state.latest.getCursorFrame().hasSameIds(event.getCursorFrame())) {
+                // Cursors were added or removed, so keep this transition
+                state.transitions.add(state.latest);
+            } else {
+                // Only the positions changed, so the previous event is replaced
+                ReferenceCounting.release(state.latest);
+            }
+            state.latest = event;
+        }
+    }
+
+    /**
+     * Forwards to the next blocks the events received since the last tick.
+     * <p/>
+     * For each user and touch target, this is the latest event received, preceded by the last event received before
+     * each addition or removal of cursors, if any.
+     * <p/>
+     * This method is called by the shared ticker once started, but it can also be called directly by the application,
+     * typically from its render loop, in pull mode.
+     */
+    public void tick() {
+        synchronized (tickLock) {
+            // Take all events received since the last tick
+            List<StreamState> states;
+            synchronized (streamStates) {
+                states = new ArrayList<StreamState>(streamStates.values());
+                streamStates.clear();
+            }
+
+            // Forward them without holding the lock, so that new events can still be received
+            for (StreamState state : states) {
+                for (CursorUpdateEvent transition : state.transitions) {
+                    forwardAndRelease(transition);
+                }
+                forwardAndRelease(state.latest);
+            }
+        }
+    }
+
+    /**
+     * Forwards the specified held event to the next blocks, and then releases it.
+     * <p/>
+     * A failure of the next blocks is logged, so that the other events of the tick are still forwarded and released.
+     *
+     * @param event Event to be forwarded.
+     */
+    private void forwardAndRelease(CursorUpdateEvent event) {
+        try {
+            processWithNextBlocks(event);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed processing event " + event, e);
+        } finally {
+            ReferenceCounting.release(event);
+        }
+    }
+}
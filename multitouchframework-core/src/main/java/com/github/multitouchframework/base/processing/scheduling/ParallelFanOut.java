@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.scheduling;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.api.TouchListener;
+import com.github.multitouchframework.base.processing.filter.Filter;
+import com.github.multitouchframework.base.support.ListenerArray;
+import com.github.multitouchframework.base.support.ReferenceCounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Processing block forwarding touch events to all its next blocks concurrently, using an executor.
+ * <p/>
+ * Each next block is a branch of the chain that is independent from the other next blocks. Each branch still processes
+ * the events one at a time and in the order in which they were received, but the branches run in parallel.
+ * <p/>
+ * The average processing time of each branch is measured. The branches that are cheaper than the inline threshold are
+ * processed directly on the calling thread, because handing them over to the executor would cost more than it saves.
+ * <p/>
+ * By default, this block waits for all the branches to complete before returning. This keeps the behavior of a regular
+ * filter for the previous blocks, but only reduces the latency to the one of the most expensive branch. If joining is
+ * disabled, this block returns as soon as the events are handed over to the executor.
+ * <p/>
+ * Note that when joining, the calling thread must not be a thread of the executor, otherwise the executor may run out
+ * of threads to process the branches.
+ *
+ * @see Filter
+ */
+public class ParallelFanOut<E extends TouchEvent> implements Filter<E> {
+
+    /**
+     * Event to be processed by a branch.
+     */
+    private static class Task<E> {
+
+        /**
+         * Event to be processed.
+         */
+        private final E event;
+
+        /**
+         * Latch to be counted down once the event is processed, or null if the calling thread does not wait for it.
+         */
+        private final CountDownLatch latch;
+
+        /**
+         * Constructor specifying the event and the latch.
+         *
+         * @param event Event to be processed.
+         * @param latch Latch to be counted down once the event is processed, or null.
+         */
+        public Task(E event, CountDownLatch latch) {
+            this.event = event;
+            this.latch = latch;
+        }
+    }
+
+    /**
+     * Branch of the chain, processing the events with one of the next blocks, one event at a time.
+     */
+    private class Branch implements Runnable {
+
+        /**
+         * Next block of this branch.
+         */
+        private final TouchListener<E> nextBlock;
+
+        /**
+         * Events waiting to be processed by the executor.
+         */
+        private final Queue<Task<E>> pendingTasks = new ConcurrentLinkedQueue<Task<E>>();
+
+        /**
+         * Flag indicating whether the branch is currently processing events, either on the executor or inline.
+         * <p/>
+         * This guarantees that the next block never processes two events at the same time.
+         */
+        private final AtomicBoolean busy = new AtomicBoolean(false);
+
+        /**
+         * Moving average of the time taken by the next block to process an event, in nanoseconds.
+         */
+        private volatile long averageCost = 0;
+
+        /**
+         * Constructor specifying the next block of the branch.
+         *
+         * @param nextBlock Next block of the branch.
+         */
+        public Branch(TouchListener<E> nextBlock) {
+            this.nextBlock = nextBlock;
+        }
+
+        /**
+         * Tries to process the specified event directly on the calling thread, if this branch is cheap enough.
+         *
+         * @param event Event to be processed.
+         *
+         * @return True if the event was processed, false if it needs to be handed over to the executor.
+         */
+        public boolean tryProcessInline(E event) {
+            boolean processed = false;
+
+            // Do not overtake the events still waiting to be processed by the executor
+            if ((averageCost < inlineThreshold) && busy.compareAndSet(false, true)) {
+                try {
+                    if (pendingTasks.isEmpty()) {
+                        process(event);
+                        processed = true;
+                    }
+                } finally {
+                    busy.set(false);
+                }
+                scheduleIfNeeded();
+            }
+
+            return processed;
+        }
+
+        /**
+         * Hands the specified task over to the executor.
+         *
+         * @param task Task to be processed.
+         */
+        public void submit(Task<E> task) {
+            ReferenceCounting.retain(task.event);
+            pendingTasks.add(task);
+            scheduleIfNeeded();
+        }
+
+        /**
+         * Schedules this branch on the executor if there are pending tasks and if it is not already busy.
+         * <p/>
+         * If the executor rejects the branch, for instance because it has been shut down or because its queue is full,
+         * the pending tasks are processed on the calling thread instead. This way, the events are still released and
+         * the joining thread is still woken up.
+         */
+        private void scheduleIfNeeded() {
+            if (!pendingTasks.isEmpty() && busy.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    LOGGER.warn("Executor rejected branch of block " + nextBlock + ", processing it inline", e);
+                    run();
+                }
+            }
+        }
+
+        /**
+         * Processes all pending tasks on the executor.
+         *
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            Task<E> task = pendingTasks.poll();
+            while (task != null) {
+                try {
+                    process(task.event);
+                } finally {
+                    ReferenceCounting.release(task.event);
+                    if (task.latch != null) {
+                        task.latch.countDown();
+                    }
+                }
+                task = pendingTasks.poll();
+            }
+
+            busy.set(false);
+            // Tasks may have been added after the last poll
+            scheduleIfNeeded();
+        }
+
+        /**
+         * Processes the specified event with the next block, measuring the time it takes.
+         *
+         * @param event Event to be processed.
+         */
+        private void process(E event) {
+            long startTime = System.nanoTime();
+            try {
+                nextBlock.processTouchEvent(event);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed processing event " + event + " with block " + nextBlock, e);
+            }
+            long cost = System.nanoTime() - startTime;
+            averageCost += (cost - averageCost) / COST_AVERAGING_WEIGHT;
+        }
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelFanOut.class);
+
+    /**
+     * Default time under which a branch is processed directly on the calling thread, in nanoseconds.
+     */
+    public static final long DEFAULT_INLINE_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(20);
+
+    /**
+     * Weight of the previous average cost when taking a new measurement into account.
+     */
+    private static final int COST_AVERAGING_WEIGHT = 8;
+
+    /**
+     * Executor shared by all instances of this class using the default executor, lazily created.
+     *
+     * @see #getDefaultExecutor()
+     */
+    private static Executor defaultExecutor = null;
+
+    /**
+     * Executor used to process the branches.
+     */
+    private final Executor executor;
+
+    /**
+     * Flag indicating whether this block waits for all branches to complete before returning.
+     */
+    private final boolean join;
+
+    /**
+     * Time under which a branch is processed directly on the calling thread, in nanoseconds.
+     */
+    private final long inlineThreshold;
+
+    /**
+     * Branches of the chain, one for each next block.
+     * <p/>
+     * The blocks can be (de-)queued from any thread while events are being processed.
+     */
+    private final ListenerArray<Branch> branches = new ListenerArray<Branch>(Branch.class);
+
+    /**
+     * Default constructor using the default executor, joining the branches and using the default inline threshold.
+     *
+     * @see #DEFAULT_INLINE_THRESHOLD
+     */
+    public ParallelFanOut() {
+        this(getDefaultExecutor());
+    }
+
+    /**
+     * Constructor specifying the executor to be used, joining the branches and using the default inline threshold.
+     *
+     * @param executor Executor to be used to process the branches.
+     *
+     * @see #DEFAULT_INLINE_THRESHOLD
+     */
+    public ParallelFanOut(Executor executor) {
+        this(executor, true);
+    }
+
+    /**
+     * Constructor specifying the executor to be used and whether to join the branches, using the default inline
+     * threshold.
+     *
+     * @param executor Executor to be used to process the branches.
+     * @param join     True to wait for all branches to complete before returning, false otherwise.
+     *
+     * @see #DEFAULT_INLINE_THRESHOLD
+     */
+    public ParallelFanOut(Executor executor, boolean join) {
+        this(executor, join, DEFAULT_INLINE_THRESHOLD, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructor specifying the executor to be used, whether to join the branches and the inline threshold.
+     *
+     * @param executor        Executor to be used to process the branches.
+     * @param join            True to wait for all branches to complete before returning, false otherwise.
+     * @param inlineThreshold Average processing time under which a branch is processed directly on the calling thread.
+     * @param unit            Unit of the inline threshold.
+     */
+    public ParallelFanOut(Executor executor, boolean join, long inlineThreshold, TimeUnit unit) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        this.executor = executor;
+        this.join = join;
+        this.inlineThreshold = unit.toNanos(inlineThreshold);
+    }
+
+    /**
+     * Gets the default executor, creating it if necessary.
+     *
+     * @return Default executor.
+     */
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = new ForkJoinPool();
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * States whether this block waits for all branches to complete before returning.
+     *
+     * @return True if joining the branches, false otherwise.
+     */
+    public boolean isJoin() {
+        return join;
+    }
+
+    /**
+     * Gets the average time taken by the specified next block to process an event.
+     *
+     * @param nextBlock Next block queued to this block.
+     * @param unit      Unit in which the cost is to be returned.
+     *
+     * @return Average processing time, or -1 if the block is not queued to this block.
+     */
+    public long getAverageCost(TouchListener<E> nextBlock, TimeUnit unit) {
+        long cost = -1;
+
+        Branch branch = findBranch(nextBlock);
+        if (branch != null) {
+            cost = unit.convert(branch.averageCost, TimeUnit.NANOSECONDS);
+        }
+
+        return cost;
+    }
+
+    /**
+     * @see Filter#queue(Object)
+     */
+    @Override
+    public void queue(TouchListener<E> nextBlock) {
+        branches.add(new Branch(nextBlock));
+    }
+
+    /**
+     * @see Filter#dequeue(Object)
+     */
+    @Override
+    public void dequeue(TouchListener<E> nextBlock) {
+        Branch branch = findBranch(nextBlock);
+        if (branch != null) {
+            branches.remove(branch);
+        }
+    }
+
+    /**
+     * Finds the branch of the specified next block.
+     *
+     * @param nextBlock Next block queued to this block.
+     *
+     * @return Branch of the next block, or null if the block is not queued to this block.
+     */
+    private Branch findBranch(TouchListener<E> nextBlock) {
+        Branch foundBranch = null;
+
+        for (Branch branch : branches.getSnapshot()) {
+            if (branch.nextBlock.equals(nextBlock)) {
+                foundBranch = branch;
+                break;
+            }
+        }
+
+        return foundBranch;
+    }
+
+    /**
+     * Processes the specified event with all the branches, in parallel.
+     *
+     * @see Filter#processTouchEvent(TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(E event) {
+        Branch[] currentBranches = branches.getSnapshot();
+
+        // Each branch counts down the latch once it has processed the event, whether inline or on the executor
+        CountDownLatch latch = null;
+        if (join) {
+            latch = new CountDownLatch(currentBranches.length);
+        }
+
+        // Hand the expensive branches over to the executor first, so that they start as soon as possible
+        boolean[] submitted = new boolean[currentBranches.length];
+        for (int i = 0; i < currentBranches.length; i++) {
+            if (currentBranches[i].averageCost >= inlineThreshold) {
+                currentBranches[i].submit(new Task<E>(event, latch));
+                submitted[i] = true;
+            }
+        }
+
+        // Process the cheap branches on this thread in the meantime
+        for (int i = 0; i < currentBranches.length; i++) {
+            if (!submitted[i]) {
+                if (currentBranches[i].tryProcessInline(event)) {
+                    if (latch != null) {
+                        latch.countDown();
+                    }
+                } else {
+                    // Branch became expensive or is still busy with previous events
+                    currentBranches[i].submit(new Task<E>(event, latch));
+                }
+            }
+        }
+
+        if (latch != null) {
+            awaitUninterruptibly(latch);
+        }
+    }
+
+    /**
+     * Waits for the specified latch, without giving up if the current thread is interrupted.
+     *
+     * @param latch Latch to be waited for.
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+
+        while (latch.getCount() > 0) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            // Restore the interrupted status
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.scheduling;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.base.processing.filter.AbstractFilter;
+import com.github.multitouchframework.base.support.ReferenceCounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Processing block re-scheduling the processing of {@link TouchEvent}s on a separate thread for each user.
+ * <p/>
+ * Each user gets its own mailbox, processed by its own thread, so that the expensive processing of the events of one
+ * user does not delay the processing of the events of the other users. The events of a same user are processed in the
+ * order in which they were received.
+ * <p/>
+ * The threads are created lazily when events are received for a user, and they terminate once they have been idle for
+ * the idle timeout, in which case the mailbox of the user is discarded as well. By default, virtual threads are used.
+ * They are available when running on Java 21 or later, with the library built using the java21 profile. Otherwise, this
+ * block falls back to processing the events directly on the calling thread, just like a regular filter.
+ * <p/>
+ * Note that the next blocks must support being called concurrently for different users. This is the case of the
+ * gesture recognizers, which keep a separate context for each user and touch target.
+ *
+ * @param <E> Type of event to be forwarded by this block to the queued blocks.
+ *
+ * @see AbstractFilter
+ * @see ShardedStage
+ */
+public class PerUserStage<E extends TouchEvent> extends AbstractFilter<E> {
+
+    /**
+     * Mailbox holding the pending events of a user, and processing them on its own thread.
+     * <p/>
+     * The thread is started with the first posted event. Once it has been idle for the idle timeout, the mailbox is
+     * retired: it no longer accepts any event and it is removed from the mailboxes, so that a new mailbox will be
+     * created for the next event of the user.
+     */
+    private class Mailbox implements Runnable {
+
+        /**
+         * ID of the user whose events are held.
+         */
+        private final long userId;
+
+        /**
+         * Events waiting to be processed.
+         */
+        private final Queue<E> pendingEvents = new ConcurrentLinkedQueue<E>();
+
+        /**
+         * Thread processing this mailbox, or null if no event has been posted yet.
+         * <p/>
+         * This is guarded by the mailbox itself.
+         */
+        private Thread thread = null;
+
+        /**
+         * Flag indicating whether this mailbox has been retired and no longer accepts any event.
+         * <p/>
+         * This is guarded by the mailbox itself.
+         */
+        private boolean retired = false;
+
+        /**
+         * Constructor specifying the user whose events are to be held.
+         *
+         * @param userId ID of the user whose events are to be held.
+         */
+        public Mailbox(long userId) {
+            this.userId = userId;
+        }
+
+        /**
+         * Adds the specified event to this mailbox, and starts the thread to process it if needed.
+         *
+         * @param event Event to be processed.
+         *
+         * @return True if the event was posted, false if this mailbox has been retired.
+         */
+        public boolean post(E event) {
+            boolean posted;
+            Thread threadToStart = null;
+            Thread threadToWake = null;
+
+            synchronized (this) {
+                posted = !retired;
+                if (posted) {
+                    ReferenceCounting.retain(event);
+                    pendingEvents.add(event);
+
+                    if (thread == null) {
+                        thread = threadFactory.newThread(this);
+                        threadToStart = thread;
+                    } else {
+                        threadToWake = thread;
+                    }
+                }
+            }
+
+            if (threadToStart != null) {
+                threadToStart.start();
+            } else if (threadToWake != null) {
+                // Wake up the thread if it is waiting for events
+                LockSupport.unpark(threadToWake);
+            }
+
+            return posted;
+        }
+
+        /**
+         * Processes the pending events until this mailbox has been idle for the idle timeout.
+         *
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            boolean idle = false;
+            while (!idle) {
+                E event = pendingEvents.poll();
+                if (event != null) {
+                    try {
+                        processWithNextBlocks(event);
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Failed processing event " + event, e);
+                    } finally {
+                        ReferenceCounting.release(event);
+                    }
+                } else if (!awaitEvent()) {
+                    // Idle for too long, so retire, unless an event has just been posted
+                    synchronized (this) {
+                        idle = pendingEvents.isEmpty();
+                        retired = idle;
+                    }
+                }
+            }
+
+            mailboxes.remove(userId, this);
+        }
+
+        /**
+         * Waits for an event to be posted, up to the idle timeout.
+         *
+         * @return True if an event was posted, false if the idle timeout elapsed.
+         */
+        private boolean awaitEvent() {
+            long deadline = System.nanoTime() + idleTimeout;
+            long remaining = idleTimeout;
+            while (pendingEvents.isEmpty() && (remaining > 0)) {
+                LockSupport.parkNanos(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+            return !pendingEvents.isEmpty();
+        }
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PerUserStage.class);
+
+    /**
+     * Default time after which an idle thread terminates, in milliseconds.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 1000;
+
+    /**
+     * Name of the thread factory class creating virtual threads, only available with the java21 profile.
+     */
+    private static final String VIRTUAL_THREAD_FACTORY_CLASS_NAME = PerUserStage.class.getPackage().getName() +
+            ".VirtualThreadFactory";
+
+    /**
+     * Factory creating the threads processing the mailboxes, or null to process the events on the calling thread.
+     */
+    private final ThreadFactory threadFactory;
+
+    /**
+     * Time after which an idle thread terminates, in nanoseconds.
+     */
+    private final long idleTimeout;
+
+    /**
+     * Mailbox of each user that has not been idle for the idle timeout.
+     * <p/>
+     * Note that the user ID is boxed for each event to look up its mailbox.
+     */
+    private final ConcurrentMap<Long, Mailbox> mailboxes = new ConcurrentHashMap<Long, Mailbox>();
+
+    /**
+     * Default constructor using virtual threads if available, and the default idle timeout.
+     *
+     * @see #isVirtualThreadAvailable()
+     * @see #DEFAULT_IDLE_TIMEOUT
+     */
+    public PerUserStage() {
+        this(createVirtualThreadFactory(), DEFAULT_IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor specifying the factory creating the threads and the idle timeout.
+     *
+     * @param threadFactory Factory creating the threads processing the events of each user, or null to process the
+     *                      events on the calling thread.
+     * @param idleTimeout   Time after which an idle thread terminates.
+     * @param unit          Unit of the idle timeout.
+     */
+    public PerUserStage(ThreadFactory threadFactory, long idleTimeout, TimeUnit unit) {
+        this.threadFactory = threadFactory;
+        this.idleTimeout = unit.toNanos(idleTimeout);
+    }
+
+    /**
+     * States whether virtual threads are available, that is whether the library was built with the java21 profile and
+     * is running on Java 21 or later.
+     *
+     * @return True if virtual threads can be used, false otherwise.
+     */
+    public static boolean isVirtualThreadAvailable() {
+        return createVirtualThreadFactory() != null;
+    }
+
+    /**
+     * Creates a thread factory creating virtual threads, if available.
+     *
+     * @return Thread factory creating virtual threads, or null if not available.
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        ThreadFactory factory = null;
+
+        try {
+            factory = (ThreadFactory) Class.forName(VIRTUAL_THREAD_FACTORY_CLASS_NAME).getDeclaredConstructor()
+                    .newInstance();
+        } catch (ClassNotFoundException e) {
+            // Library was not built with the java21 profile
+            LOGGER.debug("Virtual threads not available, events will be processed on the calling thread");
+        } catch (LinkageError e) {
+            // Not running on Java 21 or later
+            LOGGER.debug("Virtual threads not available, events will be processed on the calling thread");
+        } catch (ReflectiveOperationException e) {
+            LOGGER.error("Failed creating virtual thread factory", e);
+        }
+
+        return factory;
+    }
+
+    /**
+     * States whether the events are processed on a separate thread for each user.
+     *
+     * @return True if each user has its own thread, false if the events are processed on the calling thread.
+     */
+    public boolean isPerUserThreading() {
+        return threadFactory != null;
+    }
+
+    /**
+     * Posts the specified event to the mailbox of its user.
+     *
+     * @see AbstractFilter#processTouchEvent(TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(E event) {
+        if (threadFactory == null) {
+            // Fall back to processing the event synchronously
+            processWithNextBlocks(event);
+        } else {
+            Long userId = event.getUserId();
+            boolean posted = false;
+            while (!posted) {
+                Mailbox mailbox = mailboxes.get(userId);
+                if (mailbox == null) {
+                    Mailbox newMailbox = new Mailbox(userId);
+                    mailbox = mailboxes.putIfAbsent(userId, newMailbox);
+                    if (mailbox == null) {
+                        mailbox = newMailbox;
+                    }
+                }
+
+                posted = mailbox.post(event);
+                if (!posted) {
+                    // Mailbox has just been retired, so make sure it is no longer used before trying again
+                    mailboxes.remove(userId, mailbox);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.scheduling;
+
+import com.github.multitouchframework.api.TouchEvent;
+import com.github.multitouchframework.api.TouchListener;
+import com.github.multitouchframework.base.processing.filter.AbstractFilter;
+
+/**
+ * Processing block re-scheduling the processing of {@link TouchEvent}s on several worker threads, called lanes.
+ * <p/>
+ * Each event is assigned to a lane according to its user and touch target, so that all the events of a same user on a
+ * same touch target are processed by the same lane, in the order in which they were received. The events of different
+ * touch targets may be processed in parallel by different lanes. This block is typically placed after a cursor-to-touch
+ * target dispatcher.
+ * <p/>
+ * Note that the next blocks must therefore support being called concurrently for different users or touch targets.
+ * This is the case of the gesture recognizers, which keep a separate context for each user and touch target.
+ * <p/>
+ * Each lane is an {@link AsyncStage}, using the {@link AsyncStage.OverflowPolicy#BLOCK} policy by default, so that no
+ * event is lost. Just like for {@link AsyncStage}, all events must be fed to this block from the same thread, or at
+ * least never concurrently.
+ *
+ * @param <E> Type of event to be forwarded by this block to the queued blocks.
+ *
+ * @see AbstractFilter
+ * @see AsyncStage
+ */
+public class ShardedStage<E extends TouchEvent> extends AbstractFilter<E> {
+
+    /**
+     * Default number of lanes, that is the number of available processors.
+     */
+    public static final int DEFAULT_LANE_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Lanes processing the events on their worker threads.
+     */
+    private final AsyncStage<E>[] lanes;
+
+    /**
+     * Default constructor using the default number of lanes.
+     *
+     * @see #DEFAULT_LANE_COUNT
+     */
+    public ShardedStage() {
+        this(DEFAULT_LANE_COUNT);
+    }
+
+    /**
+     * Constructor specifying the number of lanes, each using the default capacity and wait strategy, and blocking when
+     * full.
+     *
+     * @param laneCount Number of lanes.
+     */
+    public ShardedStage(int laneCount) {
+        this(laneCount, AsyncStage.DEFAULT_CAPACITY, AsyncStage.DEFAULT_WAIT_STRATEGY, AsyncStage.OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Constructor specifying the number of lanes and the configuration of each lane.
+     *
+     * @param laneCount      Number of lanes.
+     * @param capacity       Capacity of the ring buffer of each lane.
+     * @param waitStrategy   Strategy used by the lanes to wait.
+     * @param overflowPolicy Policy used by the lanes when their ring buffer is full.
+     *
+     * @see AsyncStage#AsyncStage(int, AsyncStage.WaitStrategy, AsyncStage.OverflowPolicy)
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedStage(int laneCount, int capacity, AsyncStage.WaitStrategy waitStrategy,
+                        AsyncStage.OverflowPolicy overflowPolicy) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("Lane count must be strictly positive: " + laneCount);
+        }
+
+        lanes = (AsyncStage<E>[]) new AsyncStage<?>[laneCount];
+        TouchListener<E> laneOutput = new TouchListener<E>() {
+            @Override
+            public void processTouchEvent(E event) {
+                processWithNextBlocks(event);
+            }
+        };
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new AsyncStage<E>(capacity, waitStrategy, overflowPolicy);
+            lanes[i].queue(laneOutput);
+        }
+    }
+
+    /**
+     * Gets the number of lanes.
+     *
+     * @return Lane count.
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Gets the number of events currently waiting to be processed by the specified lane.
+     *
+     * @param lane Index of the lane.
+     *
+     * @return Number of pending events.
+     */
+    public int getOccupancy(int lane) {
+        return lanes[lane].getOccupancy();
+    }
+
+    /**
+     * Gets the number of events dropped so far by all lanes.
+     *
+     * @return Number of dropped events.
+     */
+    public long getDroppedCount() {
+        long count = 0;
+        for (AsyncStage<E> lane : lanes) {
+            count += lane.getDroppedCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of events processed so far by all lanes.
+     *
+     * @return Number of processed events.
+     */
+    public long getProcessedCount() {
+        long count = 0;
+        for (AsyncStage<E> lane : lanes) {
+            count += lane.getProcessedCount();
+        }
+        return count;
+    }
+
+    /**
+     * Stops the worker threads of all lanes.
+     *
+     * @see AsyncStage#stop()
+     */
+    public void stop() {
+        for (AsyncStage<E> lane : lanes) {
+            lane.stop();
+        }
+    }
+
+    /**
+     * Hands the specified event over to the lane of its user and touch target.
+     *
+     * @see AbstractFilter#processTouchEvent(TouchEvent)
+     */
+    @Override
+    public void processTouchEvent(E event) {
+        int hash = StreamKey.hash(event.getUserId(), event.getTouchTarget());
+        // Spread the high bits, because touch target hash codes are often identity hash codes or small integers
+        hash ^= (hash >>> 16);
+        lanes[(hash & Integer.MAX_VALUE) % lanes.length].processTouchEvent(event);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.scheduling;
+
+import com.github.multitouchframework.api.TouchTarget;
+
+/**
+ * Key identifying the stream of events of a user on a touch target, used by the scheduling blocks to keep track of
+ * their pending events.
+ */
+final class StreamKey {
+
+    /**
+     * ID of the user touching the surface.
+     */
+    private final long userId;
+
+    /**
+     * Touch target for which the events are produced.
+     */
+    private final TouchTarget target;
+
+    /**
+     * Constructor specifying the user ID and the touch target.
+     *
+     * @param userId ID of the user touching the surface.
+     * @param target Touch target for which the events are produced.
+     */
+    public StreamKey(long userId, TouchTarget target) {
+        this.userId = userId;
+        this.target = target;
+    }
+
+    /**
+     * @see Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return hash(userId, target);
+    }
+
+    /**
+     * Computes the hash code of the stream of the specified user and touch target, without creating any key.
+     *
+     * @param userId ID of the user touching the surface.
+     * @param target Touch target for which the events are produced.
+     *
+     * @return Hash code of the stream.
+     */
+    public static int hash(long userId, TouchTarget target) {
+        int hash = (int) (userId ^ (userId >>> 32));
+        hash = 31 * hash + ((target == null) ? 0 : target.hashCode());
+        return hash;
+    }
+
+    /**
+     * @see Object#equals(Object)
+     */
+    @Override
+    public boolean equals(Object o) {
+        boolean equal;
+
+        if (this == o) {
+            // Same instance
+            equal = true;
+        } else if ((o == null) || (getClass() != o.getClass())) {
+            // Different class
+            equal = false;
+        } else {
+            // Same class, so check attributes
+            StreamKey that = (StreamKey) o;
+            equal = (userId == that.userId) && ((target == null) ? (that.target == null) : target.equals(that.target));
+        }
+
+        return equal;
+    }
+}
@@ -27,10 +27,17 @@ package com.github.multitouchframework.base.processing.source;
 
 import com.github.multitouchframework.api.TouchListener;
 import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.base.cursor.CursorDelta;
+import com.github.multitouchframework.base.cursor.CursorDeltaTracker;
+import com.github.multitouchframework.base.cursor.CursorFrame;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.cursor.CursorUpdateEventPool;
+import com.github.multitouchframework.base.cursor.PooledCursorUpdateEvent;
+import com.github.multitouchframework.base.support.ListenerArray;
+import com.github.multitouchframework.base.support.LongObjectMap;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Abstract implementation of an input controller.
@@ -60,9 +67,34 @@ public abstract class AbstractInputSource implements InputSource {
 
     /**
      * Cursor processors connected and processing the output cursors from this input controller.
+     * <p/>
+     * The blocks can be (de-)queued from any thread while events are being processed.
+     *
+     * @see #getNextBlocks()
+     * @see #processWithNextBlocks(CursorUpdateEvent)
+     */
+    private final ListenerArray<TouchListener<CursorUpdateEvent>> nextBlocks = new
+            ListenerArray<TouchListener<CursorUpdateEvent>>(TouchListener.class);
+
+    /**
+     * Pool providing the events produced by this input source, or null if the events are simply created.
+     *
+     * @see #processWithNextBlocks(long, TouchTarget, CursorFrame, long, long)
      */
-    protected final List<TouchListener<CursorUpdateEvent>> nextBlocks = new
-            ArrayList<TouchListener<CursorUpdateEvent>>();
+    private CursorUpdateEventPool eventPool = null;
+
+    /**
+     * Trackers computing the changes of the cursors for each touch target and user.
+     * <p/>
+     * Users whose last frame had no cursor are not kept, because their state is the same as the initial state. Touch
+     * targets are weakly referenced so that they can be garbage collected once no longer used.
+     * <p/>
+     * Only accessed from the thread producing the events.
+     *
+     * @see #processWithNextBlocks(long, TouchTarget, CursorFrame, long, long)
+     */
+    private final Map<TouchTarget, LongObjectMap<CursorDeltaTracker>> deltaTrackers = new WeakHashMap<TouchTarget,
+            LongObjectMap<CursorDeltaTracker>>();
 
     /**
      * Constructor specifying the touch target for which the events will be triggered.
@@ -82,6 +114,29 @@ public abstract class AbstractInputSource implements InputSource {
         return target;
     }
 
+    /**
+     * Gets the pool providing the events produced by this input source.
+     *
+     * @return Event pool, or null if the events are not pooled.
+     */
+    public CursorUpdateEventPool getEventPool() {
+        return eventPool;
+    }
+
+    /**
+     * Sets the pool providing the events produced by this input source.
+     * <p/>
+     * Pooled events are recycled once processed, so the blocks holding them for later processing must retain them.
+     * This is the case of all the scheduling blocks of the framework.
+     *
+     * @param eventPool Event pool, or null if the events are to be simply created.
+     *
+     * @see com.github.multitouchframework.base.support.ReferenceCounted
+     */
+    public void setEventPool(CursorUpdateEventPool eventPool) {
+        this.eventPool = eventPool;
+    }
+
     /**
      * Connects the specified cursor processor to this input controller block.
      * <p/>
@@ -106,6 +161,110 @@ public abstract class AbstractInputSource implements InputSource {
         nextBlocks.remove(cursorProcessor);
     }
 
+    /**
+     * Gets the cursor processors currently connected to this input source.
+     * <p/>
+     * The returned array is a snapshot that is not affected by later (de-)queuing, so it can be iterated without any
+     * synchronization. It must not be modified.
+     *
+     * @return Connected cursor processors.
+     */
+    protected TouchListener<CursorUpdateEvent>[] getNextBlocks() {
+        return nextBlocks.getSnapshot();
+    }
+
+    /**
+     * Processes the specified event using the blocks/listeners that are queued/added to this input source.
+     *
+     * @param event Cursor update event to be processed by the next blocks.
+     */
+    protected void processWithNextBlocks(CursorUpdateEvent event) {
+        for (TouchListener<CursorUpdateEvent> nextBlock : nextBlocks.getSnapshot()) {
+            nextBlock.processTouchEvent(event);
+        }
+    }
+
+    /**
+     * Processes an event made of the specified data using the blocks/listeners that are queued/added to this input
+     * source.
+     * <p/>
+     * The event is taken from the event pool, if any, and released once processed. The cursors are copied to the event,
+     * so the frame can be reused by the caller after this call. Without event pool, the copy is an immutable snapshot
+     * shared by all the next blocks, so that they can hold it or pass it to other threads without copying it again.
+     * <p/>
+     * The changes of the cursors since the previous call for the same user and touch target are computed here, once for
+     * all the next blocks. They are left unknown for a frame without cursor following another frame without cursor.
+     *
+     * @param userId         ID of the user touching the surface.
+     * @param target         Touch target for which the event is produced.
+     * @param cursors        Cursors on the associated touch target.
+     * @param receiveTime    Time at which the input data was received, in nanoseconds.
+     * @param sequenceNumber Sequence number given to the input data.
+     */
+    protected void processWithNextBlocks(long userId, TouchTarget target, CursorFrame cursors, long receiveTime,
+                                         long sequenceNumber) {
+        CursorDelta delta = updateDelta(userId, target, cursors);
+
+        CursorUpdateEventPool currentEventPool = eventPool;
+        if (currentEventPool == null) {
+            // The event copies the cursors and the delta, so they can still be updated for the next events
+            processWithNextBlocks(new CursorUpdateEvent(userId, target, cursors, delta, receiveTime, sequenceNumber));
+        } else {
+            PooledCursorUpdateEvent event = currentEventPool.acquire(userId, target, cursors, delta, receiveTime,
+                    sequenceNumber);
+            try {
+                processWithNextBlocks(event);
+            } finally {
+                event.release();
+            }
+        }
+    }
+
+    /**
+     * Computes the changes of the cursors since the previous frame of the specified user and touch target.
+     * <p/>
+     * A tracker is created for the user and touch target when cursors appear, and dropped once it has computed the
+     * changes to a frame without cursor.
+     *
+     * @param userId  ID of the user touching the surface.
+     * @param target  Touch target for which the events are produced.
+     * @param cursors New frame of cursors.
+     *
+     * @return Changes of the cursors, to be copied by the event, or null if the frame has no cursor and neither had the
+     * previous one.
+     */
+    private CursorDelta updateDelta(long userId, TouchTarget target, CursorFrame cursors) {
+        CursorDelta delta = null;
+
+        LongObjectMap<CursorDeltaTracker> userTrackers = deltaTrackers.get(target);
+        CursorDeltaTracker tracker = null;
+        if (userTrackers != null) {
+            tracker = userTrackers.get(userId);
+        }
+
+        if ((tracker == null) && !cursors.isEmpty()) {
+            tracker = new CursorDeltaTracker();
+            if (userTrackers == null) {
+                userTrackers = new LongObjectMap<CursorDeltaTracker>();
+                deltaTrackers.put(target, userTrackers);
+            }
+            userTrackers.put(userId, tracker);
+        }
+
+        if (tracker != null) {
+            delta = tracker.update(cursors);
+            if (cursors.isEmpty()) {
+                // Back to the initial state
+                userTrackers.remove(userId);
+                if (userTrackers.isEmpty()) {
+                    deltaTrackers.remove(target);
+                }
+            }
+        }
+
+        return delta;
+    }
+
     /**
      * @see InputSource#isStarted()
      */
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.source;
+
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.base.cursor.CursorFrame;
+import com.github.multitouchframework.base.processing.record.RecordingReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Input source replaying a session recorded by a {@link com.github.multitouchframework.base.processing.record
+ * .CursorRecorder}.
+ * <p/>
+ * The recorded frames are replayed on a dedicated thread, either in real time, faster or slower than real time, or as
+ * fast as the next blocks can process them (see {@link #UNTHROTTLED}).
+ * <p/>
+ * The receive time of the replayed events follows the time line of the recording, starting from the time at which the
+ * replay started, whatever the speed. This way, the blocks relying on the time of the events, like the {@link
+ * com.github.multitouchframework.base.processing.gesture.tap.TapRecognizer}, behave as during the recorded session.
+ * Note that, as a consequence, the end-to-end latencies measured on the replayed events are only meaningful in real
+ * time. When replaying faster, the receive times get ahead of the clock: the resulting negative latencies are counted
+ * separately by {@link com.github.multitouchframework.base.processing.debug.EndToEndLatencySink} instead of being
+ * recorded. When replaying slower, the latencies also include the time by which the replay is slowed down.
+ * <p/>
+ * By default, all events are replayed for the touch target of this input source. The recorded touch target IDs can be
+ * mapped to other touch targets using {@link #setTargets(Map)}.
+ *
+ * @see AbstractInputSource
+ * @see RecordingReader
+ */
+public class ReplaySource extends AbstractInputSource {
+
+    /**
+     * Replayer of the frames, running on the dedicated thread.
+     */
+    private class Replayer implements Runnable {
+
+        /**
+         * Reader of the recorded frames.
+         */
+        private final RecordingReader reader;
+
+        /**
+         * Constructor specifying the reader of the recorded frames.
+         *
+         * @param reader Reader of the recorded frames.
+         */
+        public Replayer(RecordingReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                replay();
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOGGER.error("Could not close recording " + baseName + ": " + e.getMessage(), e);
+                }
+                finished = true;
+            }
+        }
+
+        /**
+         * Replays the frames until the end of the recording or until the input source is stopped.
+         */
+        private void replay() {
+            reader.seek(startTimestamp);
+
+            CursorFrame cursors = new CursorFrame();
+            long replayStartTime = System.nanoTime();
+            long firstTimestamp = 0;
+            long sequenceNumber = 0;
+            while (running && reader.next()) {
+                if (sequenceNumber == 0) {
+                    firstTimestamp = reader.getTimestamp();
+                }
+                long recordedTime = reader.getTimestamp() - firstTimestamp;
+
+                // Wait for the time of the frame
+                if (speed != UNTHROTTLED) {
+                    waitUntil(replayStartTime + (long) (recordedTime / speed));
+                }
+
+                // Replay frame
+                int cursorCount = reader.getCursorCount();
+                cursors.clear();
+                for (int i = 0; i < cursorCount; i++) {
+                    cursors.add(reader.getCursorId(i), reader.getCursorX(i), reader.getCursorY(i));
+                }
+                processWithNextBlocks(reader.getUserId(), getTarget(reader.getTargetId()), cursors,
+                        replayStartTime + recordedTime, sequenceNumber++);
+                replayedCount.incrementAndGet();
+            }
+        }
+
+        /**
+         * Waits until the specified time, or until the input source is stopped.
+         *
+         * @param deadline Time to wait for, in nanoseconds.
+         */
+        private void waitUntil(long deadline) {
+            long remainingTime = deadline - System.nanoTime();
+            while (running && (remainingTime > 0)) {
+                if (remainingTime > SPIN_THRESHOLD) {
+                    // Parking is not precise, so wake up a bit earlier
+                    LockSupport.parkNanos(remainingTime - SPIN_THRESHOLD);
+                } else {
+                    Thread.yield();
+                }
+                remainingTime = deadline - System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplaySource.class);
+
+    /**
+     * Speed to replay the recording in real time.
+     */
+    public static final double REAL_TIME = 1.0;
+
+    /**
+     * Speed to replay the recording as fast as the next blocks can process the events.
+     */
+    public static final double UNTHROTTLED = Double.POSITIVE_INFINITY;
+
+    /**
+     * Remaining time to the next frame under which the replaying thread spins instead of parking, in nanoseconds.
+     */
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(200);
+
+    /**
+     * Number of replaying threads created so far, used to name them.
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+    /**
+     * Directory containing the segment files of the recording.
+     */
+    private final File directory;
+
+    /**
+     * Base name of the segment files of the recording.
+     */
+    private final String baseName;
+
+    /**
+     * Replay speed, relatively to real time.
+     */
+    private final double speed;
+
+    /**
+     * Touch targets for the recorded touch target IDs.
+     *
+     * @see #setTargets(Map)
+     */
+    private volatile Map<Integer, TouchTarget> targets = Collections.emptyMap();
+
+    /**
+     * Timestamp in the recording from which the replay is to start, in nanoseconds since the recording started.
+     *
+     * @see #setStartTimestamp(long)
+     */
+    private volatile long startTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Flag indicating whether the replaying thread is to keep on replaying frames.
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Flag indicating whether the replay reached the end of the recording or was stopped.
+     */
+    private volatile boolean finished = false;
+
+    /**
+     * Thread replaying the frames, or null if the input source is not started.
+     */
+    private volatile Thread replayerThread = null;
+
+    /**
+     * Number of frames replayed since the input source was last started.
+     */
+    private final AtomicLong replayedCount = new AtomicLong(0);
+
+    /**
+     * Constructor specifying the touch target for which the events will be replayed, and the directory and base name
+     * of the recording to be replayed in real time.
+     *
+     * @param target    Touch target for which the events will be replayed.
+     * @param directory Directory containing the segment files of the recording.
+     * @param baseName  Base name of the segment files of the recording.
+     */
+    public ReplaySource(TouchTarget target, File directory, String baseName) {
+        this(target, directory, baseName, REAL_TIME);
+    }
+
+    /**
+     * Constructor specifying the touch target for which the events will be replayed, the directory and base name of
+     * the recording, and the replay speed.
+     *
+     * @param target    Touch target for which the events will be replayed.
+     * @param directory Directory containing the segment files of the recording.
+     * @param baseName  Base name of the segment files of the recording.
+     * @param speed     Replay speed relatively to real time (for instance, 1.0 for real time, 10.0 for ten times
+     *                  faster), or {@link #UNTHROTTLED}.
+     */
+    public ReplaySource(TouchTarget target, File directory, String baseName, double speed) {
+        super(target);
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be strictly positive: " + speed);
+        }
+        this.directory = directory;
+        this.baseName = baseName;
+        this.speed = speed;
+    }
+
+    /**
+     * Gets the replay speed.
+     *
+     * @return Replay speed relatively to real time, or {@link #UNTHROTTLED}.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Sets the touch targets for the recorded touch target IDs.
+     * <p/>
+     * The events whose touch target ID is not in the map are replayed for the touch target of this input source. The
+     * touch targets that were recorded are described in the target table of the recording, which can be used to build
+     * the map.
+     *
+     * @param targets Map of recorded touch target IDs to touch targets.
+     *
+     * @see com.github.multitouchframework.base.processing.record.RecordingReader#getTargets()
+     * @see com.github.multitouchframework.base.processing.record.CursorRecorder#getTargetIds()
+     */
+    public void setTargets(Map<Integer, TouchTarget> targets) {
+        this.targets = (targets == null) ? Collections.<Integer, TouchTarget>emptyMap() : new HashMap<Integer,
+                TouchTarget>(targets);
+    }
+
+    /**
+     * Sets the timestamp in the recording from which the next replay is to start.
+     *
+     * @param timestamp Timestamp in nanoseconds since the recording started.
+     */
+    public void setStartTimestamp(long timestamp) {
+        startTimestamp = timestamp;
+    }
+
+    /**
+     * Gets the number of frames replayed since the input source was last started.
+     *
+     * @return Replayed frame count.
+     */
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /**
+     * States whether the replay reached the end of the recording or was stopped.
+     *
+     * @return True if the replay is finished, false if it is in progress or if the input source was never started.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Waits until the replay reaches the end of the recording or is stopped.
+     *
+     * @throws InterruptedException If the calling thread was interrupted while waiting.
+     */
+    public void waitUntilFinished() throws InterruptedException {
+        Thread thread = replayerThread;
+        if ((thread != null) && (Thread.currentThread() != thread)) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Gets the touch target for the specified recorded touch target ID.
+     *
+     * @param targetId Recorded touch target ID.
+     *
+     * @return Touch target to be used for the replayed event.
+     */
+    private TouchTarget getTarget(int targetId) {
+        TouchTarget mappedTarget = targets.get(targetId);
+        return (mappedTarget == null) ? target : mappedTarget;
+    }
+
+    /**
+     * Opens the recording and starts replaying it from the beginning, or from the start timestamp if one was set.
+     *
+     * @see AbstractInputSource#start()
+     */
+    @Override
+    public void start() {
+        if (isStarted()) {
+            LOGGER.warn("Replay of recording " + baseName + " is already started");
+        } else {
+            try {
+                RecordingReader reader = new RecordingReader(directory, baseName);
+
+                replayedCount.set(0);
+                finished = false;
+                running = true;
+                replayerThread = new Thread(new Replayer(reader), "ReplaySource-" + THREAD_COUNT.incrementAndGet());
+                replayerThread.setDaemon(true);
+                replayerThread.start();
+                super.start();
+            } catch (IOException e) {
+                LOGGER.error("Could not open recording " + baseName + " in " + directory + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops replaying and waits for the replaying thread to terminate, unless called from the replaying thread itself
+     * (for instance, by one of the next blocks).
+     *
+     * @see AbstractInputSource#stop()
+     */
+    @Override
+    public void stop() {
+        if (replayerThread != null) {
+            running = false;
+            LockSupport.unpark(replayerThread);
+            if (Thread.currentThread() != replayerThread) {
+                try {
+                    replayerThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            replayerThread = null;
+        }
+        super.stop();
+    }
+}
@@ -0,0 +1,610 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.processing.source;
+
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.base.cursor.CursorFrame;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Input source generating cursors for several simulated users, in order to load-test the processing chain without any
+ * touch device.
+ * <p/>
+ * Each simulated user performs gestures one after the other with the configured number of fingers: the fingers are put
+ * down, moved according to the gesture, and released, followed by a short pause. The gestures are either picked
+ * randomly or taken in loop from a script (see {@link #setScript(Gesture...)}).
+ * <p/>
+ * The cursors are generated on a dedicated thread, at a fixed frame rate: for each frame, one cursor update event is
+ * produced for each user having cursors that changed. In order to keep a precise pacing at high rates, the thread
+ * parks until shortly before the next frame and then spins. If the next blocks are too slow to keep up, the frames are
+ * generated as fast as possible until the lateness is caught up, so that the average rate is preserved.
+ * <p/>
+ * All the random decisions are made from the configured seed, on the generating thread only, so that two runs with the
+ * same parameters produce exactly the same sequence of cursors. The sequence is restarted each time the input source is
+ * started.
+ *
+ * @see AbstractInputSource
+ */
+public class SyntheticInputSource extends AbstractInputSource {
+
+    /**
+     * Gestures that can be performed by the simulated users.
+     */
+    public enum Gesture {
+
+        /**
+         * Fingers put down and released at the same place after a few frames.
+         */
+        TAP,
+
+        /**
+         * Fingers moved together in the same direction.
+         */
+        DRAG,
+
+        /**
+         * Fingers moved closer to or further from each other.
+         */
+        PINCH_SPREAD
+    }
+
+    /**
+     * Gesture being performed by a simulated user, or pause between two gestures.
+     */
+    private class UserScript {
+
+        /**
+         * ID of the simulated user.
+         */
+        private final long userId;
+
+        /**
+         * Index of the next gesture in the script.
+         */
+        private int scriptIndex = 0;
+
+        /**
+         * Gesture currently performed, or null during a pause.
+         */
+        private Gesture gesture = null;
+
+        /**
+         * Number of frames remaining before the end of the current gesture or pause.
+         */
+        private int remainingFrameCount = 0;
+
+        /**
+         * Cursor IDs of the fingers performing the current gesture.
+         */
+        private final long[] cursorIds = new long[fingerCount];
+
+        /**
+         * Offsets of the fingers from the center of the gesture, in pixels.
+         */
+        private final double[] offsetsX = new double[fingerCount];
+
+        /**
+         * Offsets of the fingers from the center of the gesture, in pixels.
+         */
+        private final double[] offsetsY = new double[fingerCount];
+
+        /**
+         * Cursors of the fingers for the current frame, reused from one frame to the next.
+         */
+        private final CursorFrame cursors = new CursorFrame(fingerCount);
+
+        /**
+         * Current center of the gesture.
+         */
+        private double centerX = 0;
+
+        /**
+         * Current center of the gesture.
+         */
+        private double centerY = 0;
+
+        /**
+         * Movement of the center of the gesture at each frame, in pixels.
+         */
+        private double velocityX = 0;
+
+        /**
+         * Movement of the center of the gesture at each frame, in pixels.
+         */
+        private double velocityY = 0;
+
+        /**
+         * Scale factor applied to the offsets of the fingers at each frame.
+         */
+        private double scaleFactor = 1.0;
+
+        /**
+         * Constructor specifying the ID of the simulated user.
+         *
+         * @param userId ID of the simulated user.
+         */
+        public UserScript(long userId) {
+            this.userId = userId;
+            remainingFrameCount = 1 + random.nextInt(MAX_PAUSE_FRAME_COUNT);
+        }
+
+        /**
+         * Advances the script by one frame.
+         *
+         * @return Cursors of the simulated user for this frame, or null if nothing changed since the previous frame.
+         */
+        public CursorFrame nextFrame() {
+            boolean changed = true;
+
+            if (gesture == null) {
+                // Pausing
+                remainingFrameCount--;
+                if (remainingFrameCount <= 0) {
+                    startGesture();
+                    updateCursors();
+                } else {
+                    changed = false;
+                }
+            } else if (remainingFrameCount > 0) {
+                // Performing gesture
+                remainingFrameCount--;
+                moveFingers();
+                updateCursors();
+            } else {
+                // Releasing fingers
+                gesture = null;
+                remainingFrameCount = 1 + random.nextInt(MAX_PAUSE_FRAME_COUNT);
+                cursors.clear();
+            }
+
+            return changed ? cursors : null;
+        }
+
+        /**
+         * Puts the fingers down to start the next gesture.
+         */
+        private void startGesture() {
+            Gesture[] currentScript = script;
+            if (currentScript.length == 0) {
+                gesture = GESTURES[random.nextInt(GESTURES.length)];
+            } else {
+                gesture = currentScript[scriptIndex % currentScript.length];
+                scriptIndex++;
+            }
+
+            // Place the fingers around a random center
+            centerX = random.nextInt(Math.max(1, target.getMaximumWidth()));
+            centerY = random.nextInt(Math.max(1, target.getMaximumHeight()));
+            double radius = MIN_FINGER_RADIUS + random.nextInt(MAX_FINGER_RADIUS - MIN_FINGER_RADIUS);
+            for (int i = 0; i < fingerCount; i++) {
+                double angle = 2 * Math.PI * (i + random.nextDouble() / 2) / fingerCount;
+                cursorIds[i] = nextCursorId++;
+                offsetsX[i] = (fingerCount == 1) ? 0 : (radius * Math.cos(angle));
+                offsetsY[i] = (fingerCount == 1) ? 0 : (radius * Math.sin(angle));
+            }
+
+            // Determine the movement
+            switch (gesture) {
+                case TAP:
+                    remainingFrameCount = MIN_TAP_FRAME_COUNT + random.nextInt(MAX_TAP_FRAME_COUNT -
+                            MIN_TAP_FRAME_COUNT);
+                    velocityX = 0;
+                    velocityY = 0;
+                    scaleFactor = 1.0;
+                    break;
+                case DRAG:
+                    remainingFrameCount = MIN_MOVE_FRAME_COUNT + random.nextInt(MAX_MOVE_FRAME_COUNT -
+                            MIN_MOVE_FRAME_COUNT);
+                    velocityX = (random.nextDouble() * 2 - 1) * MAX_VELOCITY;
+                    velocityY = (random.nextDouble() * 2 - 1) * MAX_VELOCITY;
+                    scaleFactor = 1.0;
+                    break;
+                default:
+                    remainingFrameCount = MIN_MOVE_FRAME_COUNT + random.nextInt(MAX_MOVE_FRAME_COUNT -
+                            MIN_MOVE_FRAME_COUNT);
+                    velocityX = 0;
+                    velocityY = 0;
+                    scaleFactor = random.nextBoolean() ? (1.0 + MAX_SCALE_CHANGE * random.nextDouble()) : (1.0 -
+                            MAX_SCALE_CHANGE * random.nextDouble());
+                    break;
+            }
+        }
+
+        /**
+         * Moves the fingers according to the current gesture.
+         */
+        private void moveFingers() {
+            centerX += velocityX;
+            centerY += velocityY;
+            for (int i = 0; i < fingerCount; i++) {
+                offsetsX[i] *= scaleFactor;
+                offsetsY[i] *= scaleFactor;
+            }
+        }
+
+        /**
+         * Updates the cursors to the current location of the fingers.
+         * <p/>
+         * The cursors are kept within the bounds of the touch target.
+         */
+        private void updateCursors() {
+            int maxX = target.getMaximumWidth() - 1;
+            int maxY = target.getMaximumHeight() - 1;
+
+            cursors.clear();
+            for (int i = 0; i < fingerCount; i++) {
+                int x = Math.max(0, Math.min(maxX, (int) Math.round(centerX + offsetsX[i])));
+                int y = Math.max(0, Math.min(maxY, (int) Math.round(centerY + offsetsY[i])));
+                cursors.add(cursorIds[i], x, y);
+            }
+        }
+    }
+
+    /**
+     * Generator of the cursors, running on the dedicated thread.
+     */
+    private class Generator implements Runnable {
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            // Restart the sequence from the seed
+            random = new Random(seed);
+            nextCursorId = 0;
+            nextSequenceNumber = 0;
+            UserScript[] userScripts = new UserScript[userCount];
+            for (int i = 0; i < userCount; i++) {
+                userScripts[i] = new UserScript(i);
+            }
+
+            long framePeriod = TimeUnit.SECONDS.toNanos(1) / rate;
+            long nextFrameTime = System.nanoTime();
+            while (running) {
+                // Generate frame for all users
+                for (UserScript userScript : userScripts) {
+                    CursorFrame cursors = userScript.nextFrame();
+                    if (cursors != null) {
+                        processWithNextBlocks(userScript.userId, target, cursors, System.nanoTime(),
+                                nextSequenceNumber++);
+                    }
+                }
+                frameCount.incrementAndGet();
+
+                // Wait for next frame
+                nextFrameTime += framePeriod;
+                waitUntil(nextFrameTime);
+            }
+        }
+
+        /**
+         * Waits until the specified time, or until the input source is stopped.
+         *
+         * @param deadline Time to wait for, in nanoseconds.
+         */
+        private void waitUntil(long deadline) {
+            long remainingTime = deadline - System.nanoTime();
+            while (running && (remainingTime > 0)) {
+                if (remainingTime > SPIN_THRESHOLD) {
+                    // Parking is not precise, so wake up a bit earlier
+                    LockSupport.parkNanos(remainingTime - SPIN_THRESHOLD);
+                } else {
+                    Thread.yield();
+                }
+                remainingTime = deadline - System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Default number of simulated users.
+     */
+    public static final int DEFAULT_USER_COUNT = 1;
+
+    /**
+     * Default number of fingers for each simulated user.
+     */
+    public static final int DEFAULT_FINGER_COUNT = 2;
+
+    /**
+     * Default number of frames generated per second.
+     */
+    public static final int DEFAULT_RATE = 100;
+
+    /**
+     * Maximum number of frames that can be generated per second.
+     */
+    public static final int MAX_RATE = 10000;
+
+    /**
+     * Default seed of the pseudo-random generator.
+     */
+    public static final long DEFAULT_SEED = 0;
+
+    /**
+     * All gestures, to pick random gestures from.
+     */
+    private static final Gesture[] GESTURES = Gesture.values();
+
+    /**
+     * Maximum number of frames without any finger between two gestures.
+     */
+    private static final int MAX_PAUSE_FRAME_COUNT = 30;
+
+    /**
+     * Minimum number of frames during which the fingers stay down for a tap.
+     */
+    private static final int MIN_TAP_FRAME_COUNT = 2;
+
+    /**
+     * Maximum number of frames during which the fingers stay down for a tap.
+     */
+    private static final int MAX_TAP_FRAME_COUNT = 8;
+
+    /**
+     * Minimum number of frames during which the fingers move for a drag or a pinch/spread.
+     */
+    private static final int MIN_MOVE_FRAME_COUNT = 20;
+
+    /**
+     * Maximum number of frames during which the fingers move for a drag or a pinch/spread.
+     */
+    private static final int MAX_MOVE_FRAME_COUNT = 120;
+
+    /**
+     * Minimum distance between the fingers and the center of the gesture, in pixels.
+     */
+    private static final int MIN_FINGER_RADIUS = 20;
+
+    /**
+     * Maximum distance between the fingers and the center of the gesture, in pixels.
+     */
+    private static final int MAX_FINGER_RADIUS = 100;
+
+    /**
+     * Maximum movement of the center of a drag at each frame, in pixels.
+     */
+    private static final double MAX_VELOCITY = 10.0;
+
+    /**
+     * Maximum relative change of the distance between the fingers at each frame of a pinch/spread.
+     */
+    private static final double MAX_SCALE_CHANGE = 0.02;
+
+    /**
+     * Remaining time to the next frame under which the generating thread spins instead of parking, in nanoseconds.
+     */
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(200);
+
+    /**
+     * Number of generating threads created so far, used to name them.
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+    /**
+     * Number of simulated users.
+     */
+    private final int userCount;
+
+    /**
+     * Number of fingers for each simulated user.
+     */
+    private final int fingerCount;
+
+    /**
+     * Number of frames generated per second.
+     */
+    private final int rate;
+
+    /**
+     * Seed of the pseudo-random generator.
+     */
+    private final long seed;
+
+    /**
+     * Gestures to be performed in loop by each simulated user, or empty array for random gestures.
+     *
+     * @see #setScript(Gesture...)
+     */
+    private volatile Gesture[] script = new Gesture[0];
+
+    /**
+     * Flag indicating whether the generating thread is to keep on generating cursors.
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Thread generating the cursors, or null if the input source is not started.
+     */
+    private Thread generatorThread = null;
+
+    /**
+     * Number of frames generated since the input source was last started.
+     */
+    private final AtomicLong frameCount = new AtomicLong(0);
+
+    /**
+     * Pseudo-random generator, only used on the generating thread.
+     */
+    private Random random = null;
+
+    /**
+     * Cursor ID to be given to the next finger put down, only used on the generating thread.
+     */
+    private long nextCursorId = 0;
+
+    /**
+     * Sequence number to be given to the next cursor update event, only used on the generating thread.
+     */
+    private long nextSequenceNumber = 0;
+
+    /**
+     * Constructor specifying the touch target for which the cursors will be generated, and using the default number of
+     * users, number of fingers, rate and seed.
+     *
+     * @param target Touch target for which the cursors will be generated.
+     */
+    public SyntheticInputSource(TouchTarget target) {
+        this(target, DEFAULT_USER_COUNT, DEFAULT_FINGER_COUNT, DEFAULT_RATE, DEFAULT_SEED);
+    }
+
+    /**
+     * Constructor specifying the touch target for which the cursors will be generated, the number of simulated users,
+     * the number of fingers for each user, the number of frames per second and the seed of the pseudo-random generator.
+     *
+     * @param target      Touch target for which the cursors will be generated.
+     * @param userCount   Number of simulated users.
+     * @param fingerCount Number of fingers for each simulated user.
+     * @param rate        Number of frames generated per second, up to {@link #MAX_RATE}.
+     * @param seed        Seed of the pseudo-random generator.
+     */
+    public SyntheticInputSource(TouchTarget target, int userCount, int fingerCount, int rate, long seed) {
+        super(target);
+        if (userCount <= 0) {
+            throw new IllegalArgumentException("User count must be strictly positive: " + userCount);
+        }
+        if (fingerCount <= 0) {
+            throw new IllegalArgumentException("Finger count must be strictly positive: " + fingerCount);
+        }
+        if ((rate <= 0) || (rate > MAX_RATE)) {
+            throw new IllegalArgumentException("Rate must be between 1 and " + MAX_RATE + ": " + rate);
+        }
+        this.userCount = userCount;
+        this.fingerCount = fingerCount;
+        this.rate = rate;
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the number of simulated users.
+     *
+     * @return User count.
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Gets the number of fingers for each simulated user.
+     *
+     * @return Finger count.
+     */
+    public int getFingerCount() {
+        return fingerCount;
+    }
+
+    /**
+     * Gets the number of frames generated per second.
+     *
+     * @return Frame rate.
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * Gets the seed of the pseudo-random generator.
+     *
+     * @return Seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the gestures performed in loop by each simulated user.
+     *
+     * @return Script of gestures, or empty array if the gestures are picked randomly.
+     */
+    public Gesture[] getScript() {
+        return script.clone();
+    }
+
+    /**
+     * Sets the gestures to be performed in loop by each simulated user.
+     * <p/>
+     * This is to be called before starting the input source, otherwise the new script will only be used for the next
+     * gestures of each user.
+     *
+     * @param gestures Script of gestures, or no gesture to pick the gestures randomly.
+     */
+    public void setScript(Gesture... gestures) {
+        script = (gestures == null) ? new Gesture[0] : gestures.clone();
+    }
+
+    /**
+     * Gets the number of frames generated since the input source was last started.
+     *
+     * @return Frame count.
+     */
+    public long getFrameCount() {
+        return frameCount.get();
+    }
+
+    /**
+     * @see AbstractInputSource#start()
+     */
+    @Override
+    public void start() {
+        if (!isStarted()) {
+            frameCount.set(0);
+            running = true;
+            generatorThread = new Thread(new Generator(), "SyntheticInputSource-" + THREAD_COUNT.incrementAndGet());
+            generatorThread.setDaemon(true);
+            generatorThread.start();
+            super.start();
+        }
+    }
+
+    /**
+     * Stops generating cursors and waits for the generating thread to terminate, unless called from the generating
+     * thread itself (for instance, by one of the next blocks).
+     *
+     * @see AbstractInputSource#stop()
+     */
+    @Override
+    public void stop() {
+        if (generatorThread != null) {
+            running = false;
+            LockSupport.unpark(generatorThread);
+            if (Thread.currentThread() != generatorThread) {
+                try {
+                    generatorThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            generatorThread = null;
+        }
+        super.stop();
+    }
+}
@@ -25,10 +25,8 @@
 
 package com.github.multitouchframework.base.processing.source;
 
-import com.github.multitouchframework.api.TouchListener;
 import com.github.multitouchframework.api.TouchTarget;
-import com.github.multitouchframework.base.cursor.Cursor;
-import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.cursor.CursorFrame;
 import com.mlawrie.yajtl.TUIOCursor;
 import com.mlawrie.yajtl.TUIOEvent;
 import com.mlawrie.yajtl.TUIOReceiver;
@@ -37,8 +35,6 @@ import org.slf4j.LoggerFactory;
 
 import java.net.BindException;
 import java.net.SocketException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Input controller making use of a TUIO client to provide cursors received from a TUIO server.
@@ -57,24 +53,34 @@ public class TuioSource extends AbstractInputSource {
 
         /**
          * Cursors currently detected by the touch surface.
+         * <p/>
+         * This frame is updated in place and never exposed to the next blocks, which receive snapshots of it.
          */
-        private final Map<Long, Cursor> currentCursors = new HashMap<Long, Cursor>();
+        private final CursorFrame currentCursors = new CursorFrame();
+
+        /**
+         * Sequence number to be given to the next cursor update event.
+         * <p/>
+         * The TUIO callbacks are all called on the same network thread, so there is no need for synchronization.
+         */
+        private long nextSequenceNumber = 0;
 
         /**
          * @see TUIOEvent#newCursorEvent(TUIOCursor)
          */
         @Override
         public void newCursorEvent(TUIOCursor tuioCursor) {
-            // Sanity check
-            if (currentCursors.containsKey(tuioCursor.id())) {
+            long receiveTime = System.nanoTime();
+
+            // Process cursor addition, with sanity check
+            int index = currentCursors.indexOf(tuioCursor.id());
+            if (index < 0) {
+                currentCursors.add(tuioCursor.id(), (int) tuioCursor.x(), (int) tuioCursor.y());
+            } else {
                 LOGGER.warn("+++ Cursor " + tuioCursor.id() + " was already tracked");
+                currentCursors.set(index, (int) tuioCursor.x(), (int) tuioCursor.y());
             }
-
-            // Process cursor addition
-            Cursor cursor = new Cursor(tuioCursor.id(), Float.valueOf(tuioCursor.x()).intValue(),
-                    Float.valueOf(tuioCursor.y()).intValue());
-            currentCursors.put(tuioCursor.id(), cursor);
-            processWithNextBlocks();
+            processWithNextBlocks(receiveTime);
         }
 
         /**
@@ -82,14 +88,16 @@ public class TuioSource extends AbstractInputSource {
          */
         @Override
         public void removeCursorEvent(TUIOCursor tuioCursor) {
-            // Sanity check
-            if (!currentCursors.containsKey(tuioCursor.id())) {
+            long receiveTime = System.nanoTime();
+
+            // Process cursor removal, with sanity check
+            int index = currentCursors.indexOf(tuioCursor.id());
+            if (index < 0) {
                 LOGGER.warn("--- Cursor " + tuioCursor.id() + " was not tracked");
+            } else {
+                currentCursors.remove(index);
             }
-
-            // Process cursor removal
-            currentCursors.remove(tuioCursor.id());
-            processWithNextBlocks();
+            processWithNextBlocks(receiveTime);
         }
 
         /**
@@ -97,26 +105,26 @@ public class TuioSource extends AbstractInputSource {
          */
         @Override
         public void moveCursorEvent(TUIOCursor tuioCursor) {
-            // Sanity check
-            if (!currentCursors.containsKey(tuioCursor.id())) {
+            long receiveTime = System.nanoTime();
+
+            // Update the cursor in place, with sanity check
+            int index = currentCursors.indexOf(tuioCursor.id());
+            if (index < 0) {
                 LOGGER.warn("~~~ Cursor " + tuioCursor.id() + " was not tracked (it will now be tracked)");
+                currentCursors.add(tuioCursor.id(), (int) tuioCursor.x(), (int) tuioCursor.y());
+            } else {
+                currentCursors.set(index, (int) tuioCursor.x(), (int) tuioCursor.y());
             }
-
-            // Update by just replacing the cursor
-            Cursor cursor = new Cursor(tuioCursor.id(), Float.valueOf(tuioCursor.x()).intValue(),
-                    Float.valueOf(tuioCursor.y()).intValue());
-            currentCursors.put(tuioCursor.id(), cursor);
-            processWithNextBlocks();
+            processWithNextBlocks(receiveTime);
         }
 
         /**
          * Processes the current cursors using the blocks/listeners that are queued/added to this input source.
+         *
+         * @param receiveTime Time at which the TUIO message was received, in nanoseconds.
          */
-        private void processWithNextBlocks() {
-            CursorUpdateEvent event = new CursorUpdateEvent(0, target, currentCursors.values());
-            for (TouchListener<CursorUpdateEvent> nextBlock : nextBlocks) {
-                nextBlock.processTouchEvent(event);
-            }
+        private void processWithNextBlocks(long receiveTime) {
+            TuioSource.this.processWithNextBlocks(0, target, currentCursors, receiveTime, nextSequenceNumber++);
         }
     }
 
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+/**
+ * Copy-on-write set of primitive longs, meant to be used by filters holding IDs against which events are checked.
+ * <p/>
+ * Modifications replace the whole underlying set, so that lookups with {@link #contains(long)} require no lock and
+ * create no garbage, even while the set is being modified from another thread (for instance, the EDT).
+ *
+ * @see CopyOnWriteSet
+ * @see LongSet
+ */
+public final class CopyOnWriteLongSet {
+
+    /**
+     * Current snapshot of the elements.
+     * <p/>
+     * The referenced set is never modified once published.
+     */
+    private volatile LongSet snapshot = new LongSet(0);
+
+    /**
+     * Adds the specified element to the set.
+     *
+     * @param element Element to be added.
+     *
+     * @return True if the set did not already contain the element, false otherwise.
+     */
+    public synchronized boolean add(long element) {
+        boolean added = false;
+
+        if (!snapshot.contains(element)) {
+            LongSet newSnapshot = new LongSet(snapshot);
+            newSnapshot.add(element);
+            snapshot = newSnapshot;
+            added = true;
+        }
+
+        return added;
+    }
+
+    /**
+     * Removes the specified element from the set.
+     *
+     * @param element Element to be removed.
+     *
+     * @return True if the set contained the element, false otherwise.
+     */
+    public synchronized boolean remove(long element) {
+        boolean removed = false;
+
+        if (snapshot.contains(element)) {
+            LongSet newSnapshot = new LongSet(snapshot);
+            newSnapshot.remove(element);
+            snapshot = newSnapshot;
+            removed = true;
+        }
+
+        return removed;
+    }
+
+    /**
+     * States whether the set contains the specified element.
+     *
+     * @param element Element to be checked.
+     *
+     * @return True if the element is in the set, false otherwise.
+     */
+    public boolean contains(long element) {
+        return snapshot.contains(element);
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return snapshot.toString();
+    }
+}
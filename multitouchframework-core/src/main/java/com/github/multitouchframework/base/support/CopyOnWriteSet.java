@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Copy-on-write set, meant to be used by filters holding the criteria against which events are checked.
+ * <p/>
+ * Modifications replace the whole underlying set, so that lookups with {@link #contains(Object)} require no lock and
+ * no iterator, even while the set is being modified from another thread (for instance, the EDT).
+ *
+ * @param <T> Type of elements.
+ *
+ * @see ListenerArray
+ */
+public final class CopyOnWriteSet<T> {
+
+    /**
+     * Current snapshot of the elements.
+     * <p/>
+     * The referenced set is never modified once published.
+     */
+    private volatile Set<T> snapshot = Collections.emptySet();
+
+    /**
+     * Adds the specified element to the set.
+     *
+     * @param element Element to be added.
+     *
+     * @return True if the set did not already contain the element, false otherwise.
+     */
+    public synchronized boolean add(T element) {
+        boolean added = false;
+
+        if (!snapshot.contains(element)) {
+            Set<T> newSnapshot = new HashSet<T>(snapshot);
+            newSnapshot.add(element);
+            snapshot = newSnapshot;
+            added = true;
+        }
+
+        return added;
+    }
+
+    /**
+     * Adds all the specified elements to the set.
+     *
+     * @param elements Elements to be added.
+     */
+    public synchronized void addAll(Collection<? extends T> elements) {
+        Set<T> newSnapshot = new HashSet<T>(snapshot);
+        newSnapshot.addAll(elements);
+        snapshot = newSnapshot;
+    }
+
+    /**
+     * Removes the specified element from the set.
+     *
+     * @param element Element to be removed.
+     *
+     * @return True if the set contained the element, false otherwise.
+     */
+    public synchronized boolean remove(Object element) {
+        boolean removed = false;
+
+        if (snapshot.contains(element)) {
+            Set<T> newSnapshot = new HashSet<T>(snapshot);
+            newSnapshot.remove(element);
+            snapshot = newSnapshot;
+            removed = true;
+        }
+
+        return removed;
+    }
+
+    /**
+     * States whether the set contains the specified element.
+     *
+     * @param element Element to be checked.
+     *
+     * @return True if the element is in the set, false otherwise.
+     */
+    public boolean contains(Object element) {
+        return snapshot.contains(element);
+    }
+
+    /**
+     * Gets a read-only view of the current elements.
+     * <p/>
+     * The returned set will not be affected by sub-sequent modifications.
+     *
+     * @return Current elements.
+     */
+    public Set<T> getSnapshot() {
+        return Collections.unmodifiableSet(snapshot);
+    }
+}
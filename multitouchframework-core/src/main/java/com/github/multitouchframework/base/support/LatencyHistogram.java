@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies, meant to be updated on the processing path of touch events.
+ * <p/>
+ * The values are counted in buckets whose width grows with the magnitude of the values, so that the relative error on
+ * the percentiles stays under 1/16 (about 6%) over the whole range of long values. Recording a value requires no lock
+ * and no allocation.
+ * <p/>
+ * Negative values, typically measured against a timestamp that is ahead of the clock, are not part of the statistics:
+ * they are only counted (see {@link #getNegativeCount()}), so that they do not pass for very low latencies.
+ * <p/>
+ * Note that the statistics are not read atomically: reading them while values are being recorded may give slightly
+ * inconsistent results.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of bits used to divide each power of two into sub-buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Number of sub-buckets for each power of two.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets needed to cover all positive long values.
+     */
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /**
+     * Number of values recorded in each bucket.
+     */
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Total number of values recorded.
+     */
+    private final AtomicLong totalCount = new AtomicLong(0);
+
+    /**
+     * Sum of all values recorded.
+     */
+    private final AtomicLong totalSum = new AtomicLong(0);
+
+    /**
+     * Highest value recorded.
+     */
+    private final AtomicLong maxValue = new AtomicLong(0);
+
+    /**
+     * Number of negative values that were not recorded.
+     */
+    private final AtomicLong negativeCount = new AtomicLong(0);
+
+    /**
+     * Records the specified value.
+     * <p/>
+     * Negative values are only counted.
+     *
+     * @param value Value to be recorded, typically in nanoseconds.
+     *
+     * @see #getNegativeCount()
+     */
+    public void record(long value) {
+        if (value < 0) {
+            negativeCount.incrementAndGet();
+        } else {
+            bucketCounts.incrementAndGet(getBucketIndex(value));
+            totalCount.incrementAndGet();
+            totalSum.addAndGet(value);
+
+            long currentMax = maxValue.get();
+            while ((value > currentMax) && !maxValue.compareAndSet(currentMax, value)) {
+                currentMax = maxValue.get();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of values recorded.
+     * <p/>
+     * This does not include the negative values.
+     *
+     * @return Value count.
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gets the number of negative values that were passed to {@link #record(long)} and left out of the statistics.
+     *
+     * @return Negative value count.
+     */
+    public long getNegativeCount() {
+        return negativeCount.get();
+    }
+
+    /**
+     * Gets the highest value recorded.
+     *
+     * @return Maximum value, or 0 if no value was recorded.
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Gets the average of the values recorded.
+     *
+     * @return Mean value, or 0 if no value was recorded.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return (count == 0) ? 0 : ((double) totalSum.get() / count);
+    }
+
+    /**
+     * Gets the value under which the specified percentage of the recorded values fall.
+     *
+     * @param percentile Percentage, between 0 and 100 (for instance, 99.9).
+     *
+     * @return Upper bound of the bucket containing the percentile, or 0 if no value was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long value = 0;
+
+        long count = totalCount.get();
+        if (count > 0) {
+            long targetCount = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+            long cumulatedCount = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                cumulatedCount += bucketCounts.get(i);
+                if (cumulatedCount >= targetCount) {
+                    value = Math.min(getBucketUpperBound(i), maxValue.get());
+                    break;
+                }
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+        negativeCount.set(0);
+    }
+
+    /**
+     * Gets the index of the bucket in which the specified value is to be counted.
+     *
+     * @param value Positive value.
+     *
+     * @return Bucket index.
+     */
+    private static int getBucketIndex(long value) {
+        int index;
+
+        if (value < SUB_BUCKET_COUNT) {
+            // Small values are counted exactly
+            index = (int) value;
+        } else {
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+            index = (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the highest value that is counted in the specified bucket.
+     *
+     * @param index Bucket index.
+     *
+     * @return Upper bound of the bucket.
+     */
+    private static long getBucketUpperBound(int index) {
+        long upperBound;
+
+        if (index < SUB_BUCKET_COUNT) {
+            upperBound = index;
+        } else {
+            int shift = (index / SUB_BUCKET_COUNT) - 1;
+            long lowerBound = ((long) (SUB_BUCKET_COUNT + (index % SUB_BUCKET_COUNT))) << shift;
+            upperBound = lowerBound + (1L << shift) - 1;
+        }
+
+        return upperBound;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount() + "; p50=" + getValueAtPercentile(50) + "; p99=" +
+                getValueAtPercentile(99) + "; p999=" + getValueAtPercentile(99.9) + "; max=" + getMax() + "}";
+    }
+}
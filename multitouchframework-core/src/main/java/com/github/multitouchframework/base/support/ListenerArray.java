@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copy-on-write array of listeners or next blocks, meant to be used by all {@link com.github.multitouchframework.api
+ * .Chainable} implementations.
+ * <p/>
+ * Adding or removing an element atomically replaces the whole array, so that the array returned by {@link
+ * #getSnapshot()} never changes after it has been retrieved. This allows a block to dispatch events to its next blocks
+ * from one thread without any lock and without creating any iterator, while the chain is being modified from another
+ * thread (for instance, the EDT).
+ * <p/>
+ * Note that, just like {@link java.util.ArrayList}, a same element can be added several times.
+ *
+ * @param <T> Type of listeners or next blocks.
+ */
+public final class ListenerArray<T> {
+
+    /**
+     * Current snapshot of the listeners.
+     * <p/>
+     * The referenced array is never modified once published.
+     */
+    private final AtomicReference<T[]> snapshot;
+
+    /**
+     * Constructor specifying the type of the listeners.
+     *
+     * @param componentType Type of the listeners, used to create arrays of the appropriate type.
+     */
+    @SuppressWarnings("unchecked")
+    public ListenerArray(Class<?> componentType) {
+        snapshot = new AtomicReference<T[]>((T[]) Array.newInstance(componentType, 0));
+    }
+
+    /**
+     * Adds the specified listener at the end of the array.
+     *
+     * @param listener Listener to be added.
+     */
+    public void add(T listener) {
+        T[] oldSnapshot;
+        T[] newSnapshot;
+        do {
+            oldSnapshot = snapshot.get();
+            newSnapshot = Arrays.copyOf(oldSnapshot, oldSnapshot.length + 1);
+            newSnapshot[oldSnapshot.length] = listener;
+        } while (!snapshot.compareAndSet(oldSnapshot, newSnapshot));
+    }
+
+    /**
+     * Removes the first occurrence of the specified listener from the array.
+     *
+     * @param listener Listener to be removed.
+     *
+     * @return True if the listener was found and removed, false otherwise.
+     */
+    public boolean remove(Object listener) {
+        boolean removed = false;
+
+        T[] oldSnapshot;
+        T[] newSnapshot;
+        do {
+            oldSnapshot = snapshot.get();
+            int index = indexOf(oldSnapshot, listener);
+            if (index < 0) {
+                // Nothing to be removed
+                newSnapshot = oldSnapshot;
+            } else {
+                newSnapshot = Arrays.copyOf(oldSnapshot, oldSnapshot.length - 1);
+                System.arraycopy(oldSnapshot, index + 1, newSnapshot, index, oldSnapshot.length - index - 1);
+                removed = true;
+            }
+        } while ((newSnapshot != oldSnapshot) && !snapshot.compareAndSet(oldSnapshot, newSnapshot));
+
+        return removed;
+    }
+
+    /**
+     * States whether the specified listener is in the array.
+     *
+     * @param listener Listener to be checked.
+     *
+     * @return True if the listener is in the array, false otherwise.
+     */
+    public boolean contains(Object listener) {
+        return indexOf(snapshot.get(), listener) >= 0;
+    }
+
+    /**
+     * Gets the number of listeners currently in the array.
+     *
+     * @return Listener count.
+     */
+    public int size() {
+        return snapshot.get().length;
+    }
+
+    /**
+     * States whether the array currently contains no listener.
+     *
+     * @return True if there is no listener, false otherwise.
+     */
+    public boolean isEmpty() {
+        return snapshot.get().length == 0;
+    }
+
+    /**
+     * Gets the current snapshot of the listeners.
+     * <p/>
+     * The returned array must not be modified. It will not be affected by sub-sequent additions or removals.
+     *
+     * @return Current listeners.
+     */
+    public T[] getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Finds the index of the first occurrence of the specified listener in the specified array.
+     *
+     * @param array    Array to be searched.
+     * @param listener Listener to be found.
+     *
+     * @return Index of the listener if found, -1 otherwise.
+     */
+    private static int indexOf(Object[] array, Object listener) {
+        int index = -1;
+
+        for (int i = 0; i < array.length; i++) {
+            if ((listener == null) ? (array[i] == null) : listener.equals(array[i])) {
+                index = i;
+                break;
+            }
+        }
+
+        return index;
+    }
+}
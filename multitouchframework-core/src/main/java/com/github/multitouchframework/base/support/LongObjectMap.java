@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive long keys to objects, meant to hold per-cursor or per-user data on the processing path.
+ * <p/>
+ * Unlike a {@link java.util.HashMap}, the keys are not boxed and no entry object is created, so that no garbage is
+ * produced as long as the map does not need to grow. The entries are stored in open addressing with linear probing,
+ * and removals shift the following entries back instead of leaving tombstones.
+ * <p/>
+ * Null values are not supported, so that {@link #get(long)} returning null means that there is no entry for the key.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @param <V> Type of values.
+ *
+ * @see LongSet
+ */
+public final class LongObjectMap<V> {
+
+    /**
+     * Default expected number of entries.
+     */
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    /**
+     * Multiplier used to spread the keys over the table (golden ratio).
+     */
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Keys of the entries, meaningful only where the value is not null.
+     */
+    private long[] keys;
+
+    /**
+     * Values of the entries, null for the free slots.
+     */
+    private Object[] values;
+
+    /**
+     * Number of entries in the map.
+     */
+    private int size = 0;
+
+    /**
+     * Mask giving the slot of a hash, the capacity being a power of 2.
+     */
+    private int mask;
+
+    /**
+     * Default constructor.
+     */
+    public LongObjectMap() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Constructor specifying the initial number of entries that can be held without growing the map.
+     *
+     * @param expectedSize Expected number of entries.
+     */
+    public LongObjectMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative: " + expectedSize);
+        }
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Constructor creating a copy of the specified map.
+     *
+     * @param map Map to be copied.
+     */
+    public LongObjectMap(LongObjectMap<? extends V> map) {
+        keys = Arrays.copyOf(map.keys, map.keys.length);
+        values = Arrays.copyOf(map.values, map.values.length);
+        size = map.size;
+        mask = map.mask;
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return Entry count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * States whether the map holds no entry.
+     *
+     * @return True if the map is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the value associated to the specified key.
+     *
+     * @param key Key of the entry.
+     *
+     * @return Value associated to the key, or null if there is no entry for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        V value = null;
+
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            value = (V) values[slot];
+        }
+
+        return value;
+    }
+
+    /**
+     * States whether the map holds an entry for the specified key.
+     *
+     * @param key Key of the entry.
+     *
+     * @return True if there is an entry for the key, false otherwise.
+     */
+    public boolean containsKey(long key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Associates the specified value to the specified key, replacing the previous value if any.
+     *
+     * @param key   Key of the entry.
+     * @param value Value to be associated to the key.
+     *
+     * @return Previous value associated to the key, or null if there was no entry for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+
+        V previousValue = null;
+
+        int slot = hash(key) & mask;
+        while ((values[slot] != null) && (keys[slot] != key)) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (values[slot] == null) {
+            // New entry
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            if (size > (values.length >> 1)) {
+                // Keep the table at most half full so that the probe sequences remain short
+                allocate(values.length << 1);
+            }
+        } else {
+            previousValue = (V) values[slot];
+            values[slot] = value;
+        }
+
+        return previousValue;
+    }
+
+    /**
+     * Removes the entry for the specified key.
+     *
+     * @param key Key of the entry.
+     *
+     * @return Value that was associated to the key, or null if there was no entry for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        V previousValue = null;
+
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            previousValue = (V) values[slot];
+            values[slot] = null;
+            size--;
+            shiftBack(slot);
+        }
+
+        return previousValue;
+    }
+
+    /**
+     * Removes all entries from the map, keeping its capacity.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Finds the slot of the entry for the specified key.
+     *
+     * @param key Key of the entry.
+     *
+     * @return Slot of the entry, or -1 if there is no entry for the key.
+     */
+    private int findSlot(long key) {
+        int foundSlot = -1;
+
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                foundSlot = slot;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return foundSlot;
+    }
+
+    /**
+     * Moves back the entries following the specified freed slot, so that no probe sequence is broken.
+     *
+     * @param freedSlot Slot that has just been freed.
+     */
+    private void shiftBack(int freedSlot) {
+        int gap = freedSlot;
+        int slot = (gap + 1) & mask;
+        while (values[slot] != null) {
+            int idealSlot = hash(keys[slot]) & mask;
+
+            // Move the entry only if the gap lies between its ideal slot and its current slot
+            if (((slot - idealSlot) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                values[slot] = null;
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Allocates the table with the specified capacity, and puts back the current entries, if any.
+     *
+     * @param capacity New capacity, as a power of 2.
+     */
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+
+        if (oldValues != null) {
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the hash of the specified key.
+     *
+     * @param key Key.
+     *
+     * @return Hash, whose lowest bits are well spread.
+     */
+    private static int hash(long key) {
+        long hash = key * HASH_MULTIPLIER;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Computes the capacity of the table for the specified number of entries.
+     *
+     * @param expectedSize Expected number of entries.
+     *
+     * @return Power of 2 at least twice as large as the expected size.
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 2;
+        while (capacity < (expectedSize << 1)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(keys[i]).append('=').append(values[i]);
+            }
+        }
+        return builder.append('}').toString();
+    }
+}
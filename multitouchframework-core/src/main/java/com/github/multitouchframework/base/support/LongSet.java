@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+/**
+ * Set of primitive longs, meant to hold cursor or user IDs on the processing path.
+ * <p/>
+ * Unlike a {@link java.util.HashSet}, the elements are not boxed and no entry object is created, so that no garbage is
+ * produced as long as the set does not need to grow.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @see LongObjectMap
+ */
+public final class LongSet {
+
+    /**
+     * Underlying map, whose values are all the same marker.
+     */
+    private final LongObjectMap<Boolean> map;
+
+    /**
+     * Default constructor.
+     */
+    public LongSet() {
+        map = new LongObjectMap<Boolean>();
+    }
+
+    /**
+     * Constructor specifying the initial number of elements that can be held without growing the set.
+     *
+     * @param expectedSize Expected number of elements.
+     */
+    public LongSet(int expectedSize) {
+        map = new LongObjectMap<Boolean>(expectedSize);
+    }
+
+    /**
+     * Constructor creating a copy of the specified set.
+     *
+     * @param set Set to be copied.
+     */
+    public LongSet(LongSet set) {
+        map = new LongObjectMap<Boolean>(set.map);
+    }
+
+    /**
+     * Gets the number of elements in the set.
+     *
+     * @return Element count.
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * States whether the set holds no element.
+     *
+     * @return True if the set is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * States whether the set contains the specified element.
+     *
+     * @param element Element to be checked.
+     *
+     * @return True if the element is in the set, false otherwise.
+     */
+    public boolean contains(long element) {
+        return map.containsKey(element);
+    }
+
+    /**
+     * Adds the specified element to the set.
+     *
+     * @param element Element to be added.
+     *
+     * @return True if the set did not already contain the element, false otherwise.
+     */
+    public boolean add(long element) {
+        return map.put(element, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Removes the specified element from the set.
+     *
+     * @param element Element to be removed.
+     *
+     * @return True if the set contained the element, false otherwise.
+     */
+    public boolean remove(long element) {
+        return map.remove(element) != null;
+    }
+
+    /**
+     * Removes all elements from the set, keeping its capacity.
+     */
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() {
+        return map.toString().replace("=true", "");
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+/**
+ * Interface to be implemented by objects that are recycled once they are no longer referenced, typically pooled touch
+ * events.
+ * <p/>
+ * The object is given with a reference count of one to its producer. Any block holding the object beyond the call in
+ * which it received it (for instance, to process it later on another thread) must retain it first, and release it
+ * once done. The producer releases its own reference once the object has been processed by the next blocks. When the
+ * reference count drops to zero, the object is recycled and must no longer be used.
+ * <p/>
+ * Blocks that are not aware of the type of the objects they process can use {@link ReferenceCounting}.
+ *
+ * @see ReferenceCounting
+ */
+public interface ReferenceCounted {
+
+    /**
+     * Increments the reference count.
+     *
+     * @throws IllegalStateException If the object has already been recycled.
+     */
+    void retain();
+
+    /**
+     * Decrements the reference count, and recycles the object if it is no longer referenced.
+     *
+     * @throws IllegalStateException If the object has already been recycled.
+     */
+    void release();
+
+    /**
+     * Gets the current reference count.
+     *
+     * @return Reference count, or 0 if the object has been recycled.
+     */
+    int getReferenceCount();
+}
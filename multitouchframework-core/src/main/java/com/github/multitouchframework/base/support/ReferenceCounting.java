@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.base.support;
+
+/**
+ * Utility methods to retain and release objects that may or may not be {@link ReferenceCounted}.
+ * <p/>
+ * They are meant to be used by the generic blocks holding events beyond the call in which they received them, so that
+ * these blocks work with both pooled and regular events.
+ *
+ * @see ReferenceCounted
+ */
+public final class ReferenceCounting {
+
+    /**
+     * Private constructor for utility class.
+     */
+    private ReferenceCounting() {
+        // Nothing to be done
+    }
+
+    /**
+     * Retains the specified object if it is reference-counted.
+     *
+     * @param object Object to be retained, possibly null.
+     *
+     * @see ReferenceCounted#retain()
+     */
+    public static void retain(Object object) {
+        if (object instanceof ReferenceCounted) {
+            ((ReferenceCounted) object).retain();
+        }
+    }
+
+    /**
+     * Releases the specified object if it is reference-counted.
+     *
+     * @param object Object to be released, possibly null.
+     *
+     * @see ReferenceCounted#release()
+     */
+    public static void release(Object object) {
+        if (object instanceof ReferenceCounted) {
+            ((ReferenceCounted) object).release();
+        }
+    }
+}
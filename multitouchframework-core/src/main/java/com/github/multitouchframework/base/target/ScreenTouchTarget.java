@@ -105,7 +105,14 @@ public class ScreenTouchTarget implements TouchTarget {
      */
     @Override
     public boolean isTouched(Cursor cursor) {
-        return ((0 <= cursor.getX()) && (cursor.getX() < screenSize.width) && (0 <= cursor.getY()) &&
-                (cursor.getY() < screenSize.height));
+        return isTouched(cursor.getX(), cursor.getY());
+    }
+
+    /**
+     * @see TouchTarget#isTouched(int, int)
+     */
+    @Override
+    public boolean isTouched(int x, int y) {
+        return ((0 <= x) && (x < screenSize.width) && (0 <= y) && (y < screenSize.height));
     }
 }
@@ -72,7 +72,7 @@ public class TouchTargetsLayer implements CanvasLayer<CursorUpdateEvent> {
         // Fill all touched touch targets
         for (Map.Entry<TouchTarget, Collection<Cursor>> entry : cursorsForTargets.entrySet()) {
             if (!entry.getValue().isEmpty()) {
-                if (!SimpleCursorToTouchTargetDispatcher.SCREEN_TOUCH_TARGET.equals(entry.getKey())) {
+                if (entry.getKey() instanceof DemoTouchTarget) {
                     g2d.setColor(((DemoTouchTarget) entry.getKey()).getColor());
                     Rectangle bounds = ((DemoTouchTarget) entry.getKey()).getBounds();
                     g2d.fillRoundRect(bounds.x, bounds.y, bounds.width, bounds.height, 20, 20);
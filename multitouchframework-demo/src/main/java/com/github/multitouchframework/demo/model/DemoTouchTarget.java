@@ -25,17 +25,22 @@
 
 package com.github.multitouchframework.demo.model;
 
+import com.github.multitouchframework.api.BoundedTouchTarget;
 import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TouchTargetBoundsListener;
 import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.base.support.ListenerArray;
 
 import java.awt.Color;
 import java.awt.Rectangle;
 
-public class DemoTouchTarget implements TouchTarget {
+public class DemoTouchTarget implements BoundedTouchTarget {
 
     private final String id;
     private final Color color;
     private Rectangle bounds = null;
+    private final ListenerArray<TouchTargetBoundsListener> boundsListeners = new
+            ListenerArray<TouchTargetBoundsListener>(TouchTargetBoundsListener.class);
 
     public DemoTouchTarget(String id, Color color, int x, int y, int width, int height) {
         this(id, color, new Rectangle(x, y, width, height));
@@ -55,12 +60,35 @@ public class DemoTouchTarget implements TouchTarget {
         return color;
     }
 
+    /**
+     * @see BoundedTouchTarget#getBounds()
+     */
+    @Override
     public Rectangle getBounds() {
-        return bounds;
+        return new Rectangle(bounds);
     }
 
     public void setBounds(Rectangle bounds) {
-        this.bounds = bounds;
+        this.bounds = new Rectangle(bounds);
+        for (TouchTargetBoundsListener listener : boundsListeners.getSnapshot()) {
+            listener.boundsChanged(this);
+        }
+    }
+
+    /**
+     * @see BoundedTouchTarget#addBoundsListener(TouchTargetBoundsListener)
+     */
+    @Override
+    public void addBoundsListener(TouchTargetBoundsListener listener) {
+        boundsListeners.add(listener);
+    }
+
+    /**
+     * @see BoundedTouchTarget#removeBoundsListener(TouchTargetBoundsListener)
+     */
+    @Override
+    public void removeBoundsListener(TouchTargetBoundsListener listener) {
+        boundsListeners.remove(listener);
     }
 
     /**
@@ -83,7 +111,12 @@ public class DemoTouchTarget implements TouchTarget {
 
     @Override
     public boolean isTouched(Cursor cursor) {
-        return bounds.contains(cursor.getX(), cursor.getY());
+        return isTouched(cursor.getX(), cursor.getY());
+    }
+
+    @Override
+    public boolean isTouched(int x, int y) {
+        return bounds.contains(x, y);
     }
 
     @Override
@@ -28,7 +28,10 @@ package com.github.multitouchframework.demo.support;
 import com.github.multitouchframework.api.TouchListener;
 import com.github.multitouchframework.base.cursor.Cursor;
 import com.github.multitouchframework.base.cursor.CursorUpdateEvent;
+import com.github.multitouchframework.base.cursor.CursorUpdateEventPool;
+import com.github.multitouchframework.base.cursor.PooledCursorUpdateEvent;
 import com.github.multitouchframework.base.processing.filter.Filter;
+import com.github.multitouchframework.base.support.ListenerArray;
 
 import javax.swing.SwingUtilities;
 import java.awt.Component;
@@ -38,12 +41,22 @@ import java.util.List;
 
 public class ScreenToComponentConverter implements Filter<CursorUpdateEvent> {
 
-    private final List<TouchListener<CursorUpdateEvent>> nextBlocks = new ArrayList<TouchListener<CursorUpdateEvent>>();
+    private final ListenerArray<TouchListener<CursorUpdateEvent>> nextBlocks = new
+            ListenerArray<TouchListener<CursorUpdateEvent>>(TouchListener.class);
 
     private final Component referenceComponent;
 
+    private final CursorUpdateEventPool eventPool;
+
+    private final Point cursorLocation = new Point();
+
     public ScreenToComponentConverter(Component referenceComponent) {
+        this(referenceComponent, null);
+    }
+
+    public ScreenToComponentConverter(Component referenceComponent, CursorUpdateEventPool eventPool) {
         this.referenceComponent = referenceComponent;
+        this.eventPool = eventPool;
     }
 
     @Override
@@ -58,17 +71,41 @@ public class ScreenToComponentConverter implements Filter<CursorUpdateEvent> {
 
     @Override
     public void processTouchEvent(CursorUpdateEvent event) {
-        // Convert all cursors
-        List<Cursor> newCursors = new ArrayList<Cursor>();
-        for (Cursor cursor : event.getCursors()) {
-            Point cursorLocation = new Point(cursor.getX(), cursor.getY());
-            SwingUtilities.convertPointFromScreen(cursorLocation, referenceComponent);
-            newCursors.add(new Cursor(cursor.getId(), cursorLocation.x, cursorLocation.y));
+        if (eventPool == null) {
+            // Convert all cursors
+            List<Cursor> newCursors = new ArrayList<Cursor>(event.getCursors().size());
+            for (Cursor cursor : event.getCursors()) {
+                newCursors.add(convertCursor(cursor));
+            }
+
+            // Notify listeners
+            processWithNextBlocks(new CursorUpdateEvent(event.getUserId(), event.getTouchTarget(), newCursors,
+                    event.getReceiveTime(), event.getSequenceNumber()));
+        } else {
+            // Convert all cursors into recycled storage
+            PooledCursorUpdateEvent newEvent = eventPool.acquire(event.getUserId(), event.getTouchTarget(),
+                    event.getReceiveTime(), event.getSequenceNumber());
+            for (Cursor cursor : event.getCursors()) {
+                newEvent.addCursor(convertCursor(cursor));
+            }
+
+            // Notify listeners
+            try {
+                processWithNextBlocks(newEvent);
+            } finally {
+                newEvent.release();
+            }
         }
+    }
+
+    private Cursor convertCursor(Cursor cursor) {
+        cursorLocation.setLocation(cursor.getX(), cursor.getY());
+        SwingUtilities.convertPointFromScreen(cursorLocation, referenceComponent);
+        return new Cursor(cursor.getId(), cursorLocation.x, cursorLocation.y);
+    }
 
-        // Notify listeners
-        CursorUpdateEvent newEvent = new CursorUpdateEvent(event.getUserId(), event.getTouchTarget(), newCursors);
-        for (TouchListener<CursorUpdateEvent> nextBlock : nextBlocks) {
+    private void processWithNextBlocks(CursorUpdateEvent newEvent) {
+        for (TouchListener<CursorUpdateEvent> nextBlock : nextBlocks.getSnapshot()) {
             nextBlock.processTouchEvent(newEvent);
         }
     }
@@ -30,42 +30,153 @@ import com.github.multitouchframework.base.cursor.Cursor;
 import com.github.multitouchframework.base.processing.filter.AbstractCursorToTouchTargetDispatcher;
 import com.github.multitouchframework.base.target.ScreenTouchTarget;
 
-import java.util.ArrayList;
 import java.util.List;
 
-// TODO
+/**
+ * Cursor-to-target dispatcher finding the touched targets in a z-ordered list of touch targets.
+ * <p/>
+ * The list is indexed by a {@link TouchTargetGrid}, so that only the touch targets whose bounds contain a cursor are
+ * checked. Touch targets implementing {@link com.github.multitouchframework.api.BoundedTouchTarget} are re-indexed
+ * whenever they move. Cursors touching none of the touch targets are dispatched to the default touch target.
+ *
+ * @see TouchTargetGrid
+ */
 public class SimpleCursorToTouchTargetDispatcher extends AbstractCursorToTouchTargetDispatcher {
 
-    public static final TouchTarget SCREEN_TOUCH_TARGET = new ScreenTouchTarget();
+    /**
+     * Holder of the touch target representing the whole screen, created only when it is first needed, so that the
+     * dispatcher can be used on headless machines.
+     */
+    private static class ScreenTouchTargetHolder {
+
+        /**
+         * Touch target representing the whole screen.
+         */
+        private static final TouchTarget SCREEN_TOUCH_TARGET = new ScreenTouchTarget();
+    }
+
+    /**
+     * Touch target holding the cursors touching none of the touch targets of the list, or null for the whole screen.
+     */
+    private final TouchTarget defaultTarget;
+
+    /**
+     * Z-ordered list of touch targets.
+     */
+    private final TouchTargetGrid targets;
 
-    private final List<TouchTarget> targets = new ArrayList<TouchTarget>();
+    /**
+     * Default constructor.
+     * <p/>
+     * Cursors touching none of the touch targets of the list will be dispatched to a touch target representing the
+     * whole screen.
+     *
+     * @see ScreenTouchTarget
+     */
+    public SimpleCursorToTouchTargetDispatcher() {
+        this(null);
+    }
+
+    /**
+     * Constructor specifying the touch target holding the cursors touching none of the touch targets of the list.
+     *
+     * @param defaultTarget Default touch target, or null for a touch target representing the whole screen.
+     */
+    public SimpleCursorToTouchTargetDispatcher(TouchTarget defaultTarget) {
+        this(defaultTarget, new TouchTargetGrid());
+    }
+
+    /**
+     * Constructor specifying the default touch target and the grid indexing the touch targets.
+     *
+     * @param defaultTarget Default touch target, or null for a touch target representing the whole screen.
+     * @param targets       Empty grid to index the touch targets.
+     */
+    public SimpleCursorToTouchTargetDispatcher(TouchTarget defaultTarget, TouchTargetGrid targets) {
+        this.defaultTarget = defaultTarget;
+        this.targets = targets;
+    }
 
+    /**
+     * Gets the touch target holding the cursors touching none of the touch targets of the list.
+     *
+     * @return Default touch target.
+     */
+    public TouchTarget getDefaultTouchTarget() {
+        TouchTarget target = defaultTarget;
+        if (target == null) {
+            target = ScreenTouchTargetHolder.SCREEN_TOUCH_TARGET;
+        }
+        return target;
+    }
+
+    /**
+     * Gets a copy of the list of touch targets.
+     * <p/>
+     * Modifying the returned list has no effect on the dispatcher.
+     *
+     * @return Touch targets, from the bottom-most to the top-most.
+     */
     public List<TouchTarget> getTouchTargets() {
-        return targets;
+        return targets.getTouchTargets();
     }
 
+    /**
+     * Adds the specified touch target on top of all the others.
+     *
+     * @param target Touch target to be added.
+     */
     public void addTouchTargetOnTop(TouchTarget target) {
-        targets.add(target);
+        synchronized (targets) {
+            targets.add(targets.size(), target);
+        }
     }
 
+    /**
+     * Inserts the specified touch target at the specified position in the list.
+     *
+     * @param i      Position of the touch target, 0 being the bottom-most.
+     * @param target Touch target to be inserted.
+     */
     public void insertTouchTargetAt(int i, TouchTarget target) {
         targets.add(i, target);
     }
 
+    /**
+     * Replaces the touch target at the specified position in the list.
+     *
+     * @param i      Position of the touch target, 0 being the bottom-most.
+     * @param target New touch target.
+     */
     public void setTouchTargetAt(int i, TouchTarget target) {
         targets.set(i, target);
     }
 
+    /**
+     * Inserts the specified touch target right above the last occurrence of the specified lower touch target.
+     * <p/>
+     * If the lower touch target is not in the list, the touch target is added on top of all the others.
+     *
+     * @param lowerTarget Touch target below the touch target to be inserted.
+     * @param target      Touch target to be inserted.
+     */
     public void insertTouchTargetAbove(TouchTarget lowerTarget, TouchTarget target) {
-        int i = targets.lastIndexOf(lowerTarget);
-        if (i < 0) {
-            // Add touch target on top of everything
-            targets.add(target);
-        } else {
-            targets.add(i + 1, target);
+        synchronized (targets) {
+            int i = targets.lastIndexOf(lowerTarget);
+            if (i < 0) {
+                // Add touch target on top of everything
+                targets.add(targets.size(), target);
+            } else {
+                targets.add(i + 1, target);
+            }
         }
     }
 
+    /**
+     * Removes the first occurrence of the specified touch target from the list.
+     *
+     * @param target Touch target to be removed.
+     */
     public void removeTouchTarget(TouchTarget target) {
         targets.remove(target);
     }
@@ -75,16 +186,10 @@ public class SimpleCursorToTouchTargetDispatcher extends AbstractCursorToTouchTa
      */
     @Override
     protected TouchTarget findTouchedTarget(Cursor cursor) {
-        TouchTarget foundTarget = SCREEN_TOUCH_TARGET;
-
-        for (int i = targets.size() - 1; i >= 0; i--) {
-            TouchTarget target = targets.get(i);
-            if (target.isTouched(cursor)) {
-                foundTarget = target;
-                break;
-            }
+        TouchTarget foundTarget = targets.findTouchedTarget(cursor);
+        if (foundTarget == null) {
+            foundTarget = getDefaultTouchTarget();
         }
-
         return foundTarget;
     }
 }
@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.experimental.dispatch;
+
+import com.github.multitouchframework.api.BoundedTouchTarget;
+import com.github.multitouchframework.api.TouchTarget;
+import com.github.multitouchframework.api.TouchTargetBoundsListener;
+import com.github.multitouchframework.base.cursor.Cursor;
+import com.github.multitouchframework.base.support.LongObjectMap;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Z-ordered list of touch targets, indexed by a uniform grid over their bounds to find the top-most touched target
+ * without checking all of them.
+ * <p/>
+ * Each {@link BoundedTouchTarget} is referenced by all the cells of the grid overlapped by its bounds, and the grid is
+ * updated whenever its bounds change. A hit test then only checks the few touch targets referenced by the cell
+ * containing the cursor, from the top-most to the bottom-most. Touch targets whose bounds are unknown, or that would
+ * overlap too many cells (for instance, a background covering the whole surface), are not indexed and are always
+ * checked.
+ * <p/>
+ * To keep the z-order without renumbering all the touch targets on each insertion, each one is given a rank leaving
+ * gaps for the next insertions. The touch targets are renumbered only when there is no gap left at the insertion point.
+ * <p/>
+ * Just like {@link java.util.ArrayList}, a same touch target can be added several times.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @see BoundedTouchTarget
+ * @see SimpleCursorToTouchTargetDispatcher
+ */
+public class TouchTargetGrid {
+
+    /**
+     * Default width and height of the cells of the grid.
+     */
+    public static final int DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Default maximum number of cells that a touch target can overlap to be indexed.
+     */
+    public static final int DEFAULT_MAX_CELLS_PER_TARGET = 1024;
+
+    /**
+     * Gap between the ranks of consecutive touch targets after a renumbering.
+     */
+    private static final long RANK_GAP = 1L << 16;
+
+    /**
+     * Entry of a touch target in the list.
+     */
+    private static class Entry {
+
+        /**
+         * Touch target of the entry.
+         */
+        private TouchTarget target;
+
+        /**
+         * Rank of the entry, increasing from the bottom to the top of the list.
+         */
+        private long rank;
+
+        /**
+         * Bounds under which the entry is indexed, or null if the entry is not referenced by any cell.
+         */
+        private Rectangle bounds = null;
+
+        /**
+         * Flag indicating whether the entry is in the list of entries that are always checked.
+         */
+        private boolean unindexed = false;
+
+        /**
+         * Constructor specifying the touch target and its rank.
+         *
+         * @param target Touch target of the entry.
+         * @param rank   Rank of the entry.
+         */
+        public Entry(TouchTarget target, long rank) {
+            this.target = target;
+            this.rank = rank;
+        }
+    }
+
+    /**
+     * Listener re-indexing the touch targets whose bounds change.
+     */
+    private class BoundsAdapter implements TouchTargetBoundsListener {
+
+        /**
+         * @see TouchTargetBoundsListener#boundsChanged(BoundedTouchTarget)
+         */
+        @Override
+        public void boundsChanged(BoundedTouchTarget target) {
+            updateBounds(target);
+        }
+    }
+
+    /**
+     * Width and height of the cells of the grid.
+     */
+    private final int cellSize;
+
+    /**
+     * Maximum number of cells that a touch target can overlap to be indexed.
+     */
+    private final int maxCellsPerTarget;
+
+    /**
+     * Listener registered once on each bounded touch target of the list.
+     */
+    private final TouchTargetBoundsListener boundsAdapter = new BoundsAdapter();
+
+    /**
+     * Entries of the list, from the bottom-most to the top-most.
+     */
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /**
+     * Entries of the list for each touch target.
+     */
+    private final Map<TouchTarget, List<Entry>> targetEntries = new HashMap<TouchTarget, List<Entry>>();
+
+    /**
+     * Entries referenced by each non-empty cell of the grid, from the top-most to the bottom-most.
+     */
+    private final LongObjectMap<List<Entry>> cells = new LongObjectMap<List<Entry>>();
+
+    /**
+     * Entries that are not indexed and always checked, from the top-most to the bottom-most.
+     */
+    private final List<Entry> unindexedEntries = new ArrayList<Entry>();
+
+    /**
+     * Default constructor.
+     *
+     * @see #DEFAULT_CELL_SIZE
+     * @see #DEFAULT_MAX_CELLS_PER_TARGET
+     */
+    public TouchTargetGrid() {
+        this(DEFAULT_CELL_SIZE, DEFAULT_MAX_CELLS_PER_TARGET);
+    }
+
+    /**
+     * Constructor specifying the size of the cells and the maximum number of cells that a touch target can overlap.
+     *
+     * @param cellSize          Width and height of the cells of the grid.
+     * @param maxCellsPerTarget Maximum number of cells that a touch target can overlap to be indexed.
+     */
+    public TouchTargetGrid(int cellSize, int maxCellsPerTarget) {
+        if (cellSize < 1) {
+            throw new IllegalArgumentException("Cell size must be strictly positive: " + cellSize);
+        }
+        if (maxCellsPerTarget < 1) {
+            throw new IllegalArgumentException("Maximum cell count must be strictly positive: " + maxCellsPerTarget);
+        }
+        this.cellSize = cellSize;
+        this.maxCellsPerTarget = maxCellsPerTarget;
+    }
+
+    /**
+     * Gets the number of touch targets in the list.
+     *
+     * @return Touch target count.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets a copy of the list of touch targets.
+     *
+     * @return Touch targets, from the bottom-most to the top-most.
+     */
+    public synchronized List<TouchTarget> getTouchTargets() {
+        List<TouchTarget> targets = new ArrayList<TouchTarget>(entries.size());
+        for (Entry entry : entries) {
+            targets.add(entry.target);
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the index of the last occurrence of the specified touch target in the list.
+     *
+     * @param target Touch target to be found.
+     *
+     * @return Index of the touch target if found, -1 otherwise.
+     */
+    public synchronized int lastIndexOf(TouchTarget target) {
+        int index = -1;
+
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).target.equals(target)) {
+                index = i;
+                break;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Inserts the specified touch target at the specified position in the list.
+     *
+     * @param index  Position of the touch target, 0 being the bottom-most.
+     * @param target Touch target to be inserted.
+     */
+    public synchronized void add(int index, TouchTarget target) {
+        if ((index < 0) || (index > entries.size())) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + entries.size());
+        }
+
+        // Find a rank between the ranks of the surrounding entries
+        if (!hasRankGap(index)) {
+            renumber();
+        }
+        long rank;
+        if (index == entries.size()) {
+            rank = rankAt(index - 1) + RANK_GAP;
+        } else {
+            rank = rankAt(index - 1) + (rankAt(index) - rankAt(index - 1)) / 2;
+        }
+
+        Entry entry = new Entry(target, rank);
+        entries.add(index, entry);
+        attach(entry);
+    }
+
+    /**
+     * Replaces the touch target at the specified position in the list.
+     *
+     * @param index  Position of the touch target, 0 being the bottom-most.
+     * @param target New touch target.
+     *
+     * @return Replaced touch target.
+     */
+    public synchronized TouchTarget set(int index, TouchTarget target) {
+        Entry oldEntry = entries.get(index);
+        detach(oldEntry);
+
+        Entry entry = new Entry(target, oldEntry.rank);
+        entries.set(index, entry);
+        attach(entry);
+
+        return oldEntry.target;
+    }
+
+    /**
+     * Removes the first occurrence of the specified touch target from the list.
+     *
+     * @param target Touch target to be removed.
+     *
+     * @return True if the touch target was found and removed, false otherwise.
+     */
+    public synchronized boolean remove(TouchTarget target) {
+        boolean removed = false;
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).target.equals(target)) {
+                detach(entries.remove(i));
+                removed = true;
+                break;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Re-indexes all the occurrences of the specified touch target after a change of its bounds.
+     *
+     * @param target Touch target whose bounds have changed.
+     */
+    public synchronized void updateBounds(TouchTarget target) {
+        List<Entry> sameTargetEntries = targetEntries.get(target);
+        if (sameTargetEntries != null) {
+            for (Entry entry : sameTargetEntries) {
+                unindex(entry);
+                index(entry);
+            }
+        }
+    }
+
+    /**
+     * Finds the top-most touch target touched by the specified cursor.
+     *
+     * @param cursor Cursor to be checked.
+     *
+     * @return Top-most touched target, or null if no touch target is touched by the cursor.
+     */
+    public synchronized TouchTarget findTouchedTarget(Cursor cursor) {
+        int x = cursor.getX();
+        int y = cursor.getY();
+        Entry foundEntry = null;
+
+        // Check the entries referenced by the cell containing the cursor
+        List<Entry> cell = cells.get(cellKey(cellOf(x), cellOf(y)));
+        if (cell != null) {
+            for (int i = 0; i < cell.size(); i++) {
+                Entry entry = cell.get(i);
+                if (entry.bounds.contains(x, y) && entry.target.isTouched(x, y)) {
+                    foundEntry = entry;
+                    break;
+                }
+            }
+        }
+
+        // Check the entries that are not indexed and that are above the entry found so far
+        for (int i = 0; i < unindexedEntries.size(); i++) {
+            Entry entry = unindexedEntries.get(i);
+            if ((foundEntry != null) && (entry.rank < foundEntry.rank)) {
+                break;
+            } else if (((entry.bounds == null) || entry.bounds.contains(x, y)) && entry.target.isTouched(x, y)) {
+                foundEntry = entry;
+                break;
+            }
+        }
+
+        TouchTarget foundTarget = null;
+        if (foundEntry != null) {
+            foundTarget = foundEntry.target;
+        }
+        return foundTarget;
+    }
+
+    /**
+     * Registers the specified new entry and indexes it.
+     *
+     * @param entry Entry added to the list.
+     */
+    private void attach(Entry entry) {
+        List<Entry> sameTargetEntries = targetEntries.get(entry.target);
+        if (sameTargetEntries == null) {
+            sameTargetEntries = new ArrayList<Entry>(1);
+            targetEntries.put(entry.target, sameTargetEntries);
+            if (entry.target instanceof BoundedTouchTarget) {
+                ((BoundedTouchTarget) entry.target).addBoundsListener(boundsAdapter);
+            }
+        }
+        sameTargetEntries.add(entry);
+
+        index(entry);
+    }
+
+    /**
+     * Unregisters the specified entry and removes it from the index.
+     *
+     * @param entry Entry removed from the list.
+     */
+    private void detach(Entry entry) {
+        unindex(entry);
+
+        List<Entry> sameTargetEntries = targetEntries.get(entry.target);
+        sameTargetEntries.remove(entry);
+        if (sameTargetEntries.isEmpty()) {
+            targetEntries.remove(entry.target);
+            if (entry.target instanceof BoundedTouchTarget) {
+                ((BoundedTouchTarget) entry.target).removeBoundsListener(boundsAdapter);
+            }
+        }
+    }
+
+    /**
+     * Adds the specified entry to the cells overlapped by the current bounds of its touch target, or to the entries
+     * that are always checked.
+     *
+     * @param entry Entry to be indexed.
+     */
+    private void index(Entry entry) {
+        if (entry.target instanceof BoundedTouchTarget) {
+            entry.bounds = ((BoundedTouchTarget) entry.target).getBounds();
+        } else {
+            entry.bounds = null;
+        }
+
+        if (entry.bounds == null) {
+            // Bounds are unknown
+            entry.unindexed = true;
+            insertByRank(unindexedEntries, entry);
+        } else if (!entry.bounds.isEmpty()) {
+            int minColumn = cellOf(entry.bounds.x);
+            int maxColumn = cellOf(entry.bounds.x + entry.bounds.width - 1);
+            int minRow = cellOf(entry.bounds.y);
+            int maxRow = cellOf(entry.bounds.y + entry.bounds.height - 1);
+            long cellCount = ((long) maxColumn - minColumn + 1) * ((long) maxRow - minRow + 1);
+
+            if (cellCount > maxCellsPerTarget) {
+                // Too large to be indexed
+                entry.unindexed = true;
+                insertByRank(unindexedEntries, entry);
+            } else {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    for (int row = minRow; row <= maxRow; row++) {
+                        long key = cellKey(column, row);
+                        List<Entry> cell = cells.get(key);
+                        if (cell == null) {
+                            cell = new ArrayList<Entry>(2);
+                            cells.put(key, cell);
+                        }
+                        insertByRank(cell, entry);
+                    }
+                }
+            }
+        } // Else the touch target cannot be touched, so it is not referenced at all
+    }
+
+    /**
+     * Removes the specified entry from the index.
+     *
+     * @param entry Entry to be removed from the index.
+     */
+    private void unindex(Entry entry) {
+        if (entry.unindexed) {
+            unindexedEntries.remove(findByRank(unindexedEntries, entry));
+            entry.unindexed = false;
+        } else if ((entry.bounds != null) && !entry.bounds.isEmpty()) {
+            int minColumn = cellOf(entry.bounds.x);
+            int maxColumn = cellOf(entry.bounds.x + entry.bounds.width - 1);
+            int minRow = cellOf(entry.bounds.y);
+            int maxRow = cellOf(entry.bounds.y + entry.bounds.height - 1);
+
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int row = minRow; row <= maxRow; row++) {
+                    long key = cellKey(column, row);
+                    List<Entry> cell = cells.get(key);
+                    cell.remove(findByRank(cell, entry));
+                    if (cell.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+        entry.bounds = null;
+    }
+
+    /**
+     * States whether a rank is available for an entry inserted at the specified position.
+     *
+     * @param index Position of the entry to be inserted.
+     *
+     * @return True if the ranks of the surrounding entries leave a gap, false otherwise.
+     */
+    private boolean hasRankGap(int index) {
+        boolean gap;
+        if (index == entries.size()) {
+            gap = rankAt(index - 1) <= Long.MAX_VALUE - RANK_GAP;
+        } else {
+            gap = rankAt(index) - rankAt(index - 1) > 1;
+        }
+        return gap;
+    }
+
+    /**
+     * Gets the rank of the entry at the specified position.
+     *
+     * @param index Position of the entry, possibly -1.
+     *
+     * @return Rank of the entry, or 0 for the position below the bottom-most entry.
+     */
+    private long rankAt(int index) {
+        long rank = 0;
+        if (index >= 0) {
+            rank = entries.get(index).rank;
+        }
+        return rank;
+    }
+
+    /**
+     * Gives evenly spaced ranks to all the entries.
+     * <p/>
+     * The order of the entries in the cells remains unchanged.
+     */
+    private void renumber() {
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).rank = (i + 1) * RANK_GAP;
+        }
+    }
+
+    /**
+     * Inserts the specified entry in the specified list of entries sorted by decreasing rank.
+     *
+     * @param sortedEntries Entries sorted from the top-most to the bottom-most.
+     * @param entry         Entry to be inserted.
+     */
+    private static void insertByRank(List<Entry> sortedEntries, Entry entry) {
+        int index = findByRank(sortedEntries, entry);
+        if (index < 0) {
+            sortedEntries.add(-index - 1, entry);
+        }
+    }
+
+    /**
+     * Finds the position of the specified entry in the specified list of entries sorted by decreasing rank.
+     *
+     * @param sortedEntries Entries sorted from the top-most to the bottom-most.
+     * @param entry         Entry to be found.
+     *
+     * @return Position of the entry if found, or (-(insertion point) - 1) otherwise.
+     */
+    private static int findByRank(List<Entry> sortedEntries, Entry entry) {
+        int low = 0;
+        int high = sortedEntries.size() - 1;
+        int index = -1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleRank = sortedEntries.get(middle).rank;
+            if (middleRank > entry.rank) {
+                low = middle + 1;
+            } else if (middleRank < entry.rank) {
+                high = middle - 1;
+            } else {
+                index = middle;
+                break;
+            }
+        }
+
+        if (index < 0) {
+            index = -low - 1;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the column or row of the cells containing the specified coordinate.
+     *
+     * @param coordinate X or Y coordinate.
+     *
+     * @return Column or row of the cell, rounded down for negative coordinates.
+     */
+    private int cellOf(int coordinate) {
+        int cell;
+        if (coordinate >= 0) {
+            cell = coordinate / cellSize;
+        } else {
+            cell = -((-(coordinate + 1)) / cellSize) - 1;
+        }
+        return cell;
+    }
+
+    /**
+     * Gets the key of the specified cell in the map of cells.
+     *
+     * @param column Column of the cell.
+     * @param row    Row of the cell.
+     *
+     * @return Key of the cell.
+     */
+    private static long cellKey(int column, int row) {
+        return (((long) column) << 32) | (row & 0xFFFFFFFFL);
+    }
+}
@@ -28,13 +28,12 @@ package com.github.multitouchframework.experimental.gesture.drag;
 import com.github.multitouchframework.api.Chainable;
 import com.github.multitouchframework.api.TouchListener;
 import com.github.multitouchframework.base.processing.gesture.drag.DragEvent;
+import com.github.multitouchframework.base.support.ListenerArray;
 import org.jdesktop.core.animation.timing.Animator;
 import org.jdesktop.core.animation.timing.TimingTarget;
 import org.jdesktop.core.animation.timing.interpolators.AccelerationInterpolator;
 import org.jdesktop.core.animation.timing.sources.ScheduledExecutorTimingSource;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 // TODO Finish implementation
@@ -87,7 +86,8 @@ public class DragInertia implements TouchListener<DragEvent>, Chainable<TouchLis
      * @see #dequeue(TouchListener)
      * @see #fireGestureEvent(DragEvent)
      */
-    private final List<TouchListener<DragEvent>> gestureListeners = new ArrayList<TouchListener<DragEvent>>();
+    private final ListenerArray<TouchListener<DragEvent>> gestureListeners = new
+            ListenerArray<TouchListener<DragEvent>>(TouchListener.class);
 
     public DragInertia() {
         this(DEFAULT_SAMPLE_COUNT);
@@ -121,7 +121,7 @@ public class DragInertia implements TouchListener<DragEvent>, Chainable<TouchLis
      * @param event Gesture event to be fired.
      */
     protected void fireGestureEvent(DragEvent event) {
-        for (TouchListener<DragEvent> listener : gestureListeners) {
+        for (TouchListener<DragEvent> listener : gestureListeners.getSnapshot()) {
             listener.processTouchEvent(event);
         }
     }
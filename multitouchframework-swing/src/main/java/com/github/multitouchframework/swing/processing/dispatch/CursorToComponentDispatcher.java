@@ -30,56 +30,68 @@ import com.github.multitouchframework.api.TouchTarget;
 import com.github.multitouchframework.base.processing.filter.AbstractCursorToTouchTargetDispatcher;
 import com.github.multitouchframework.swing.target.ComponentTouchTarget;
 
-import javax.swing.RootPaneContainer;
 import java.awt.Component;
-import java.awt.Container;
-import java.awt.Window;
 
-// TODO Finish implementation
+/**
+ * Cursor-to-target dispatcher associating the cursors to the deepest AWT/Swing components of the top-most windows
+ * under them.
+ * <p/>
+ * The components are found using a {@link ScreenComponentIndex}, which is started when the dispatcher is created, so
+ * that no component tree is walked on the processing path. The index should be stopped once the dispatcher is no
+ * longer used.
+ *
+ * @see ScreenComponentIndex
+ * @see ComponentTouchTarget
+ */
 public class CursorToComponentDispatcher extends AbstractCursorToTouchTargetDispatcher {
 
     /**
-     * @see AbstractCursorToTouchTargetDispatcher#findTouchedTarget(Cursor)
+     * Index of the components of the showing windows.
      */
-    @Override
-    protected TouchTarget findTouchedTarget(Cursor cursor) {
-        TouchTarget touchTarget = null;
+    private final ScreenComponentIndex componentIndex;
 
-        // TODO Find deepest component of the top most touched window
-        for (Window window : Window.getWindows()) {
-            // TODO Check if window is touchable
-            Component component = findDeepestComponent(window, cursor.getX(), cursor.getY());
-            if (component != null) {
-                touchTarget = new ComponentTouchTarget(component);
-                break;
-            }
-        }
+    /**
+     * Default constructor.
+     * <p/>
+     * A new component index is created and started.
+     */
+    public CursorToComponentDispatcher() {
+        this(new ScreenComponentIndex());
+        componentIndex.start();
+    }
 
-        return touchTarget;
+    /**
+     * Constructor specifying the component index to be used.
+     * <p/>
+     * The component index is meant to be started and stopped by the caller.
+     *
+     * @param componentIndex Index of the components of the showing windows.
+     */
+    public CursorToComponentDispatcher(ScreenComponentIndex componentIndex) {
+        this.componentIndex = componentIndex;
     }
 
-    private Component findDeepestComponent(Component parent, int x, int y) {
-        Component deepest = null;
+    /**
+     * Gets the index of the components of the showing windows.
+     *
+     * @return Component index.
+     */
+    public ScreenComponentIndex getComponentIndex() {
+        return componentIndex;
+    }
 
-        if (parent.contains(x, y)) {
-            if (parent instanceof RootPaneContainer) {
-                Container contentPane = ((RootPaneContainer) parent).getContentPane();
-                deepest = findDeepestComponent(contentPane, x - contentPane.getX(), y - contentPane.getY());
-            } else if (parent instanceof Container) {
-                for (Component child : ((Container) parent).getComponents()) {
-                    deepest = findDeepestComponent(child, x - child.getX(), y - child.getY());
-                    if (deepest != null) {
-                        break;
-                    }
-                }
-            }
+    /**
+     * @see AbstractCursorToTouchTargetDispatcher#findTouchedTarget(Cursor)
+     */
+    @Override
+    protected TouchTarget findTouchedTarget(Cursor cursor) {
+        TouchTarget touchTarget = null;
 
-            if (deepest == null) {
-                // No child containing the cursor
-                deepest = parent;
-            }
+        Component component = componentIndex.findDeepestComponent(cursor.getX(), cursor.getY());
+        if (component != null) {
+            touchTarget = ComponentTouchTarget.getInstance(component);
         }
 
-        return deepest;
+        return touchTarget;
     }
 }
@@ -0,0 +1,621 @@
+/*
+ * Copyright (c) 2013, Patrick Moawad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.multitouchframework.swing.processing.dispatch;
+
+import javax.swing.SwingUtilities;
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.KeyboardFocusManager;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ContainerEvent;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cached index of the showing windows and of the bounds of their components, used to find the deepest component under
+ * a point of the screen without walking the component trees.
+ * <p/>
+ * The index is maintained on the EDT: window, component, container and hierarchy events invalidate only the windows
+ * they affect, and the invalidated windows are rebuilt at once in a later EDT cycle. A window that is only moved keeps
+ * its cached components, whose bounds are relative to the window. The result is published as an immutable snapshot, so
+ * that hit tests can be performed from any thread without any lock and without accessing the components.
+ * <p/>
+ * Because AWT does not provide the z-order of the windows, the windows are ordered by their last activation, and owned
+ * windows are kept above their owners. Always-on-top windows are above all the others.
+ * <p/>
+ * Note that the hit tests rely on the bounds of the components, so the shape of components overriding {@link
+ * Component#contains(int, int)} is not taken into account.
+ *
+ * @see CursorToComponentDispatcher
+ */
+public class ScreenComponentIndex {
+
+    /**
+     * Types of AWT events that may invalidate the index.
+     */
+    private static final long EVENT_MASK = AWTEvent.WINDOW_EVENT_MASK | AWTEvent.COMPONENT_EVENT_MASK | AWTEvent
+            .CONTAINER_EVENT_MASK | AWTEvent.HIERARCHY_EVENT_MASK;
+
+    /**
+     * Immutable cache of a showing window and of its visible components.
+     */
+    private static class WindowSnapshot {
+
+        /**
+         * Location of the left side of the window on the screen.
+         */
+        private final int x;
+
+        /**
+         * Location of the top side of the window on the screen.
+         */
+        private final int y;
+
+        /**
+         * Window itself and its visible components in depth-first order, starting with the window.
+         */
+        private final Component[] components;
+
+        /**
+         * X coordinates of the components relative to the window.
+         */
+        private final int[] xs;
+
+        /**
+         * Y coordinates of the components relative to the window.
+         */
+        private final int[] ys;
+
+        /**
+         * Widths of the components.
+         */
+        private final int[] widths;
+
+        /**
+         * Heights of the components.
+         */
+        private final int[] heights;
+
+        /**
+         * Index following the last descendant of each component.
+         */
+        private final int[] subtreeEnds;
+
+        /**
+         * Constructor caching the visible components of the specified window.
+         *
+         * @param window Showing window to be cached.
+         */
+        public WindowSnapshot(Window window) {
+            List<Component> componentList = new ArrayList<Component>();
+            collectComponents(window, componentList);
+            int count = componentList.size();
+
+            x = window.getX();
+            y = window.getY();
+            components = componentList.toArray(new Component[count]);
+            xs = new int[count];
+            ys = new int[count];
+            widths = new int[count];
+            heights = new int[count];
+            subtreeEnds = new int[count];
+            cacheBounds(0, 0, 0);
+        }
+
+        /**
+         * Constructor moving the specified snapshot without rebuilding it.
+         *
+         * @param snapshot Snapshot of the moved window.
+         * @param window   Moved window.
+         */
+        public WindowSnapshot(WindowSnapshot snapshot, Window window) {
+            x = window.getX();
+            y = window.getY();
+            components = snapshot.components;
+            xs = snapshot.xs;
+            ys = snapshot.ys;
+            widths = snapshot.widths;
+            heights = snapshot.heights;
+            subtreeEnds = snapshot.subtreeEnds;
+        }
+
+        /**
+         * Adds the specified component and its visible descendants to the specified list, in depth-first order.
+         *
+         * @param component     Component to be added.
+         * @param componentList List of components to be completed.
+         */
+        private static void collectComponents(Component component, List<Component> componentList) {
+            componentList.add(component);
+            if (component instanceof Container) {
+                for (Component child : ((Container) component).getComponents()) {
+                    if (child.isVisible()) {
+                        collectComponents(child, componentList);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Caches the bounds of the component at the specified index and of its descendants.
+         *
+         * @param index   Index of the component.
+         * @param parentX X coordinate of the parent relative to the window.
+         * @param parentY Y coordinate of the parent relative to the window.
+         *
+         * @return Index following the last descendant of the component.
+         */
+        private int cacheBounds(int index, int parentX, int parentY) {
+            Component component = components[index];
+            if (index == 0) {
+                // Window itself
+                xs[index] = 0;
+                ys[index] = 0;
+            } else {
+                xs[index] = parentX + component.getX();
+                ys[index] = parentY + component.getY();
+            }
+            widths[index] = component.getWidth();
+            heights[index] = component.getHeight();
+
+            int next = index + 1;
+            while ((next < components.length) && (components[next].getParent() == component)) {
+                next = cacheBounds(next, xs[index], ys[index]);
+            }
+            subtreeEnds[index] = next;
+
+            return next;
+        }
+
+        /**
+         * Finds the deepest component containing the specified point.
+         * <p/>
+         * Just like for the painting, the first children of a container are considered to be on top of the next ones.
+         *
+         * @param screenX X coordinate of the point on the screen.
+         * @param screenY Y coordinate of the point on the screen.
+         *
+         * @return Deepest component containing the point, or null if the window does not contain the point.
+         */
+        public Component findDeepestComponent(int screenX, int screenY) {
+            int localX = screenX - x;
+            int localY = screenY - y;
+            int deepest = -1;
+
+            if (contains(0, localX, localY)) {
+                deepest = 0;
+                int index = 1;
+                int end = subtreeEnds[0];
+                while (index < end) {
+                    if (contains(index, localX, localY)) {
+                        // Look only at the children of this component
+                        deepest = index;
+                        end = subtreeEnds[index];
+                        index++;
+                    } else {
+                        // Skip all the descendants of this component
+                        index = subtreeEnds[index];
+                    }
+                }
+            }
+
+            Component component = null;
+            if (deepest >= 0) {
+                component = components[deepest];
+            }
+            return component;
+        }
+
+        /**
+         * States whether the bounds of the component at the specified index contain the specified point.
+         *
+         * @param index  Index of the component.
+         * @param localX X coordinate of the point relative to the window.
+         * @param localY Y coordinate of the point relative to the window.
+         *
+         * @return True if the component contains the point, false otherwise.
+         */
+        private boolean contains(int index, int localX, int localY) {
+            return (xs[index] <= localX) && (localX < xs[index] + widths[index]) && (ys[index] <= localY) &&
+                    (localY < ys[index] + heights[index]);
+        }
+    }
+
+    /**
+     * Listener invalidating the windows affected by the AWT events.
+     * <p/>
+     * It is only called on the EDT.
+     */
+    private class InvalidationListener implements AWTEventListener {
+
+        /**
+         * @see AWTEventListener#eventDispatched(AWTEvent)
+         */
+        @Override
+        public void eventDispatched(AWTEvent event) {
+            if (event instanceof WindowEvent) {
+                processWindowEvent((WindowEvent) event);
+            } else if (event instanceof ContainerEvent) {
+                invalidate(((ContainerEvent) event).getContainer());
+            } else if (event instanceof ComponentEvent) {
+                processComponentEvent((ComponentEvent) event);
+            } else if (event instanceof HierarchyEvent) {
+                invalidate(((HierarchyEvent) event).getChanged());
+                invalidate(((HierarchyEvent) event).getChangedParent());
+            }
+        }
+
+        /**
+         * Processes the specified window event.
+         *
+         * @param event Window event to be processed.
+         */
+        private void processWindowEvent(WindowEvent event) {
+            Window window = event.getWindow();
+            switch (event.getID()) {
+                case WindowEvent.WINDOW_OPENED:
+                case WindowEvent.WINDOW_ACTIVATED:
+                    bringToFront(window);
+                    break;
+                case WindowEvent.WINDOW_CLOSED:
+                    windowOrder.remove(window);
+                    dirtyWindows.add(window);
+                    scheduleRebuild();
+                    break;
+                default:
+                    // Nothing to be done
+            }
+        }
+
+        /**
+         * Processes the specified component event.
+         *
+         * @param event Component event to be processed.
+         */
+        private void processComponentEvent(ComponentEvent event) {
+            Component component = event.getComponent();
+            if ((component instanceof Window) && (event.getID() == ComponentEvent.COMPONENT_MOVED)) {
+                // Only the location of the window needs to be updated
+                movedWindows.add((Window) component);
+                scheduleRebuild();
+            } else {
+                invalidate(component);
+            }
+        }
+    }
+
+    /**
+     * Task rebuilding the invalidated windows and publishing the new snapshot.
+     * <p/>
+     * It is only run on the EDT.
+     */
+    private class RebuildTask implements Runnable {
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            rebuildScheduled = false;
+            if (started) {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Listener of the AWT events invalidating the index.
+     */
+    private final AWTEventListener invalidationListener = new InvalidationListener();
+
+    /**
+     * Task rebuilding the invalidated windows.
+     */
+    private final Runnable rebuildTask = new RebuildTask();
+
+    /**
+     * Known windows, from the most recently activated to the least recently activated.
+     * <p/>
+     * It is only accessed on the EDT.
+     */
+    private final LinkedList<Window> windowOrder = new LinkedList<Window>();
+
+    /**
+     * Cached windows.
+     * <p/>
+     * It is only accessed on the EDT.
+     */
+    private final Map<Window, WindowSnapshot> windowSnapshots = new HashMap<Window, WindowSnapshot>();
+
+    /**
+     * Windows whose components need to be cached again.
+     * <p/>
+     * It is only accessed on the EDT.
+     */
+    private final Set<Window> dirtyWindows = new HashSet<Window>();
+
+    /**
+     * Windows whose location needs to be updated.
+     * <p/>
+     * It is only accessed on the EDT.
+     */
+    private final Set<Window> movedWindows = new HashSet<Window>();
+
+    /**
+     * Flag indicating whether the order of the windows has changed since the last rebuild.
+     * <p/>
+     * It is only accessed on the EDT.
+     */
+    private boolean orderChanged = false;
+
+    /**
+     * Flag indicating whether a rebuild is already scheduled on the EDT.
+     * <p/>
+     * It is only accessed on the EDT.
+     */
+    private boolean rebuildScheduled = false;
+
+    /**
+     * Flag indicating whether the index is listening to the AWT events.
+     * <p/>
+     * It is only accessed on the EDT.
+     */
+    private boolean started = false;
+
+    /**
+     * Showing windows, from the top-most to the bottom-most.
+     * <p/>
+     * The referenced array is never modified once published.
+     */
+    private volatile WindowSnapshot[] snapshot = new WindowSnapshot[0];
+
+    /**
+     * Starts listening to the AWT events and builds the whole index.
+     * <p/>
+     * If not called on the EDT, this is done later on the EDT, and hit tests will not find any component until then.
+     */
+    public void start() {
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                if (!started) {
+                    started = true;
+                    Toolkit.getDefaultToolkit().addAWTEventListener(invalidationListener, EVENT_MASK);
+                    rebuildAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops listening to the AWT events and clears the index.
+     * <p/>
+     * If not called on the EDT, this is done later on the EDT.
+     */
+    public void stop() {
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                if (started) {
+                    started = false;
+                    Toolkit.getDefaultToolkit().removeAWTEventListener(invalidationListener);
+                    windowOrder.clear();
+                    windowSnapshots.clear();
+                    dirtyWindows.clear();
+                    movedWindows.clear();
+                    snapshot = new WindowSnapshot[0];
+                }
+            }
+        });
+    }
+
+    /**
+     * Finds the deepest component of the top-most showing window containing the specified point of the screen.
+     * <p/>
+     * This method can be called from any thread.
+     *
+     * @param screenX X coordinate of the point on the screen.
+     * @param screenY Y coordinate of the point on the screen.
+     *
+     * @return Deepest component containing the point, or null if no window contains the point.
+     */
+    public Component findDeepestComponent(int screenX, int screenY) {
+        Component component = null;
+
+        for (WindowSnapshot windowSnapshot : snapshot) {
+            component = windowSnapshot.findDeepestComponent(screenX, screenY);
+            if (component != null) {
+                break;
+            }
+        }
+
+        return component;
+    }
+
+    /**
+     * Runs the specified task on the EDT, immediately if called on the EDT, or later otherwise.
+     *
+     * @param task Task to be run.
+     */
+    private static void runOnEDT(Runnable task) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            task.run();
+        } else {
+            SwingUtilities.invokeLater(task);
+        }
+    }
+
+    /**
+     * Brings the specified window in front of the others and invalidates it.
+     *
+     * @param window Window that has been opened or activated.
+     */
+    private void bringToFront(Window window) {
+        if (windowOrder.isEmpty() || (windowOrder.getFirst() != window)) {
+            windowOrder.remove(window);
+            windowOrder.addFirst(window);
+            orderChanged = true;
+        }
+        if (!windowSnapshots.containsKey(window)) {
+            dirtyWindows.add(window);
+        }
+        scheduleRebuild();
+    }
+
+    /**
+     * Invalidates the window containing the specified component.
+     *
+     * @param component Component that has changed, possibly null.
+     */
+    private void invalidate(Component component) {
+        Window window = null;
+        if (component instanceof Window) {
+            window = (Window) component;
+        } else if (component != null) {
+            window = SwingUtilities.getWindowAncestor(component);
+        }
+
+        if (window != null) {
+            if (!windowOrder.contains(window)) {
+                // Window not known yet, for instance, because it has never been activated
+                windowOrder.addLast(window);
+                orderChanged = true;
+            }
+            dirtyWindows.add(window);
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Schedules a rebuild of the invalidated windows on the EDT, unless one is already scheduled.
+     */
+    private void scheduleRebuild() {
+        if (!rebuildScheduled) {
+            rebuildScheduled = true;
+            SwingUtilities.invokeLater(rebuildTask);
+        }
+    }
+
+    /**
+     * Discards the index and caches all the current windows again.
+     */
+    private void rebuildAll() {
+        windowOrder.clear();
+        windowSnapshots.clear();
+        movedWindows.clear();
+
+        // Assume that the most recent windows are on top, except for the active window
+        Window[] windows = Window.getWindows();
+        for (int i = windows.length - 1; i >= 0; i--) {
+            windowOrder.addLast(windows[i]);
+            dirtyWindows.add(windows[i]);
+        }
+        Window activeWindow = KeyboardFocusManager.getCurrentKeyboardFocusManager().getActiveWindow();
+        if (activeWindow != null) {
+            windowOrder.remove(activeWindow);
+            windowOrder.addFirst(activeWindow);
+        }
+        orderChanged = true;
+
+        rebuild();
+    }
+
+    /**
+     * Caches the invalidated windows again and publishes the new snapshot.
+     */
+    private void rebuild() {
+        boolean changed = orderChanged;
+
+        for (Window window : dirtyWindows) {
+            if (window.isShowing()) {
+                windowSnapshots.put(window, new WindowSnapshot(window));
+            } else {
+                windowSnapshots.remove(window);
+            }
+            changed = true;
+        }
+        for (Window window : movedWindows) {
+            WindowSnapshot windowSnapshot = windowSnapshots.get(window);
+            if ((windowSnapshot != null) && !dirtyWindows.contains(window)) {
+                windowSnapshots.put(window, new WindowSnapshot(windowSnapshot, window));
+                changed = true;
+            }
+        }
+        dirtyWindows.clear();
+        movedWindows.clear();
+        orderChanged = false;
+
+        if (changed) {
+            snapshot = orderSnapshots();
+        }
+    }
+
+    /**
+     * Orders the cached windows from the top-most to the bottom-most.
+     *
+     * @return Cached windows in z-order.
+     */
+    private WindowSnapshot[] orderSnapshots() {
+        // Keep owned windows above their owners, and always-on-top windows above all the others
+        List<Window> orderedWindows = new ArrayList<Window>(windowOrder.size());
+        int alwaysOnTopCount = 0;
+        for (Window window : windowOrder) {
+            if (windowSnapshots.containsKey(window)) {
+                int index = orderedWindows.size();
+                for (Window owner = window.getOwner(); owner != null; owner = owner.getOwner()) {
+                    int ownerIndex = orderedWindows.indexOf(owner);
+                    if ((ownerIndex >= 0) && (ownerIndex < index)) {
+                        index = ownerIndex;
+                    }
+                }
+                if (window.isAlwaysOnTop()) {
+                    index = Math.min(index, alwaysOnTopCount);
+                    alwaysOnTopCount++;
+                } else {
+                    index = Math.max(index, alwaysOnTopCount);
+                }
+                orderedWindows.add(index, window);
+            }
+        }
+
+        WindowSnapshot[] orderedSnapshots = new WindowSnapshot[orderedWindows.size()];
+        for (int i = 0; i < orderedSnapshots.length; i++) {
+            orderedSnapshots[i] = windowSnapshots.get(orderedWindows.get(i));
+        }
+        return orderedSnapshots;
+    }
+}
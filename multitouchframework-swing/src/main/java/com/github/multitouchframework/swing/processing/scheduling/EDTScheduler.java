@@ -28,11 +28,10 @@ package com.github.multitouchframework.swing.processing.scheduling;
 import com.github.multitouchframework.api.Chainable;
 import com.github.multitouchframework.api.TouchEvent;
 import com.github.multitouchframework.api.TouchListener;
+import com.github.multitouchframework.base.support.ListenerArray;
+import com.github.multitouchframework.base.support.ReferenceCounting;
 
 import javax.swing.SwingUtilities;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 /**
  * Processing block re-scheduling the processing of {@link TouchEvent}s on the EDT thread.
@@ -48,8 +47,8 @@ public class EDTScheduler<E extends TouchEvent> implements TouchListener<E>, Cha
      * @see #dequeue(TouchListener)
      * @see #processTouchEvent(TouchEvent)
      */
-    private final List<TouchListener<E>> gestureListeners = Collections.synchronizedList(new
-            ArrayList<TouchListener<E>>());
+    private final ListenerArray<TouchListener<E>> gestureListeners = new ListenerArray<TouchListener<E>>
+            (TouchListener.class);
 
     /**
      * @see Chainable#queue(Object)
@@ -69,25 +68,35 @@ public class EDTScheduler<E extends TouchEvent> implements TouchListener<E>, Cha
 
     /**
      * Forwards the specified gesture event to the next blocks on the EDT.
+     * <p/>
+     * Pooled events are retained until they are processed on the EDT.
      *
      * @see TouchListener#processTouchEvent(TouchEvent)
      */
     @Override
     public void processTouchEvent(final E event) {
-        Runnable edtRunnable = new Runnable() {
+        final Runnable edtRunnable = new Runnable() {
             @Override
             public void run() {
-                synchronized (gestureListeners) {
-                    for (TouchListener<E> nextBlock : gestureListeners) {
-                        nextBlock.processTouchEvent(event);
-                    }
+                for (TouchListener<E> nextBlock : gestureListeners.getSnapshot()) {
+                    nextBlock.processTouchEvent(event);
                 }
             }
         };
         if (SwingUtilities.isEventDispatchThread()) {
             edtRunnable.run();
         } else {
-            SwingUtilities.invokeLater(edtRunnable);
+            ReferenceCounting.retain(event);
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        edtRunnable.run();
+                    } finally {
+                        ReferenceCounting.release(event);
+                    }
+                }
+            });
         }
     }
 }
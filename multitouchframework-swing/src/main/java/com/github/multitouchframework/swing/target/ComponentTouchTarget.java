@@ -31,19 +31,207 @@ import com.github.multitouchframework.base.cursor.Cursor;
 import javax.swing.SwingUtilities;
 import java.awt.Component;
 import java.awt.Point;
+import java.awt.Window;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyBoundsListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Touch target representing a AWT/Swing component.
+ * <p/>
+ * Touch targets should be obtained with {@link #getInstance(Component)}, so that there is only one touch target per
+ * component. This way, the blocks keeping data per touch target (for instance, gesture recognizers) find the same data
+ * for all the cursors on a component, and no touch target is created for each new cursor. Touch targets representing
+ * the same component are equal anyway.
+ * <p/>
+ * The location of the component on the screen is cached for the hit tests, and it is invalidated by listeners on the
+ * component, its ancestors and its window. These listeners are added on the first hit test.
  */
 public class ComponentTouchTarget implements TouchTarget {
 
+    /**
+     * Weak reference to a component, used as a key comparing the components by identity.
+     */
+    private static class ComponentKey extends WeakReference<Component> {
+
+        /**
+         * Identity hash code of the component, kept after the component has been garbage collected.
+         */
+        private final int hash;
+
+        /**
+         * Constructor specifying the component and the queue to which the key is to be enqueued once the component
+         * has been garbage collected.
+         *
+         * @param component Component to be referenced.
+         * @param queue     Queue of stale keys, or null if the key is only used for a lookup.
+         */
+        public ComponentKey(Component component, ReferenceQueue<Component> queue) {
+            super(component, queue);
+            hash = System.identityHashCode(component);
+        }
+
+        /**
+         * @see Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * @see Object#equals(Object)
+         */
+        @Override
+        public boolean equals(Object o) {
+            boolean equal;
+
+            if (this == o) {
+                // Same instance
+                equal = true;
+            } else if ((o == null) || (getClass() != o.getClass())) {
+                // Different class
+                equal = false;
+            } else {
+                // Same class, so check the referenced components, which are never equal once collected
+                Component component = get();
+                equal = (component != null) && (component == ((ComponentKey) o).get());
+            }
+
+            return equal;
+        }
+    }
+
+    /**
+     * Location of the component on the screen, together with the number of invalidations when it was computed.
+     * <p/>
+     * Both are held by the same immutable object, so that a thread never sees the location computed by a thread with
+     * the invalidation count of another thread.
+     */
+    private static class ScreenOffset {
+
+        /**
+         * Number of invalidations of the location of the component on the screen when this location was computed.
+         */
+        private final int invalidationCount;
+
+        /**
+         * X coordinate of the component on the screen.
+         */
+        private final int x;
+
+        /**
+         * Y coordinate of the component on the screen.
+         */
+        private final int y;
+
+        /**
+         * Constructor specifying the number of invalidations and the location of the component on the screen.
+         *
+         * @param invalidationCount Number of invalidations when the location was computed.
+         * @param x                 X coordinate of the component on the screen.
+         * @param y                 Y coordinate of the component on the screen.
+         */
+        public ScreenOffset(int invalidationCount, int x, int y) {
+            this.invalidationCount = invalidationCount;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Listener invalidating the cached location of the component on the screen whenever the component or one of its
+     * ancestors moves, or whenever the component is moved to another hierarchy.
+     */
+    private class ScreenOffsetInvalidator extends ComponentAdapter implements HierarchyListener,
+            HierarchyBoundsListener {
+
+        /**
+         * @see ComponentAdapter#componentMoved(ComponentEvent)
+         */
+        @Override
+        public void componentMoved(ComponentEvent e) {
+            invalidateScreenOffset();
+        }
+
+        /**
+         * @see HierarchyListener#hierarchyChanged(HierarchyEvent)
+         */
+        @Override
+        public void hierarchyChanged(HierarchyEvent e) {
+            if ((e.getChangeFlags() & (HierarchyEvent.PARENT_CHANGED | HierarchyEvent.SHOWING_CHANGED)) != 0) {
+                listenToWindow();
+                invalidateScreenOffset();
+            }
+        }
+
+        /**
+         * @see HierarchyBoundsListener#ancestorMoved(HierarchyEvent)
+         */
+        @Override
+        public void ancestorMoved(HierarchyEvent e) {
+            invalidateScreenOffset();
+        }
+
+        /**
+         * @see HierarchyBoundsListener#ancestorResized(HierarchyEvent)
+         */
+        @Override
+        public void ancestorResized(HierarchyEvent e) {
+            invalidateScreenOffset();
+        }
+    }
+
+    /**
+     * Canonical touch targets, weakly referenced, for each component, weakly referenced too.
+     * <p/>
+     * The touch targets reference their component, so they must not be strongly referenced by the cache.
+     */
+    private static final Map<ComponentKey, WeakReference<ComponentTouchTarget>> INSTANCES = new
+            HashMap<ComponentKey, WeakReference<ComponentTouchTarget>>();
+
+    /**
+     * Queue of the keys whose component has been garbage collected.
+     */
+    private static final ReferenceQueue<Component> STALE_KEYS = new ReferenceQueue<Component>();
+
     /**
      * Component represented by this touch target.
      */
     private final Component component;
 
+    /**
+     * Listener invalidating the cached location of the component on the screen, or null if not listening yet.
+     */
+    private volatile ScreenOffsetInvalidator screenOffsetInvalidator = null;
+
+    /**
+     * Window to which the listener is added, or null if none.
+     */
+    private Window listenedWindow = null;
+
+    /**
+     * Number of invalidations of the location of the component on the screen.
+     */
+    private final AtomicInteger screenOffsetInvalidationCount = new AtomicInteger(0);
+
+    /**
+     * Cached location of the component on the screen, or null if never computed.
+     */
+    private volatile ScreenOffset cachedScreenOffset = null;
+
     /**
      * Constructor specifying the component to be represented by this touch target.
+     * <p/>
+     * Note that {@link #getInstance(Component)} should be preferred.
      *
      * @param component Component to be represented by this touch target.
      */
@@ -51,6 +239,44 @@ public class ComponentTouchTarget implements TouchTarget {
         this.component = component;
     }
 
+    /**
+     * Gets the canonical touch target representing the specified component.
+     * <p/>
+     * The same touch target is returned for the same component as long as the touch target is referenced somewhere
+     * else, which includes the listeners it adds to the component once hit-tested. The cache itself does not prevent
+     * the components and the touch targets from being garbage collected.
+     * <p/>
+     * This method is thread-safe.
+     *
+     * @param component Component to be represented by the touch target.
+     *
+     * @return Touch target representing the component.
+     */
+    public static ComponentTouchTarget getInstance(Component component) {
+        ComponentTouchTarget target = null;
+
+        synchronized (INSTANCES) {
+            // Remove the entries of the garbage collected components
+            Reference<? extends Component> staleKey = STALE_KEYS.poll();
+            while (staleKey != null) {
+                INSTANCES.remove(staleKey);
+                staleKey = STALE_KEYS.poll();
+            }
+
+            WeakReference<ComponentTouchTarget> targetReference = INSTANCES.get(new ComponentKey(component, null));
+            if (targetReference != null) {
+                target = targetReference.get();
+            }
+            if (target == null) {
+                target = new ComponentTouchTarget(component);
+                INSTANCES.put(new ComponentKey(component, STALE_KEYS), new WeakReference<ComponentTouchTarget>
+                        (target));
+            }
+        }
+
+        return target;
+    }
+
     /**
      * @see TouchTarget#getBaseObject()
      */
@@ -82,8 +308,111 @@ public class ComponentTouchTarget implements TouchTarget {
      */
     @Override
     public boolean isTouched(Cursor cursor) {
-        Point cursorPosition = new Point(cursor.getX(), cursor.getY());
-        SwingUtilities.convertPointFromScreen(cursorPosition, component);
-        return component.contains(cursorPosition.x, cursorPosition.y);
+        return isTouched(cursor.getX(), cursor.getY());
+    }
+
+    /**
+     * @see TouchTarget#isTouched(int, int)
+     */
+    @Override
+    public boolean isTouched(int x, int y) {
+        ScreenOffset screenOffset = getScreenOffset();
+        return component.contains(x - screenOffset.x, y - screenOffset.y);
+    }
+
+    /**
+     * Gets the location of the component on the screen, computing it only if it has been invalidated.
+     *
+     * @return Location of the component on the screen.
+     */
+    private ScreenOffset getScreenOffset() {
+        if (screenOffsetInvalidator == null) {
+            startListening();
+        }
+
+        // Read the count before computing, so that an invalidation during the computation is not missed
+        int invalidationCount = screenOffsetInvalidationCount.get();
+        ScreenOffset screenOffset = cachedScreenOffset;
+        if ((screenOffset == null) || (screenOffset.invalidationCount != invalidationCount)) {
+            Point origin = new Point(0, 0);
+            SwingUtilities.convertPointFromScreen(origin, component);
+            screenOffset = new ScreenOffset(invalidationCount, -origin.x, -origin.y);
+            cachedScreenOffset = screenOffset;
+        }
+
+        return screenOffset;
+    }
+
+    /**
+     * Adds the listeners invalidating the cached location of the component on the screen, unless already done.
+     */
+    private synchronized void startListening() {
+        if (screenOffsetInvalidator == null) {
+            ScreenOffsetInvalidator invalidator = new ScreenOffsetInvalidator();
+            component.addComponentListener(invalidator);
+            component.addHierarchyListener(invalidator);
+            component.addHierarchyBoundsListener(invalidator);
+            screenOffsetInvalidator = invalidator;
+            listenToWindow();
+        }
+    }
+
+    /**
+     * Moves the listener from the previous window of the component to its current window.
+     * <p/>
+     * The window is listened to separately because it may be moved by the native system.
+     */
+    private synchronized void listenToWindow() {
+        Window window = null;
+        if (!(component instanceof Window)) {
+            // A window is already listened to as the component itself
+            window = SwingUtilities.getWindowAncestor(component);
+        }
+
+        if (window != listenedWindow) {
+            if (listenedWindow != null) {
+                listenedWindow.removeComponentListener(screenOffsetInvalidator);
+            }
+            if (window != null) {
+                window.addComponentListener(screenOffsetInvalidator);
+            }
+            listenedWindow = window;
+        }
+    }
+
+    /**
+     * Invalidates the cached location of the component on the screen.
+     */
+    private void invalidateScreenOffset() {
+        screenOffsetInvalidationCount.incrementAndGet();
+    }
+
+    /**
+     * @see Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(component);
+    }
+
+    /**
+     * @see Object#equals(Object)
+     */
+    @Override
+    public boolean equals(Object o) {
+        boolean equal;
+
+        if (this == o) {
+            // Same instance
+            equal = true;
+        } else if ((o == null) || (getClass() != o.getClass())) {
+            // Different class
+            equal = false;
+        } else {
+            // Same class, so check the represented component
+            equal = component == ((ComponentTouchTarget) o).component;
+        }
+
+        return equal;
     }
 }